@@ -0,0 +1,94 @@
+package com.joshbarrosweb.projectmanager.benchmarks;
+
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.services.ConverterService;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written mappings of {@link ConverterService} with the ModelMapper
+ * instance it replaced. Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int memberships;
+
+    private ModelMapper modelMapper;
+    private ConverterService converterService;
+    private User user;
+    private Project project;
+    private UserDTO userDTO;
+    private ProjectDTO projectDTO;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        converterService = new ConverterService();
+
+        Set<Project> projects = new HashSet<>();
+        Set<User> users = new HashSet<>();
+        user = new User(1L, "Cloud Strife", "cloud@example.com", "password1", projects);
+        project = new Project(1L, "Call of Duty", "Description for Call of Duty", users);
+        for (long id = 1; id <= memberships; id++) {
+            projects.add(new Project(id, "Project " + id, "Description " + id, new HashSet<>()));
+            users.add(new User(id, "User " + id, "user" + id + "@example.com", "password", new HashSet<>()));
+        }
+
+        userDTO = converterService.convertToDto(user);
+        projectDTO = converterService.convertToDto(project);
+    }
+
+    @Benchmark
+    public UserDTO userToDtoModelMapper() {
+        return modelMapper.map(user, UserDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO userToDtoConverter() {
+        return converterService.convertToDto(user);
+    }
+
+    @Benchmark
+    public ProjectDTO projectToDtoModelMapper() {
+        return modelMapper.map(project, ProjectDTO.class);
+    }
+
+    @Benchmark
+    public ProjectDTO projectToDtoConverter() {
+        return converterService.convertToDto(project);
+    }
+
+    @Benchmark
+    public User userToEntityModelMapper() {
+        return modelMapper.map(userDTO, User.class);
+    }
+
+    @Benchmark
+    public User userToEntityConverter() {
+        return converterService.convertToEntity(userDTO);
+    }
+
+    @Benchmark
+    public Project projectToEntityModelMapper() {
+        return modelMapper.map(projectDTO, Project.class);
+    }
+
+    @Benchmark
+    public Project projectToEntityConverter() {
+        return converterService.convertToEntity(projectDTO);
+    }
+}
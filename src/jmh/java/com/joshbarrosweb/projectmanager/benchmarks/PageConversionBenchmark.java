@@ -0,0 +1,69 @@
+package com.joshbarrosweb.projectmanager.benchmarks;
+
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.services.ConverterService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the entity to DTO conversion of whole pages, as done by the list and search endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageConversionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({"3"})
+    public int memberships;
+
+    private ConverterService converterService;
+    private Page<User> users;
+    private Page<Project> projects;
+
+    @Setup
+    public void setUp() {
+        converterService = new ConverterService();
+
+        List<User> userList = new ArrayList<>(size);
+        List<Project> projectList = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            Set<Project> userProjects = new HashSet<>();
+            Set<User> projectUsers = new HashSet<>();
+            for (long member = 1; member <= memberships; member++) {
+                userProjects.add(new Project(member, "Project " + member, null, null));
+                projectUsers.add(new User(member, "User " + member, "user" + member + "@example.com", "password", null));
+            }
+            userList.add(new User(id, "User " + id, "user" + id + "@example.com", "password", userProjects));
+            projectList.add(new Project(id, "Project " + id, "Description " + id, projectUsers));
+        }
+        users = new PageImpl<>(userList, PageRequest.of(0, size), size);
+        projects = new PageImpl<>(projectList, PageRequest.of(0, size), size);
+    }
+
+    @Benchmark
+    public Page<UserDTO> convertUserPage() {
+        return users.map(converterService::convertToDto);
+    }
+
+    @Benchmark
+    public Page<ProjectDTO> convertProjectPage() {
+        return projects.map(converterService::convertToDto);
+    }
+}
@@ -0,0 +1,59 @@
+package com.joshbarrosweb.projectmanager.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Jackson serialization of a {@code Page<UserDTO>} response body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private Page<UserDTO> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<UserDTO> users = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setId(id);
+            userDTO.setName("User " + id);
+            userDTO.setEmail("user" + id + "@example.com");
+            userDTO.setPassword("password");
+            Set<Long> projectIds = new HashSet<>();
+            projectIds.add(id);
+            projectIds.add(id + 1);
+            userDTO.setProjectIds(projectIds);
+            users.add(userDTO);
+        }
+        page = new PageImpl<>(users, PageRequest.of(0, size), size * 10L);
+    }
+
+    @Benchmark
+    public byte[] serializeUserPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,115 @@
+package com.joshbarrosweb.projectmanager.benchmarks;
+
+import com.joshbarrosweb.projectmanager.ProjectManagementRestApiApplication;
+import com.joshbarrosweb.projectmanager.datagen.DataGenProperties;
+import com.joshbarrosweb.projectmanager.datagen.SyntheticDataGenerator;
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.services.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the case-insensitive name searches over a million users and a hundred thousand projects.
+ *
+ * By default it runs against the in-memory H2 database of the "test" profile, which has no trigram
+ * index, so every search scans the table. Pass a PostgreSQL URL to run it against a database migrated
+ * by Flyway, where the pg_trgm indexes of V8 serve the same queries, e.g.
+ * {@code -PjmhArgs="SearchBenchmark -p url=jdbc:postgresql://localhost:5432/bench"}.
+ * The tables are only seeded when empty, so use a scratch database and reuse it across runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"100000"})
+    public int projects;
+
+    @Param({"ser 123456", "ject 4242"})
+    public String keyword;
+
+    @Param({""})
+    public String url;
+
+    @Param({"postgres"})
+    public String username;
+
+    @Param({"password"})
+    public String password;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private ProjectService projectService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(ProjectManagementRestApiApplication.class)
+                .web(WebApplicationType.NONE);
+        if (url.isEmpty()) {
+            context = builder.profiles("test")
+                    .run("--spring.jpa.show-sql=false", "--logging.level.root=WARN");
+        } else {
+            context = builder.run("--spring.datasource.url=" + url,
+                    "--spring.datasource.username=" + username,
+                    "--spring.datasource.password=" + password,
+                    "--spring.jpa.show-sql=false",
+                    "--projectmanager.member-count.reconcile-cron=-",
+                    "--logging.level.root=WARN");
+        }
+        userService = context.getBean(UserService.class);
+        projectService = context.getBean(ProjectService.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class) == 0) {
+            DataGenProperties properties = new DataGenProperties();
+            properties.setUsers(users);
+            properties.setProjects(projects);
+            properties.setMembershipsPerUser(0);
+            new SyntheticDataGenerator(context.getBean(DataSource.class), properties).generate();
+            context.getBean(CounterService.class).reconcile();
+        }
+        if (!url.isEmpty()) {
+            jdbcTemplate.execute("ANALYZE users");
+            jdbcTemplate.execute("ANALYZE projects");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<UserDTO> searchUsers() {
+        return userService.searchUsers(keyword, null, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public SliceDTO<UserDTO> searchUserSlice() {
+        return userService.searchUserSlice(keyword, null, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Page<ProjectDTO> searchProjects() {
+        return projectService.searchProjects(keyword, PageRequest.of(0, 20));
+    }
+}
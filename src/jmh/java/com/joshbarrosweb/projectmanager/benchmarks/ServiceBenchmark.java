@@ -0,0 +1,129 @@
+package com.joshbarrosweb.projectmanager.benchmarks;
+
+import com.joshbarrosweb.projectmanager.ProjectManagementRestApiApplication;
+import com.joshbarrosweb.projectmanager.dtos.MemberDTO;
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.services.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the service layer end to end against the in-memory H2 database of the "test" profile.
+ * Each call runs in its own transaction, standing in for the persistence context a web request gets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"1000"})
+    public int users;
+
+    @Param({"100"})
+    public int projects;
+
+    @Param({"3"})
+    public int membershipsPerUser;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private ProjectService projectService;
+    private TransactionTemplate transactionTemplate;
+    private List<Long> userIds;
+    private List<Long> projectIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ProjectManagementRestApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.jpa.show-sql=false", "--logging.level.root=WARN");
+        userService = context.getBean(UserService.class);
+        projectService = context.getBean(ProjectService.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        List<Project> projectEntities = new ArrayList<>(projects);
+        for (int i = 0; i < projects; i++) {
+            projectEntities.add(new Project(null, "Project " + i, "Description " + i, null));
+        }
+        List<User> userEntities = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            userEntities.add(new User(null, "User " + i, "user" + i + "@example.com", "password", null));
+        }
+        projectIds = new ArrayList<>();
+        context.getBean(ProjectRepository.class).saveAll(projectEntities).forEach(project -> projectIds.add(project.getId()));
+        userIds = new ArrayList<>();
+        context.getBean(UserRepository.class).saveAll(userEntities).forEach(user -> userIds.add(user.getId()));
+
+        List<Object[]> memberships = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            for (int j = 0; j < membershipsPerUser; j++) {
+                memberships.add(new Object[]{userIds.get(i), projectIds.get((i + j) % projects)});
+            }
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO project_user (user_id, project_id) VALUES (?, ?)", memberships);
+        context.getBean(CounterService.class).reconcile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDTO getUserById() {
+        Long id = userIds.get(next++ % userIds.size());
+        return transactionTemplate.execute(status -> userService.getUserById(id));
+    }
+
+    @Benchmark
+    public ProjectDTO getProjectById() {
+        Long id = projectIds.get(next++ % projectIds.size());
+        return transactionTemplate.execute(status -> projectService.getProjectById(id));
+    }
+
+    @Benchmark
+    public Page<UserDTO> listUsers() {
+        PageRequest pageable = PageRequest.of(next++ % 10, 20);
+        return transactionTemplate.execute(status -> userService.listUsers(pageable));
+    }
+
+    @Benchmark
+    public Page<ProjectDTO> listProjects() {
+        PageRequest pageable = PageRequest.of(next++ % 5, 20);
+        return transactionTemplate.execute(status -> projectService.listProjects(pageable));
+    }
+
+    @Benchmark
+    public Page<UserDTO> searchUsers() {
+        return transactionTemplate.execute(status -> userService.searchUsers("User 1", null, PageRequest.of(0, 20)));
+    }
+
+    @Benchmark
+    public Page<MemberDTO> getUsersByProjectId() {
+        Long id = projectIds.get(next++ % projectIds.size());
+        return transactionTemplate.execute(status -> projectService.getUsersByProjectId(id, PageRequest.of(0, 20, Sort.by("id"))));
+    }
+}
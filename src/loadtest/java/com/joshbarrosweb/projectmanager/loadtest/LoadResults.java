@@ -0,0 +1,107 @@
+package com.joshbarrosweb.projectmanager.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and error counts of a load test phase, one HDR histogram per operation.
+ * Latencies are recorded in microseconds with three significant digits.
+ */
+final class LoadResults {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+    private final Histogram total = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final AtomicLong totalErrors = new AtomicLong();
+
+    /**
+     * Records a successful call.
+     *
+     * @param operation    The name of the operation.
+     * @param latencyNanos The time from the call's intended start until its response was read.
+     */
+    void success(String operation, long latencyNanos) {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(latencyNanos), 1), HIGHEST_TRACKABLE_MICROS);
+        latencies.computeIfAbsent(operation, name -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3))
+                .recordValue(micros);
+        total.recordValue(micros);
+    }
+
+    /**
+     * Records a call that failed or got an error status.
+     *
+     * @param operation The name of the operation.
+     */
+    void error(String operation) {
+        errors.computeIfAbsent(operation, name -> new AtomicLong()).incrementAndGet();
+        totalErrors.incrementAndGet();
+    }
+
+    /**
+     * Prints one line per operation and a total line: calls, errors, throughput and latency percentiles.
+     *
+     * @param out     Where to print the table.
+     * @param seconds The length of the measured phase.
+     */
+    void printSummary(PrintStream out, double seconds) {
+        out.printf("%-30s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "calls", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        Map<String, Histogram> sorted = new TreeMap<>(latencies);
+        errors.keySet().forEach(name -> sorted.putIfAbsent(name, new Histogram(3)));
+        sorted.forEach((name, histogram) -> printLine(out, name, histogram, errorCount(name), seconds));
+        printLine(out, "total", total, totalErrors.get(), seconds);
+    }
+
+    /**
+     * Writes the full percentile distribution of every operation, in the HdrHistogram .hgrm format
+     * that the HdrHistogram plotter reads, with values in milliseconds.
+     *
+     * @param directory The directory to write one file per operation into.
+     */
+    void writeDistributions(Path directory) {
+        Map<String, Histogram> all = new TreeMap<>(latencies);
+        all.put("total", total);
+        all.forEach((name, histogram) -> {
+            Path file = directory.resolve(name.replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "") + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), true, StandardCharsets.UTF_8.name())) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private long errorCount(String operation) {
+        AtomicLong count = errors.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    private static void printLine(PrintStream out, String name, Histogram histogram, long errors, double seconds) {
+        long calls = histogram.getTotalCount() + errors;
+        out.printf("%-30s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, calls, errors, calls / seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(95)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,182 @@
+package com.joshbarrosweb.projectmanager.loadtest;
+
+import com.joshbarrosweb.projectmanager.ProjectManagementRestApiApplication;
+import com.joshbarrosweb.projectmanager.datagen.DataGenProperties;
+import com.joshbarrosweb.projectmanager.datagen.SyntheticDataGenerator;
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots the application on the in-memory H2 database of the "test" profile, seeds it with the
+ * {@link SyntheticDataGenerator} and drives the mixed {@link Workload} over HTTP, then reports
+ * latency percentiles and throughput per endpoint.
+ *
+ * With a fixed arrival rate, requests are started on schedule whether or not earlier ones have
+ * completed, and each latency is measured from the request's scheduled start. Time spent waiting
+ * for a free client is therefore included, instead of hiding a slow server behind fewer requests.
+ * With {@code rate=0} every client sends back to back, which measures the maximum throughput.
+ *
+ * Run it with {@code ./gradlew loadTest}, see the README for the options.
+ */
+public final class LoadTest {
+
+    private final LoadTestOptions options;
+    private final HttpClient httpClient;
+
+    private LoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        System.out.println("Load test: " + options);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProjectManagementRestApiApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--logging.level.root=WARN");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Workload workload = seed(context, options, "http://localhost:" + port);
+            new LoadTest(options).run(workload);
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Generates the data set with the synthetic data generator, with Zipfian project popularity,
+     * recomputes the row counters and reads back the generated IDs for the workload.
+     */
+    private static Workload seed(ConfigurableApplicationContext context, LoadTestOptions options, String baseUrl) throws SQLException {
+        DataGenProperties properties = new DataGenProperties();
+        properties.setUsers(options.users);
+        properties.setProjects(options.projects);
+        properties.setMembershipsPerUser(options.memberships);
+        properties.setSeed(options.seed);
+
+        long start = System.nanoTime();
+        long memberships = new SyntheticDataGenerator(context.getBean(DataSource.class), properties).generate();
+        context.getBean(CounterService.class).reconcile();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+        List<Long> projectIds = jdbcTemplate.queryForList("SELECT id FROM projects ORDER BY id", Long.class);
+        System.out.printf("Seeded %d users, %d projects and %d memberships in %d ms%n", userIds.size(), projectIds.size(),
+                memberships, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new Workload(baseUrl, userIds, projectIds);
+    }
+
+    private void run(Workload workload) throws InterruptedException, IOException {
+        SplittableRandom random = new SplittableRandom(options.seed);
+        if (options.warmup > 0) {
+            System.out.printf("Warming up for %d s%n", options.warmup);
+            phase(workload, random, options.warmup);
+        }
+        System.out.printf("Measuring for %d s%n", options.duration);
+        LoadResults results = phase(workload, random, options.duration);
+        report(results);
+    }
+
+    /**
+     * Runs the workload for the given number of seconds and waits for the calls in flight to finish.
+     */
+    private LoadResults phase(Workload workload, SplittableRandom random, int seconds) throws InterruptedException {
+        LoadResults results = new LoadResults();
+        ExecutorService clients = Executors.newFixedThreadPool(options.clients);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        if (options.rate > 0) {
+            long interval = TimeUnit.SECONDS.toNanos(1) / options.rate;
+            for (long scheduled = start; scheduled < end; scheduled += interval) {
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Workload.Call call = workload.next(random);
+                long intendedStart = scheduled;
+                clients.execute(() -> call(call, intendedStart, results));
+            }
+        } else {
+            for (int i = 0; i < options.clients; i++) {
+                SplittableRandom clientRandom = random.split();
+                clients.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        call(workload.next(clientRandom), System.nanoTime(), results);
+                    }
+                });
+            }
+        }
+
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.MINUTES);
+        return results;
+    }
+
+    private void call(Workload.Call call, long intendedStart, LoadResults results) {
+        try {
+            HttpResponse<Void> response = httpClient.send(call.request, HttpResponse.BodyHandlers.discarding());
+            long latency = System.nanoTime() - intendedStart;
+            if (response.statusCode() < 400) {
+                results.success(call.operation, latency);
+            } else {
+                results.error(call.operation);
+            }
+        } catch (IOException e) {
+            results.error(call.operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            results.error(call.operation);
+        }
+    }
+
+    /**
+     * Prints the summary and writes it, with the full distribution of every operation,
+     * to a new directory under the report directory.
+     */
+    private void report(LoadResults results) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8.name())) {
+            out.println("Load test: " + options);
+            results.printSummary(out, options.duration);
+        }
+        String summary = buffer.toString(StandardCharsets.UTF_8.name());
+        System.out.print(summary);
+
+        Path directory = options.report.resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("summary.txt"), summary.getBytes(StandardCharsets.UTF_8));
+        results.writeDistributions(directory);
+        System.out.println("Report written to " + directory.toAbsolutePath());
+    }
+}
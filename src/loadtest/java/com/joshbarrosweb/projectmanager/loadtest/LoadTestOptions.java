@@ -0,0 +1,100 @@
+package com.joshbarrosweb.projectmanager.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Settings of a load test run, parsed from {@code name=value} arguments.
+ * Every setting has a default, so a run needs no arguments at all.
+ */
+final class LoadTestOptions {
+
+    /** Number of users seeded before the run. */
+    int users = 10000;
+
+    /** Number of projects seeded before the run. */
+    int projects = 1000;
+
+    /** Mean number of projects each seeded user is a member of. */
+    int memberships = 3;
+
+    /** Number of concurrent clients, i.e. requests that can be in flight at once. */
+    int clients = 64;
+
+    /** Requests started per second, or 0 to let every client send back to back and measure the maximum throughput. */
+    int rate = 200;
+
+    /** Seconds of load before measuring starts, so the JIT, caches and connection pools are warm. */
+    int warmup = 10;
+
+    /** Seconds of measured load. */
+    int duration = 60;
+
+    /** Seed of the random data set and request mix, so runs are repeatable. */
+    long seed = 42;
+
+    /** Directory the report is written to. */
+    Path report = Paths.get("build", "reports", "loadtest");
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected name=value but got: " + arg);
+            }
+            String name = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "users":
+                    options.users = positive(name, value);
+                    break;
+                case "projects":
+                    options.projects = positive(name, value);
+                    break;
+                case "memberships":
+                    options.memberships = Integer.parseInt(value);
+                    break;
+                case "clients":
+                    options.clients = positive(name, value);
+                    break;
+                case "rate":
+                    options.rate = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    options.warmup = Integer.parseInt(value);
+                    break;
+                case "duration":
+                    options.duration = positive(name, value);
+                    break;
+                case "seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                case "report":
+                    options.report = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        if (options.memberships > options.projects) {
+            throw new IllegalArgumentException("memberships must not exceed projects");
+        }
+        return options;
+    }
+
+    private static int positive(String name, String value) {
+        int number = Integer.parseInt(value);
+        if (number < 1) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return number;
+    }
+
+    @Override
+    public String toString() {
+        return "users=" + users + " projects=" + projects + " memberships=" + memberships
+                + " clients=" + clients + " rate=" + (rate == 0 ? "max" : rate + "/s")
+                + " warmup=" + warmup + "s duration=" + duration + "s seed=" + seed;
+    }
+}
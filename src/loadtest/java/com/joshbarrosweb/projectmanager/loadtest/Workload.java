@@ -0,0 +1,147 @@
+package com.joshbarrosweb.projectmanager.loadtest;
+
+import com.joshbarrosweb.projectmanager.datagen.SyntheticDataGenerator;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * The mixed request workload: a weighted choice among the read and write endpoints of
+ * {@code /projects} and {@code /users}, against the IDs of the seeded data set.
+ * About five in six requests are reads.
+ */
+final class Workload {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final String JSON = "application/json";
+
+    /**
+     * One kind of request and its share of the mix.
+     */
+    static final class Operation {
+
+        final String name;
+        final int weight;
+        final BiFunction<Workload, SplittableRandom, HttpRequest> request;
+
+        Operation(String name, int weight, BiFunction<Workload, SplittableRandom, HttpRequest> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+    }
+
+    /**
+     * A request chosen from the mix, with the name of its operation.
+     */
+    static final class Call {
+
+        final String operation;
+        final HttpRequest request;
+
+        Call(String operation, HttpRequest request) {
+            this.operation = operation;
+            this.request = request;
+        }
+    }
+
+    static final List<Operation> OPERATIONS = List.of(
+            new Operation("GET /projects", 10,
+                    (w, r) -> w.get("/projects?size=20&page=" + r.nextInt(10))),
+            new Operation("GET /projects?after", 5,
+                    (w, r) -> w.get("/projects?after=&size=20&sort=name")),
+            new Operation("GET /projects/{id}", 20,
+                    (w, r) -> w.get("/projects/" + w.projectId(r))),
+            new Operation("GET /projects/{id}/users", 10,
+                    (w, r) -> w.get("/projects/" + w.projectId(r) + "/users")),
+            new Operation("GET /projects/search", 5,
+                    (w, r) -> w.get("/projects/search?size=20&name=Project%20" + r.nextInt(100))),
+            new Operation("GET /users", 10,
+                    (w, r) -> w.get("/users?size=20&page=" + r.nextInt(10))),
+            new Operation("GET /users/{id}", 20,
+                    (w, r) -> w.get("/users/" + w.userId(r))),
+            new Operation("GET /users/search", 5,
+                    (w, r) -> w.get("/users/search?size=20&name=User%20" + r.nextInt(100))),
+            new Operation("PUT /projects/{id}", 4,
+                    (w, r) -> {
+                        int index = r.nextInt(w.projectIds.size());
+                        return w.send("PUT", "/projects/" + w.projectIds.get(index),
+                                "{\"name\":\"Project " + index + "\",\"description\":\"Edited " + r.nextInt() + "\"}");
+                    }),
+            new Operation("PUT /users/{id}", 4,
+                    (w, r) -> {
+                        Long id = w.userId(r);
+                        return w.send("PUT", "/users/" + id,
+                                "{\"name\":\"User " + r.nextInt() + "\",\"email\":\"" + SyntheticDataGenerator.email(id) + "\"}");
+                    }),
+            new Operation("POST /users", 3,
+                    (w, r) -> {
+                        long n = w.created.incrementAndGet();
+                        return w.send("POST", "/users",
+                                "{\"name\":\"New User " + n + "\",\"email\":\"new" + n + "@load.test\",\"password\":\"password\"}");
+                    }),
+            new Operation("POST /projects/{id}/users", 4,
+                    (w, r) -> w.send("POST", "/projects/" + w.projectId(r) + "/users", "[" + w.userId(r) + "]")),
+            new Operation("DELETE /projects/{id}/users", 2,
+                    (w, r) -> w.send("DELETE", "/projects/" + w.projectId(r) + "/users", "[" + w.userId(r) + "]"))
+    );
+
+    private static final int TOTAL_WEIGHT = OPERATIONS.stream().mapToInt(operation -> operation.weight).sum();
+
+    private final String baseUrl;
+    private final List<Long> userIds;
+    private final List<Long> projectIds;
+    private final AtomicLong created = new AtomicLong();
+
+    Workload(String baseUrl, List<Long> userIds, List<Long> projectIds) {
+        this.baseUrl = baseUrl;
+        this.userIds = new ArrayList<>(userIds);
+        this.projectIds = new ArrayList<>(projectIds);
+    }
+
+    /**
+     * Picks the next request of the mix.
+     *
+     * @param random The source of randomness, owned by the calling thread.
+     * @return The request and the name of its operation.
+     */
+    Call next(SplittableRandom random) {
+        int pick = random.nextInt(TOTAL_WEIGHT);
+        for (Operation operation : OPERATIONS) {
+            pick -= operation.weight;
+            if (pick < 0) {
+                return new Call(operation.name, operation.request.apply(this, random));
+            }
+        }
+        throw new IllegalStateException("Weights do not add up");
+    }
+
+    private Long userId(SplittableRandom random) {
+        return userIds.get(random.nextInt(userIds.size()));
+    }
+
+    private Long projectId(SplittableRandom random) {
+        return projectIds.get(random.nextInt(projectIds.size()));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest send(String method, String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", JSON)
+                .method(method, HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.joshbarrosweb.projectmanager.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Enables the local cache of converted DTOs.
+ *
+ * The caches are Caffeine caches bounded by size and TTL (see {@code spring.cache.caffeine.spec}).
+ * Their hit, miss and eviction statistics are published under {@code /actuator/metrics/cache.*}.
+ * Writes evict entries with {@code AfterCommit}, once their transaction commits. The caching advice
+ * wraps the transactional advice, so a {@code @Cacheable} load has committed before its result is cached.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+    public static final String PROJECTS = "projects";
+    public static final String USERS = "users";
+    public static final String COLLABORATORS = "collaborators";
+}
@@ -0,0 +1,85 @@
+package com.joshbarrosweb.projectmanager.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every public method of the project and user services and every entity/DTO conversion,
+ * tagged by operation and outcome. Index maintenance and scheduled jobs, such as the search index
+ * refresh, are left out so they do not drown the request-driven calls.
+ *
+ * Service calls are published as {@value #SERVICE_TIMER} with the tags {@code service}, {@code operation},
+ * {@code outcome} and {@code exception}; conversions as {@value #CONVERSION_TIMER} with {@code operation},
+ * {@code type}, {@code outcome} and {@code exception}. Repository queries are timed by Spring Data as
+ * {@code spring.data.repository.invocations}. The advice wraps the caching and transactional advice,
+ * so service timings include cache hits and commits.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MetricsAspect {
+
+    public static final String SERVICE_TIMER = "projectmanager.service.calls";
+    public static final String CONVERSION_TIMER = "projectmanager.conversions";
+
+    private static final String SUCCESS = "SUCCESS";
+    private static final String ERROR = "ERROR";
+
+    private final MeterRegistry registry;
+    // Conversions run once per row, so the timer of the common case is looked up once per method
+    private final Map<Method, Timer> successTimers = new ConcurrentHashMap<>();
+
+    public MetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("within(com.joshbarrosweb.projectmanager.services.impl.*) && ("
+            + "execution(public * com.joshbarrosweb.projectmanager.services.ProjectService+.*(..)) || "
+            + "execution(public * com.joshbarrosweb.projectmanager.services.UserService+.*(..)))")
+    public Object timeServiceCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, SERVICE_TIMER);
+    }
+
+    @Around("execution(public * com.joshbarrosweb.projectmanager.services.ConverterService.*(..))")
+    public Object timeConversion(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, CONVERSION_TIMER);
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String name) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            Object result = joinPoint.proceed();
+            sample.stop(successTimers.computeIfAbsent(signature.getMethod(), method -> timer(name, signature, SUCCESS, "none")));
+            return result;
+        } catch (Throwable e) {
+            sample.stop(timer(name, signature, ERROR, e.getClass().getSimpleName()));
+            throw e;
+        }
+    }
+
+    private Timer timer(String name, MethodSignature signature, String outcome, String exception) {
+        Tags tags = SERVICE_TIMER.equals(name)
+                ? Tags.of("service", signature.getDeclaringType().getSimpleName(), "operation", signature.getName())
+                : Tags.of("operation", signature.getName(), "type", signature.getParameterTypes().length == 0
+                        ? "none"
+                        : signature.getParameterTypes()[0].getSimpleName());
+        return Timer.builder(name)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(registry);
+    }
+}
@@ -0,0 +1,21 @@
+package com.joshbarrosweb.projectmanager.config;
+
+import com.joshbarrosweb.projectmanager.services.SearchService;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Rebuilds the search index from the database on startup when the "reindex" profile is active.
+ * The profile runs without a web server, so the application exits once the index is rebuilt.
+ */
+@Configuration
+@Profile("reindex")
+public class ReindexConfig {
+
+    @Bean
+    public ApplicationRunner reindexRunner(SearchService searchService) {
+        return args -> searchService.rebuild();
+    }
+}
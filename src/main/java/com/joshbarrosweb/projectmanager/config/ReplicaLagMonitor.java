@@ -0,0 +1,66 @@
+package com.joshbarrosweb.projectmanager.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Periodically measures how far the read replica is behind the primary.
+ * Read-only transactions are only routed to the replica while its lag is within
+ * {@code projectmanager.datasource.replica.max-lag}; until the first check succeeds, and whenever
+ * a check fails, they go to the primary.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate replica;
+    private final ReplicaProperties properties;
+    private volatile boolean replicaUsable;
+
+    public ReplicaLagMonitor(DataSource replica, ReplicaProperties properties) {
+        this.replica = new JdbcTemplate(replica);
+        this.properties = properties;
+    }
+
+    /**
+     * Runs the lag query against the replica and decides whether reads may use it.
+     * With a blank lag query the replica is always used.
+     */
+    @Scheduled(fixedDelayString = "${projectmanager.datasource.replica.lag-check-interval:PT1S}")
+    public void check() {
+        String query = properties.getLagQuery();
+        if (query == null || query.isBlank()) {
+            replicaUsable = true;
+            return;
+        }
+        boolean usable;
+        try {
+            Double lagSeconds = replica.queryForObject(query, Double.class);
+            usable = lagSeconds == null || lagSeconds * 1000 <= properties.getMaxLag().toMillis();
+            if (!usable && replicaUsable) {
+                log.warn("Replica is {} s behind, reading from the primary", lagSeconds);
+            }
+        } catch (DataAccessException e) {
+            usable = false;
+            if (replicaUsable) {
+                log.warn("Replica lag check failed, reading from the primary", e);
+            }
+        }
+        if (usable && !replicaUsable) {
+            log.info("Replica is within {} of the primary, reading from the replica", properties.getMaxLag());
+        }
+        replicaUsable = usable;
+    }
+
+    /**
+     * @return Whether read-only transactions may run on the replica.
+     */
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+}
@@ -0,0 +1,68 @@
+package com.joshbarrosweb.projectmanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Connection and freshness settings of the read replica, bound from the
+ * {@code projectmanager.datasource.replica.*} properties.
+ * Pool settings go under {@code projectmanager.datasource.replica.hikari.*}.
+ */
+@ConfigurationProperties(prefix = "projectmanager.datasource.replica")
+public class ReplicaProperties {
+
+    /**
+     * Seconds the replica is behind the primary, or 0 when it has replayed everything it received.
+     */
+    public static final String POSTGRES_LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private String url;                                // Routing is enabled when set
+    private String username;
+    private String password;
+    private Duration maxLag = Duration.ofSeconds(5);   // Reads go to the primary while the replica is further behind
+    private String lagQuery = POSTGRES_LAG_QUERY;      // Returns the lag in seconds, blank to never check
+
+    // getters and setters
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    public void setMaxLag(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public String getLagQuery() {
+        return lagQuery;
+    }
+
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery;
+    }
+}
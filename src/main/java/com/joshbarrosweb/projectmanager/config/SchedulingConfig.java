@@ -0,0 +1,16 @@
+package com.joshbarrosweb.projectmanager.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the scheduled jobs: the replica lag check, the member count and row counter reconciliations
+ * and the search index refresh and commit. The one-off "datagen" and "reindex" profiles run without them,
+ * as the scheduler's threads would keep the application from exiting.
+ */
+@Configuration
+@EnableScheduling
+@Profile("!datagen & !reindex")
+public class SchedulingConfig {
+}
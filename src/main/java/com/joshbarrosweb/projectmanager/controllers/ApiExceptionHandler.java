@@ -0,0 +1,48 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.ServiceUnavailableException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    /**
+     * Maps invalid client input, such as a malformed cursor, to a bad request.
+     * Other exceptions are left to Spring, so their messages are never echoed to the client.
+     *
+     * @param e The exception thrown by the service layer.
+     * @return ResponseEntity containing the error message.
+     */
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<String> handleBadRequest(BadRequestException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Maps a write against a stale version, such as a PUT whose If-Match no longer matches, to a failed precondition.
+     *
+     * @param e The exception thrown by the service layer.
+     * @return ResponseEntity containing the error message.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /**
+     * Maps a request that cannot be served yet, such as a query while the membership index is loading,
+     * to a service unavailable.
+     *
+     * @param e The exception thrown by the service layer.
+     * @return ResponseEntity containing the error message.
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<String> handleServiceUnavailable(ServiceUnavailableException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
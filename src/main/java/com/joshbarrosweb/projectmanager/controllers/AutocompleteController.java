@@ -0,0 +1,39 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.dtos.SuggestionDTO;
+import com.joshbarrosweb.projectmanager.services.AutocompleteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/autocomplete")
+public class AutocompleteController {
+
+    private final AutocompleteService autocompleteService;
+
+    @Autowired
+    public AutocompleteController(AutocompleteService autocompleteService) {
+        this.autocompleteService = autocompleteService;
+    }
+
+    /**
+     * Suggest projects or users while a name or email is typed.
+     * It is served from memory, without touching the database.
+     *
+     * @param prefix The start of a word of the name, or of the email, typed so far.
+     * @param type   Either "project" or "user".
+     * @param size   The maximum number of suggestions.
+     * @return ResponseEntity containing the suggestions, in alphabetical order of the matching text.
+     */
+    @GetMapping
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam String prefix,
+            @RequestParam String type,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(autocompleteService.suggest(prefix, type, size));
+    }
+}
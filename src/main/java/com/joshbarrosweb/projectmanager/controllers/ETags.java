@@ -0,0 +1,110 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Builds strong ETags from entity versions and evaluates the conditional request headers against them.
+ */
+final class ETags {
+
+    private static final String ANY = "*";
+
+    private ETags() {
+    }
+
+    /**
+     * Formats a version as a strong ETag.
+     *
+     * @param version The version of the resource.
+     * @return The quoted ETag.
+     */
+    static String of(Object version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Checks an If-None-Match header against the current ETag, using the weak comparison the header calls for.
+     *
+     * @param ifNoneMatch The header value, a comma-separated list of ETags or "*".
+     * @param etag        The current ETag of the resource.
+     * @return Whether the client's copy is still current.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(ANY) || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an If-Match header places no condition on the current version.
+     *
+     * @param ifMatch The header value, or null if absent.
+     * @return Whether the header is absent or "*".
+     */
+    static boolean isUnconditional(String ifMatch) {
+        return ifMatch == null || ANY.equals(ifMatch.trim());
+    }
+
+    /**
+     * Parses the version out of a single strong ETag, as sent in an If-Match header.
+     *
+     * @param ifMatch The header value.
+     * @return The version, or null if the header is not a single strong ETag produced by {@link #of(Object)}.
+     */
+    static Long version(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            return Long.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a 200 response carrying the ETag of the given version, if the version is known.
+     *
+     * @param body    The response body.
+     * @param version The version of the resource, or null.
+     * @param <T>     The type of the body.
+     * @return The response entity.
+     */
+    static <T> ResponseEntity<T> ok(T body, Object version) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (version != null) {
+            builder.eTag(of(version));
+        }
+        return builder.body(body);
+    }
+
+    /**
+     * Creates a 304 response repeating the current ETag.
+     *
+     * @param etag The current ETag of the resource.
+     * @param <T>  The type of the body.
+     * @return The response entity.
+     */
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+    /**
+     * Creates a 412 response, for an If-Match header that cannot match any version.
+     *
+     * @param <T> The type of the body.
+     * @return The response entity.
+     */
+    static <T> ResponseEntity<T> preconditionFailed() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
+}
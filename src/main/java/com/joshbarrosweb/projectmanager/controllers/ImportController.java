@@ -0,0 +1,46 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.dtos.ImportSummaryDTO;
+import com.joshbarrosweb.projectmanager.services.ImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/import")
+public class ImportController {
+
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * Import users, projects and memberships from the request body.
+     * The body is read as a stream while it is uploaded, never buffered as a whole.
+     * Rows are committed in batches, so when a batch fails the batches before it stay committed;
+     * the summary is then returned with a 500 status, the failure and the rows committed.
+     *
+     * @param format The format of the body, either "ndjson" or "csv".
+     * @param body   The request body.
+     * @return ResponseEntity containing the import summary.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping
+    public ResponseEntity<ImportSummaryDTO> importData(
+            @RequestParam(defaultValue = ImportService.FORMAT_NDJSON) String format,
+            InputStream body
+    ) throws IOException {
+        ImportSummaryDTO summary = importService.importData(body, format);
+        if (summary.getFailure() != null) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(summary);
+        }
+        return ResponseEntity.ok(summary);
+    }
+}
@@ -0,0 +1,99 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.services.MembershipIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/memberships")
+public class MembershipController {
+
+    private final MembershipIndexService membershipIndexService;
+
+    @Autowired
+    public MembershipController(MembershipIndexService membershipIndexService) {
+        this.membershipIndexService = membershipIndexService;
+    }
+
+    /**
+     * Get the users that are members of all, or any, of the given projects and of none of the excluded ones.
+     * It is served from the in-memory membership index, without touching the database.
+     *
+     * @param projects The IDs of the projects to combine.
+     * @param op       Either "intersection" (members of all the projects) or "union" (members of any).
+     * @param exclude  The IDs of the projects whose members are left out.
+     * @param after    The cursor returned by the previous page, empty for the first page.
+     * @param size     The maximum number of user IDs to return.
+     * @return ResponseEntity containing a page of user IDs, in ascending order, and the next cursor.
+     */
+    @GetMapping("/users")
+    public ResponseEntity<CursorPageDTO<Long>> findUsers(
+            @RequestParam List<Long> projects,
+            @RequestParam(defaultValue = MembershipIndexService.OP_INTERSECTION) String op,
+            @RequestParam(required = false) List<Long> exclude,
+            @RequestParam(defaultValue = "") String after,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(membershipIndexService.findUsers(op, projects, exclude, after, size));
+    }
+
+    /**
+     * Count the distinct users that are members of all, or any, of the given projects and of none of the excluded ones.
+     *
+     * @param projects The IDs of the projects to combine.
+     * @param op       Either "intersection" (members of all the projects) or "union" (members of any).
+     * @param exclude  The IDs of the projects whose members are left out.
+     * @return ResponseEntity containing the number of users.
+     */
+    @GetMapping("/users/count")
+    public ResponseEntity<Long> countUsers(
+            @RequestParam List<Long> projects,
+            @RequestParam(defaultValue = MembershipIndexService.OP_INTERSECTION) String op,
+            @RequestParam(required = false) List<Long> exclude
+    ) {
+        return ResponseEntity.ok(membershipIndexService.countUsers(op, projects, exclude));
+    }
+
+    /**
+     * Get the projects that all, or any, of the given users are members of and none of the excluded ones are.
+     * It is served from the in-memory membership index, without touching the database.
+     *
+     * @param users   The IDs of the users to combine.
+     * @param op      Either "intersection" (projects shared by all the users) or "union" (projects of any).
+     * @param exclude The IDs of the users whose projects are left out.
+     * @param after   The cursor returned by the previous page, empty for the first page.
+     * @param size    The maximum number of project IDs to return.
+     * @return ResponseEntity containing a page of project IDs, in ascending order, and the next cursor.
+     */
+    @GetMapping("/projects")
+    public ResponseEntity<CursorPageDTO<Long>> findProjects(
+            @RequestParam List<Long> users,
+            @RequestParam(defaultValue = MembershipIndexService.OP_INTERSECTION) String op,
+            @RequestParam(required = false) List<Long> exclude,
+            @RequestParam(defaultValue = "") String after,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(membershipIndexService.findProjects(op, users, exclude, after, size));
+    }
+
+    /**
+     * Count the distinct projects that all, or any, of the given users are members of and none of the excluded ones are.
+     *
+     * @param users   The IDs of the users to combine.
+     * @param op      Either "intersection" (projects shared by all the users) or "union" (projects of any).
+     * @param exclude The IDs of the users whose projects are left out.
+     * @return ResponseEntity containing the number of projects.
+     */
+    @GetMapping("/projects/count")
+    public ResponseEntity<Long> countProjects(
+            @RequestParam List<Long> users,
+            @RequestParam(defaultValue = MembershipIndexService.OP_INTERSECTION) String op,
+            @RequestParam(required = false) List<Long> exclude
+    ) {
+        return ResponseEntity.ok(membershipIndexService.countProjects(op, users, exclude));
+    }
+}
@@ -0,0 +1,44 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes newline-delimited JSON response bodies, one object per line,
+ * as the objects are produced rather than after collecting them.
+ */
+final class Ndjson {
+
+    private Ndjson() {
+    }
+
+    /**
+     * Creates a streaming body that writes every item passed by the producer as a JSON line.
+     *
+     * @param objectMapper The mapper used to serialize each item.
+     * @param producer     Passes each item to the given consumer, e.g. a service export method.
+     * @param <T>          The type of the items.
+     * @return The streaming response body.
+     */
+    static <T> StreamingResponseBody body(ObjectMapper objectMapper, Consumer<Consumer<T>> producer) {
+        return out -> {
+            try {
+                producer.accept(item -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(item));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+    }
+}
@@ -1,14 +1,23 @@
 package com.joshbarrosweb.projectmanager.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.MemberDTO;
+import com.joshbarrosweb.projectmanager.dtos.MembershipResultDTO;
 import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
-import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
 import com.joshbarrosweb.projectmanager.services.ProjectService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -17,10 +26,14 @@ import java.util.List;
 public class ProjectController {
 
     private final ProjectService projectService;
+    private final MembershipService membershipService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public ProjectController(ProjectService projectService) {
+    public ProjectController(ProjectService projectService, MembershipService membershipService, ObjectMapper objectMapper) {
         this.projectService = projectService;
+        this.membershipService = membershipService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -34,6 +47,17 @@ public class ProjectController {
         return ResponseEntity.ok(projectService.createProject(projectDTO));
     }
 
+    /**
+     * Create projects in bulk.
+     *
+     * @param projectDTOs The project data transfer objects.
+     * @return ResponseEntity containing the created IDs and the rejected items.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResultDTO> createProjects(@RequestBody List<ProjectDTO> projectDTOs) {
+        return ResponseEntity.ok(projectService.createProjects(projectDTOs));
+    }
+
     /**
      * Get a paginated list of projects.
      *
@@ -45,27 +69,108 @@ public class ProjectController {
         return ResponseEntity.ok(projectService.listProjects(pageable));
     }
 
+    /**
+     * Get the number of projects, read from the maintained project counter.
+     *
+     * @return ResponseEntity containing the number of projects.
+     */
+    @GetMapping("/count")
+    public ResponseEntity<Long> countProjects() {
+        return ResponseEntity.ok(projectService.countProjects());
+    }
+
+    /**
+     * Get a slice of projects, without a total count, when {@code count=false} is requested.
+     * The response only tells whether there is a next page, which saves the count query.
+     *
+     * @param pageable The pagination information.
+     * @return ResponseEntity containing a slice of projects.
+     */
+    @GetMapping(params = {"count=false", "!after"})
+    public ResponseEntity<SliceDTO<ProjectDTO>> listProjectSlice(@PageableDefault(size = 10) Pageable pageable) {
+        return ResponseEntity.ok(projectService.listProjectSlice(pageable));
+    }
+
+    /**
+     * Get a page of projects using keyset pagination, without a total count.
+     *
+     * @param after The cursor returned by the previous page, empty for the first page.
+     * @param size  The maximum number of projects to return.
+     * @param sort  The sort key, either "id" or "name".
+     * @return ResponseEntity containing a cursor page of projects.
+     */
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorPageDTO<ProjectDTO>> listProjectsByCursor(
+            @RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sort
+    ) {
+        return ResponseEntity.ok(projectService.listProjects(after, size, sort));
+    }
+
+    /**
+     * Export all projects as newline-delimited JSON, one project per line, ordered by ID.
+     * The response is streamed while the projects are read, so its size is not limited by memory.
+     *
+     * @return ResponseEntity streaming every project.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProjects() {
+        StreamingResponseBody body = Ndjson.body(objectMapper, projectService::exportProjects);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     /**
      * Get a project by its ID.
+     * The response carries the project's version as a strong ETag. When If-None-Match is sent,
+     * only the version is looked up and 304 is returned if the client's copy is current.
      *
-     * @param id The ID of the project.
-     * @return ResponseEntity containing the project with the given ID.
+     * @param id          The ID of the project.
+     * @param ifNoneMatch The ETags of the client's cached copies, if any.
+     * @return ResponseEntity containing the project with the given ID, or 304 if it has not changed.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ProjectDTO> getProjectById(@PathVariable Long id) {
-        return ResponseEntity.ok(projectService.getProjectById(id));
+    public ResponseEntity<ProjectDTO> getProjectById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        if (ifNoneMatch != null) {
+            String etag = ETags.of(projectService.getProjectVersion(id));
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ETags.notModified(etag);
+            }
+        }
+        ProjectDTO project = projectService.getProjectById(id);
+        return ETags.ok(project, project.getVersion());
     }
 
     /**
      * Update a project.
+     * With an If-Match ETag, the update only applies if the project still has that version,
+     * otherwise 412 is returned.
      *
      * @param id         The ID of the project to update.
      * @param projectDTO The updated project data transfer object.
+     * @param ifMatch    The ETag the client last read, if any.
      * @return ResponseEntity containing the updated project.
      */
     @PutMapping("/{id}")
-    public ResponseEntity<ProjectDTO> updateProject(@PathVariable Long id, @RequestBody ProjectDTO projectDTO) {
-        return ResponseEntity.ok(projectService.updateProject(id, projectDTO));
+    public ResponseEntity<ProjectDTO> updateProject(
+            @PathVariable Long id,
+            @RequestBody ProjectDTO projectDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        ProjectDTO project;
+        if (ETags.isUnconditional(ifMatch)) {
+            project = projectService.updateProject(id, projectDTO);
+        } else {
+            Long version = ETags.version(ifMatch);
+            if (version == null) {
+                return ETags.preconditionFailed();
+            }
+            project = projectService.updateProject(id, projectDTO, version);
+        }
+        return ETags.ok(project, project.getVersion());
     }
 
     /**
@@ -93,13 +198,118 @@ public class ProjectController {
     }
 
     /**
-     * Get the list of users associated with a project.
+     * Search for projects by name, without a total count, when {@code count=false} is requested.
      *
-     * @param id The ID of the project.
-     * @return ResponseEntity containing the list of users associated with the project.
+     * @param name     The name to search for.
+     * @param pageable The pagination information.
+     * @return ResponseEntity containing a slice of projects matching the search criteria.
+     */
+    @GetMapping(value = "/search", params = "count=false")
+    public ResponseEntity<SliceDTO<ProjectDTO>> searchProjectSlice(@RequestParam String name, @PageableDefault(size = 10) Pageable pageable) {
+        return ResponseEntity.ok(projectService.searchProjectSlice(name, pageable));
+    }
+
+    /**
+     * Get a page of the users associated with a project, ordered by ID unless another sort is requested.
+     * The ETag combines the project's version with its members' versions, so it changes when users
+     * join, leave or are updated; it is computed before the page is loaded, and 304 is returned
+     * without loading it if it matches If-None-Match.
+     *
+     * @param id          The ID of the project.
+     * @param pageable    The pagination information.
+     * @param ifNoneMatch The ETags of the client's cached copies, if any.
+     * @return ResponseEntity containing a page of the project's members, or 304 if they have not changed.
      */
     @GetMapping("/{id}/users")
-    public ResponseEntity<List<UserDTO>> getUsersByProjectId(@PathVariable Long id) {
-        return ResponseEntity.ok(projectService.getUsersByProjectId(id));
+    public ResponseEntity<Page<MemberDTO>> getUsersByProjectId(
+            @PathVariable Long id,
+            @PageableDefault(size = 10, sort = "id") Pageable pageable,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        String version = projectService.getMembersVersion(id);
+        if (ifNoneMatch != null && ETags.matches(ifNoneMatch, ETags.of(version))) {
+            return ETags.notModified(ETags.of(version));
+        }
+        return ETags.ok(projectService.getUsersByProjectId(id, pageable), version);
+    }
+
+    /**
+     * Get a slice of the users associated with a project, without a total count, when {@code count=false} is requested.
+     *
+     * @param id       The ID of the project.
+     * @param pageable The pagination information.
+     * @return ResponseEntity containing a slice of the project's members.
+     */
+    @GetMapping(value = "/{id}/users", params = {"count=false", "!after"})
+    public ResponseEntity<SliceDTO<MemberDTO>> getUserSliceByProjectId(
+            @PathVariable Long id,
+            @PageableDefault(size = 10, sort = "id") Pageable pageable
+    ) {
+        return ResponseEntity.ok(projectService.getUserSliceByProjectId(id, pageable));
+    }
+
+    /**
+     * Get a page of the users associated with a project using keyset pagination by user ID.
+     *
+     * @param id    The ID of the project.
+     * @param after The cursor returned by the previous page, empty for the first page.
+     * @param size  The maximum number of members to return.
+     * @return ResponseEntity containing a cursor page of the project's members.
+     */
+    @GetMapping(value = "/{id}/users", params = "after")
+    public ResponseEntity<CursorPageDTO<MemberDTO>> getUsersByProjectIdByCursor(
+            @PathVariable Long id,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(projectService.getUsersByProjectId(id, after, size));
+    }
+
+    /**
+     * Export every user associated with a project as newline-delimited JSON, one member per line, ordered by ID.
+     * The response is streamed while the members are read, so its size is not limited by memory.
+     *
+     * @param id The ID of the project.
+     * @return ResponseEntity streaming every member of the project.
+     */
+    @GetMapping(value = "/{id}/users/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsersByProjectId(@PathVariable Long id) {
+        StreamingResponseBody body = Ndjson.<MemberDTO>body(objectMapper, consumer -> projectService.exportUsersByProjectId(id, consumer));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Get the number of users associated with a project, read from its maintained member counter.
+     *
+     * @param id The ID of the project.
+     * @return ResponseEntity containing the number of users associated with the project.
+     */
+    @GetMapping("/{id}/users/count")
+    public ResponseEntity<Long> countUsersByProjectId(@PathVariable Long id) {
+        return ResponseEntity.ok(projectService.countUsersByProjectId(id));
+    }
+
+    /**
+     * Assign users to a project.
+     *
+     * @param id      The ID of the project.
+     * @param userIds The IDs of the users to assign.
+     * @return ResponseEntity containing the number of memberships created.
+     */
+    @PostMapping("/{id}/users")
+    public ResponseEntity<MembershipResultDTO> addUsersToProject(@PathVariable Long id, @RequestBody List<Long> userIds) {
+        return ResponseEntity.ok(membershipService.addUsers(id, userIds));
+    }
+
+    /**
+     * Remove users from a project.
+     *
+     * @param id      The ID of the project.
+     * @param userIds The IDs of the users to remove.
+     * @return ResponseEntity containing the number of memberships removed.
+     */
+    @DeleteMapping("/{id}/users")
+    public ResponseEntity<MembershipResultDTO> removeUsersFromProject(@PathVariable Long id, @RequestBody List<Long> userIds) {
+        return ResponseEntity.ok(membershipService.removeUsers(id, userIds));
     }
 }
@@ -0,0 +1,39 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.dtos.SearchHitDTO;
+import com.joshbarrosweb.projectmanager.services.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+
+    private final SearchService searchService;
+
+    @Autowired
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    /**
+     * Full-text search over project names and descriptions and user names and emails, best matches first.
+     * It is served from the search index, without touching the database.
+     *
+     * @param q    The words to search for; every word must match.
+     * @param type Either "project" or "user" to search only one of them.
+     * @param size The maximum number of hits to return.
+     * @return ResponseEntity containing the hits, ordered by descending score.
+     */
+    @GetMapping
+    public ResponseEntity<List<SearchHitDTO>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(searchService.search(q, type, size));
+    }
+}
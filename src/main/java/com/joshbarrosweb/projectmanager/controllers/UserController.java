@@ -1,24 +1,37 @@
 package com.joshbarrosweb.projectmanager.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.CollaboratorDTO;
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
 import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
 import com.joshbarrosweb.projectmanager.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -33,6 +46,18 @@ public class UserController {
         return new ResponseEntity<>(createdUser, HttpStatus.CREATED);
     }
 
+    /**
+     * Create users in bulk.
+     *
+     * @param userDTOs The user data transfer objects.
+     * @return ResponseEntity containing the created IDs and the rejected items.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResultDTO> createUsers(@RequestBody List<UserDTO> userDTOs) {
+        BatchResultDTO result = userService.createUsers(userDTOs);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
     /**
      * Get a paginated list of users.
      *
@@ -45,29 +70,111 @@ public class UserController {
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    /**
+     * Get the number of users, read from the maintained user counter.
+     *
+     * @return ResponseEntity containing the number of users.
+     */
+    @GetMapping("/count")
+    public ResponseEntity<Long> countUsers() {
+        long count = userService.countUsers();
+        return new ResponseEntity<>(count, HttpStatus.OK);
+    }
+
+    /**
+     * Get a slice of users, without a total count, when {@code count=false} is requested.
+     * The response only tells whether there is a next page, which saves the count query.
+     *
+     * @param pageable The pagination information.
+     * @return ResponseEntity containing a slice of users.
+     */
+    @GetMapping(params = {"count=false", "!after"})
+    public ResponseEntity<SliceDTO<UserDTO>> listUserSlice(@PageableDefault(size = 10) Pageable pageable) {
+        SliceDTO<UserDTO> users = userService.listUserSlice(pageable);
+        return new ResponseEntity<>(users, HttpStatus.OK);
+    }
+
+    /**
+     * Get a page of users using keyset pagination, without a total count.
+     *
+     * @param after The cursor returned by the previous page, empty for the first page.
+     * @param size  The maximum number of users to return.
+     * @param sort  The sort key, either "id" or "name".
+     * @return ResponseEntity containing a cursor page of users.
+     */
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorPageDTO<UserDTO>> listUsersByCursor(
+            @RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sort
+    ) {
+        CursorPageDTO<UserDTO> users = userService.listUsers(after, size, sort);
+        return new ResponseEntity<>(users, HttpStatus.OK);
+    }
+
+    /**
+     * Export all users as newline-delimited JSON, one user per line, ordered by ID.
+     * The response is streamed while the users are read, so its size is not limited by memory.
+     *
+     * @return ResponseEntity streaming every user.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = Ndjson.body(objectMapper, userService::exportUsers);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     /**
      * Get a user by their ID.
+     * The response carries the user's version as a strong ETag. When If-None-Match is sent,
+     * only the version is looked up and 304 is returned if the client's copy is current.
      *
-     * @param id The ID of the user.
-     * @return ResponseEntity containing the user with the given ID.
+     * @param id          The ID of the user.
+     * @param ifNoneMatch The ETags of the client's cached copies, if any.
+     * @return ResponseEntity containing the user with the given ID, or 304 if it has not changed.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserDTO> getUserById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        if (ifNoneMatch != null) {
+            String etag = ETags.of(userService.getUserVersion(id));
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ETags.notModified(etag);
+            }
+        }
         UserDTO user = userService.getUserById(id);
-        return new ResponseEntity<>(user, HttpStatus.OK);
+        return ETags.ok(user, user.getVersion());
     }
 
     /**
      * Update a user.
+     * With an If-Match ETag, the update only applies if the user still has that version,
+     * otherwise 412 is returned.
      *
      * @param id       The ID of the user to update.
      * @param userDTO  The updated user data transfer object.
+     * @param ifMatch  The ETag the client last read, if any.
      * @return ResponseEntity containing the updated user.
      */
     @PutMapping("/{id}")
-    public ResponseEntity<UserDTO> updateUser(@PathVariable Long id, @RequestBody UserDTO userDTO) {
-        UserDTO updatedUser = userService.updateUser(id, userDTO);
-        return new ResponseEntity<>(updatedUser, HttpStatus.OK);
+    public ResponseEntity<UserDTO> updateUser(
+            @PathVariable Long id,
+            @RequestBody UserDTO userDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        UserDTO updatedUser;
+        if (ETags.isUnconditional(ifMatch)) {
+            updatedUser = userService.updateUser(id, userDTO);
+        } else {
+            Long version = ETags.version(ifMatch);
+            if (version == null) {
+                return ETags.preconditionFailed();
+            }
+            updatedUser = userService.updateUser(id, userDTO, version);
+        }
+        return ETags.ok(updatedUser, updatedUser.getVersion());
     }
 
     /**
@@ -100,6 +207,24 @@ public class UserController {
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    /**
+     * Search for users by name or email, without a total count, when {@code count=false} is requested.
+     *
+     * @param name     The name to search for.
+     * @param email    The email to search for.
+     * @param pageable The pagination information.
+     * @return ResponseEntity containing a slice of users matching the search criteria.
+     */
+    @GetMapping(value = "/search", params = "count=false")
+    public ResponseEntity<SliceDTO<UserDTO>> searchUserSlice(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @PageableDefault(size = 10) Pageable pageable
+    ) {
+        SliceDTO<UserDTO> users = userService.searchUserSlice(name, email, pageable);
+        return new ResponseEntity<>(users, HttpStatus.OK);
+    }
+
     /**
      * Assign a user to a project.
      *
@@ -125,4 +250,23 @@ public class UserController {
         userService.removeUserFromProject(userId, projectId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
+
+    /**
+     * Get the users that share the most projects with a user, to suggest teammates.
+     * The cached top collaborators are cut to the limit, so any limit is served from the same entry.
+     *
+     * @param id    The ID of the user.
+     * @param limit The maximum number of collaborators to return, at most {@link UserService#MAX_COLLABORATORS}.
+     * @return ResponseEntity containing the collaborators, most shared projects first.
+     * @throws BadRequestException if the limit is out of bounds.
+     */
+    @GetMapping("/{id}/collaborators")
+    public ResponseEntity<List<CollaboratorDTO>> getCollaborators(@PathVariable Long id,
+                                                                  @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > UserService.MAX_COLLABORATORS) {
+            throw new BadRequestException("Limit must be between 1 and " + UserService.MAX_COLLABORATORS);
+        }
+        List<CollaboratorDTO> collaborators = userService.getCollaborators(id);
+        return ResponseEntity.ok(collaborators.subList(0, Math.min(limit, collaborators.size())));
+    }
 }
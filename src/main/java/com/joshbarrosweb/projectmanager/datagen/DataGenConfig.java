@@ -0,0 +1,37 @@
+package com.joshbarrosweb.projectmanager.datagen;
+
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import com.joshbarrosweb.projectmanager.services.SearchService;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+
+/**
+ * Generates the synthetic data set on startup when the "datagen" profile is active.
+ * The profile runs without a web server, so the application exits once the data is loaded.
+ * The generator writes past the services, so the row counters are recomputed and the search index rebuilt afterwards.
+ */
+@Configuration
+@Profile("datagen")
+@EnableConfigurationProperties(DataGenProperties.class)
+public class DataGenConfig {
+
+    @Bean
+    public SyntheticDataGenerator syntheticDataGenerator(DataSource dataSource, DataGenProperties properties) {
+        return new SyntheticDataGenerator(dataSource, properties);
+    }
+
+    @Bean
+    public ApplicationRunner syntheticDataRunner(SyntheticDataGenerator generator, CounterService counterService,
+                                                 SearchService searchService) {
+        return args -> {
+            generator.generate();
+            counterService.reconcile();
+            searchService.rebuild();
+        };
+    }
+}
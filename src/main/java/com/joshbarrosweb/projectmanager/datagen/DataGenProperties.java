@@ -0,0 +1,67 @@
+package com.joshbarrosweb.projectmanager.datagen;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Size and shape of the synthetic data set, bound from the {@code datagen.*} properties.
+ */
+@ConfigurationProperties(prefix = "datagen")
+public class DataGenProperties {
+
+    private int users = 100000;               // Number of users to add
+    private int projects = 10000;             // Number of projects to add
+    private int membershipsPerUser = 5;       // Mean number of projects per user
+    private double zipfExponent = 1.0;        // Skew of project popularity, 0 for uniform
+    private long seed = 42;                   // Same seed and sizes, same data set
+    private int batchSize = 10000;            // Rows per JDBC batch when COPY is not available
+
+    // getters and setters
+
+    public int getUsers() {
+        return users;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public int getProjects() {
+        return projects;
+    }
+
+    public void setProjects(int projects) {
+        this.projects = projects;
+    }
+
+    public int getMembershipsPerUser() {
+        return membershipsPerUser;
+    }
+
+    public void setMembershipsPerUser(int membershipsPerUser) {
+        this.membershipsPerUser = membershipsPerUser;
+    }
+
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    public void setZipfExponent(double zipfExponent) {
+        this.zipfExponent = zipfExponent;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
@@ -0,0 +1,119 @@
+package com.joshbarrosweb.projectmanager.datagen;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+
+/**
+ * Loads rows into one table as fast as the database allows: a single streamed
+ * {@code COPY ... FROM STDIN} on PostgreSQL, JDBC batches elsewhere.
+ */
+abstract class RowWriter implements AutoCloseable {
+
+    abstract void write(Object... values) throws SQLException;
+
+    @Override
+    public abstract void close() throws SQLException;
+
+    static RowWriter open(Connection connection, String table, String[] columns, int batchSize) throws SQLException {
+        if (connection.isWrapperFor(PGConnection.class)) {
+            return new Copy(connection.unwrap(PGConnection.class), table, columns);
+        }
+        return new Batch(connection, table, columns, batchSize);
+    }
+
+    /**
+     * Streams CSV rows to a COPY command, so the rows are never held in memory and no
+     * statement is parsed or planned per row.
+     */
+    private static final class Copy extends RowWriter {
+
+        private final Writer out;
+
+        Copy(PGConnection connection, String table, String[] columns) throws SQLException {
+            String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+            this.out = new BufferedWriter(new OutputStreamWriter(
+                    new PGCopyOutputStream(connection, sql, 1 << 16), StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        @Override
+        void write(Object... values) {
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    if (values[i] instanceof String) {
+                        out.write('"');
+                        out.write(((String) values[i]).replace("\"", "\"\""));
+                        out.write('"');
+                    } else {
+                        out.write(String.valueOf(values[i]));
+                    }
+                }
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Adds rows to a prepared INSERT and executes it every {@code batchSize} rows.
+     */
+    private static final class Batch extends RowWriter {
+
+        private final PreparedStatement statement;
+        private final int batchSize;
+        private int pending;
+
+        Batch(Connection connection, String table, String[] columns, int batchSize) throws SQLException {
+            String placeholders = String.join(", ", Collections.nCopies(columns.length, "?"));
+            this.statement = connection.prepareStatement(
+                    "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")");
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        void write(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+            statement.addBatch();
+            if (++pending == batchSize) {
+                statement.executeBatch();
+                pending = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+            } finally {
+                statement.close();
+            }
+        }
+    }
+}
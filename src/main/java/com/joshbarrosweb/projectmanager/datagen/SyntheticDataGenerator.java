@@ -0,0 +1,170 @@
+package com.joshbarrosweb.projectmanager.datagen;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills the users, projects and project_user tables with a synthetic data set.
+ *
+ * Rows are appended after the highest existing IDs, with explicit IDs so that no sequence call is
+ * made per row; the ID sequences are moved past the new rows afterwards. Each user joins between 0
+ * and twice {@code membershipsPerUser} distinct projects, picked with Zipfian popularity so that a
+ * few projects have most of the members, as in real data. With the same seed and sizes the
+ * generated names, emails and memberships are the same on every run against an empty database.
+ */
+public class SyntheticDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final int ID_ALLOCATION_SIZE = 50; // allocationSize of the entities' @SequenceGenerator
+    private static final String PASSWORD = "password";
+
+    private static final String[] USER_COLUMNS = {"id", "name", "email", "password", "version"};
+    private static final String[] PROJECT_COLUMNS = {"id", "name", "description", "version", "member_count"};
+    private static final String[] MEMBERSHIP_COLUMNS = {"user_id", "project_id"};
+
+    private final DataSource dataSource;
+    private final DataGenProperties properties;
+
+    public SyntheticDataGenerator(DataSource dataSource, DataGenProperties properties) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+    }
+
+    /**
+     * Generates the data set.
+     *
+     * @return The number of memberships created.
+     * @throws SQLException if loading the rows fails.
+     */
+    public long generate() throws SQLException {
+        int users = properties.getUsers();
+        int projects = properties.getProjects();
+        if (users < 0 || projects < 0 || properties.getMembershipsPerUser() < 0 || properties.getBatchSize() < 1) {
+            throw new IllegalArgumentException("Sizes must not be negative and the batch size must be positive");
+        }
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(properties.getSeed());
+
+        try (Connection connection = dataSource.getConnection()) {
+            long firstProjectId = maxId(connection, "projects") + 1;
+            long firstUserId = maxId(connection, "users") + 1;
+
+            try (RowWriter writer = RowWriter.open(connection, "projects", PROJECT_COLUMNS, properties.getBatchSize())) {
+                for (int i = 0; i < projects; i++) {
+                    writer.write(firstProjectId + i, "Project " + i, "Synthetic project " + i, 0L, 0L);
+                }
+            }
+            try (RowWriter writer = RowWriter.open(connection, "users", USER_COLUMNS, properties.getBatchSize())) {
+                for (int i = 0; i < users; i++) {
+                    writer.write(firstUserId + i, "User " + i, email(firstUserId + i), PASSWORD, 0L);
+                }
+            }
+
+            long memberships = 0;
+            long[] memberCounts = new long[projects];
+            if (projects > 0 && properties.getMembershipsPerUser() > 0) {
+                ZipfSampler popularity = new ZipfSampler(projects, properties.getZipfExponent());
+                int maxPerUser = Math.min(2 * properties.getMembershipsPerUser(), projects);
+                int[] picked = new int[maxPerUser];
+                try (RowWriter writer = RowWriter.open(connection, "project_user", MEMBERSHIP_COLUMNS, properties.getBatchSize())) {
+                    for (int i = 0; i < users; i++) {
+                        int count = random.nextInt(maxPerUser + 1);
+                        popularity.sampleDistinct(random, picked, count);
+                        for (int n = 0; n < count; n++) {
+                            memberCounts[picked[n]]++;
+                            writer.write(firstUserId + i, firstProjectId + picked[n]);
+                        }
+                        memberships += count;
+                    }
+                }
+                writeMemberCounts(connection, firstProjectId, memberCounts);
+            }
+
+            boolean postgres = connection.isWrapperFor(PGConnection.class);
+            moveSequence(connection, postgres, "projects_id_seq", firstProjectId + projects - 1);
+            moveSequence(connection, postgres, "users_id_seq", firstUserId + users - 1);
+
+            log.info("Generated {} users, {} projects and {} memberships in {} ms", users, projects, memberships,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return memberships;
+        }
+    }
+
+    /**
+     * The email of the generated user with the given ID.
+     *
+     * @param id The ID of the user.
+     * @return The user's email.
+     */
+    public static String email(long id) {
+        return "user" + id + "@datagen.test";
+    }
+
+    /**
+     * Sets the member counts of the generated projects, in JDBC batches, skipping projects without members.
+     */
+    private void writeMemberCounts(Connection connection, long firstProjectId, long[] memberCounts) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE projects SET member_count = ? WHERE id = ?")) {
+            int pending = 0;
+            for (int rank = 0; rank < memberCounts.length; rank++) {
+                if (memberCounts[rank] == 0) {
+                    continue;
+                }
+                statement.setLong(1, memberCounts[rank]);
+                statement.setLong(2, firstProjectId + rank);
+                statement.addBatch();
+                if (++pending == properties.getBatchSize()) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private static long maxId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Moves a sequence so that the next block of IDs Hibernate allocates starts right after the last generated ID.
+     * Sequences are only ever moved forward.
+     */
+    private static void moveSequence(Connection connection, boolean postgres, String sequence, long lastId) throws SQLException {
+        if (postgres) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT setval(?, GREATEST(?, (SELECT last_value FROM " + sequence + ")))")) {
+                statement.setString(1, sequence);
+                statement.setLong(2, lastId);
+                statement.execute();
+            }
+        } else {
+            long current;
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT NEXT VALUE FOR " + sequence)) {
+                resultSet.next();
+                current = resultSet.getLong(1);
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + Math.max(current, lastId + ID_ALLOCATION_SIZE));
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.joshbarrosweb.projectmanager.datagen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws distinct ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent,
+ * without replacement, from a Fenwick tree over the weights (17 bytes per rank).
+ *
+ * A drawn rank's weight is taken out of the tree until the draw is complete, so every pick costs
+ * O(log n) however skewed the distribution is, even when almost all ranks are drawn.
+ */
+final class ZipfSampler {
+
+    private final double[] weights;
+    private final double[] tree;
+    private final boolean[] drawn;
+    private final int highestStep;
+
+    ZipfSampler(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        weights = new double[n];
+        tree = new double[n + 1];
+        drawn = new boolean[n];
+        for (int rank = 0; rank < n; rank++) {
+            weights[rank] = 1.0 / Math.pow(rank + 1, exponent);
+            tree[rank + 1] += weights[rank];
+            int parent = rank + 1 + ((rank + 1) & -(rank + 1));
+            if (parent <= n) {
+                tree[parent] += tree[rank + 1];
+            }
+        }
+        highestStep = Integer.highestOneBit(n);
+    }
+
+    /**
+     * Fills the start of an array with distinct ranks, in the order they were drawn.
+     *
+     * @param random The source of randomness.
+     * @param ranks  The array to fill.
+     * @param count  The number of ranks to draw, at most n and the length of the array.
+     */
+    void sampleDistinct(SplittableRandom random, int[] ranks, int count) {
+        for (int n = 0; n < count; ) {
+            int rank = find(random.nextDouble() * total());
+            // Rounding in the tree may leave a drawn rank a tiny weight; drawing it again is simply retried.
+            if (!drawn[rank]) {
+                drawn[rank] = true;
+                ranks[n++] = rank;
+                add(rank, -weights[rank]);
+            }
+        }
+        for (int n = 0; n < count; n++) {
+            drawn[ranks[n]] = false;
+            add(ranks[n], weights[ranks[n]]);
+        }
+    }
+
+    /**
+     * The smallest rank whose cumulative weight exceeds the target.
+     */
+    private int find(double target) {
+        int position = 0;
+        for (int step = highestStep; step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] <= target) {
+                position = next;
+                target -= tree[next];
+            }
+        }
+        return Math.min(position, weights.length - 1);
+    }
+
+    private double total() {
+        double sum = 0;
+        for (int index = weights.length; index > 0; index -= index & -index) {
+            sum += tree[index];
+        }
+        return sum;
+    }
+
+    private void add(int rank, double delta) {
+        for (int index = rank + 1; index < tree.length; index += index & -index) {
+            tree[index] += delta;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.joshbarrosweb.projectmanager.dtos;
+
+public class BatchErrorDTO {
+
+    private long index;  // Position of the rejected item in the request, or row number of an import
+    private String message;
+
+    public BatchErrorDTO() {}
+
+    public BatchErrorDTO(long index, String message) {
+        this.index = index;
+        this.message = message;
+    }
+
+    // getters and setters
+    public long getIndex() {
+        return index;
+    }
+
+    public void setIndex(long index) {
+        this.index = index;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,33 @@
+package com.joshbarrosweb.projectmanager.dtos;
+
+import java.util.List;
+
+public class BatchResultDTO {
+
+    private List<Long> createdIds;  // Same order as the request, null for rejected items
+    private List<BatchErrorDTO> errors;
+
+    public BatchResultDTO() {}
+
+    public BatchResultDTO(List<Long> createdIds, List<BatchErrorDTO> errors) {
+        this.createdIds = createdIds;
+        this.errors = errors;
+    }
+
+    // getters and setters
+    public List<Long> getCreatedIds() {
+        return createdIds;
+    }
+
+    public void setCreatedIds(List<Long> createdIds) {
+        this.createdIds = createdIds;
+    }
+
+    public List<BatchErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<BatchErrorDTO> errors) {
+        this.errors = errors;
+    }
+}
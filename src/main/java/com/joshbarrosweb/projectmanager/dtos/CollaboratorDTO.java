@@ -0,0 +1,51 @@
+package com.joshbarrosweb.projectmanager.dtos;
+
+public class CollaboratorDTO {
+
+    private Long id;
+    private String name;
+    private String email;
+    private long sharedProjects;  // Projects both users are members of
+
+    public CollaboratorDTO() {}
+
+    public CollaboratorDTO(Long id, String name, String email, long sharedProjects) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.sharedProjects = sharedProjects;
+    }
+
+    // getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public long getSharedProjects() {
+        return sharedProjects;
+    }
+
+    public void setSharedProjects(long sharedProjects) {
+        this.sharedProjects = sharedProjects;
+    }
+}
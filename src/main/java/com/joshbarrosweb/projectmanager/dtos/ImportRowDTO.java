@@ -0,0 +1,60 @@
+package com.joshbarrosweb.projectmanager.dtos;
+
+public class ImportRowDTO {
+
+    private String type;  // "user", "project" or "membership"
+    private String name;
+    private String email;  // For a membership, the email of the member
+    private String password;
+    private String description;
+    private String project;  // For a membership, the name of the project
+
+    // getters and setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public void setProject(String project) {
+        this.project = project;
+    }
+}
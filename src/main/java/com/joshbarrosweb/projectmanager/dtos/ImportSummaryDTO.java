@@ -0,0 +1,98 @@
+package com.joshbarrosweb.projectmanager.dtos;
+
+import java.util.List;
+
+public class ImportSummaryDTO {
+
+    private long rows;
+    private long committedRows;  // The rows up to the last committed batch, all of them unless the import failed
+    private String failure;  // Why the import stopped early, or null when it completed
+    private long usersCreated;
+    private long projectsCreated;
+    private long membershipsCreated;
+    private long rejected;
+    private List<BatchErrorDTO> errors;  // The first rejected rows, with their row number as index
+    private long elapsedMillis;
+    private double rowsPerSecond;
+
+    // getters and setters
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public long getCommittedRows() {
+        return committedRows;
+    }
+
+    public void setCommittedRows(long committedRows) {
+        this.committedRows = committedRows;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+
+    public long getUsersCreated() {
+        return usersCreated;
+    }
+
+    public void setUsersCreated(long usersCreated) {
+        this.usersCreated = usersCreated;
+    }
+
+    public long getProjectsCreated() {
+        return projectsCreated;
+    }
+
+    public void setProjectsCreated(long projectsCreated) {
+        this.projectsCreated = projectsCreated;
+    }
+
+    public long getMembershipsCreated() {
+        return membershipsCreated;
+    }
+
+    public void setMembershipsCreated(long membershipsCreated) {
+        this.membershipsCreated = membershipsCreated;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<BatchErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<BatchErrorDTO> errors) {
+        this.errors = errors;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+}
@@ -0,0 +1,51 @@
+package com.joshbarrosweb.projectmanager.dtos;
+
+public class MemberDTO {
+
+    private Long id;
+    private String name;
+    private String email;
+    private Long version;  // The user's version, without its project IDs
+
+    public MemberDTO() {}
+
+    public MemberDTO(Long id, String name, String email, Long version) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.version = version;
+    }
+
+    // getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,31 @@
+package com.joshbarrosweb.projectmanager.dtos;
+
+public class MembershipResultDTO {
+
+    private int requested;  // Distinct user IDs in the request
+    private int affected;   // Memberships actually created or removed
+
+    public MembershipResultDTO() {}
+
+    public MembershipResultDTO(int requested, int affected) {
+        this.requested = requested;
+        this.affected = affected;
+    }
+
+    // getters and setters
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    public int getAffected() {
+        return affected;
+    }
+
+    public void setAffected(int affected) {
+        this.affected = affected;
+    }
+}
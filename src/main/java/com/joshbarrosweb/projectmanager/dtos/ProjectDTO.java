@@ -1,13 +1,17 @@
 package com.joshbarrosweb.projectmanager.dtos;
 
+import javax.validation.constraints.NotBlank;
 import java.util.Set;
 
 public class ProjectDTO {
 
     private Long id;
+    @NotBlank
     private String name;
     private String description;
     private Set<Long> userIds;  // Only IDs are sent, not full User objects
+    private Long version;  // Changes on every update, used as the ETag
+    private Long memberCount;  // Maintained by membership changes, ignored on writes
 
     // getters and setters
     public Long getId() {
@@ -41,4 +45,20 @@ public class ProjectDTO {
     public void setUserIds(Set<Long> userIds) {
         this.userIds = userIds;
     }
-}
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getMemberCount() {
+        return memberCount;
+    }
+
+    public void setMemberCount(Long memberCount) {
+        this.memberCount = memberCount;
+    }
+}
@@ -0,0 +1,71 @@
+package com.joshbarrosweb.projectmanager.dtos;
+
+public class SearchHitDTO {
+
+    private String type;  // Either "project" or "user"
+    private Long id;
+    private String name;
+    private String description;  // Only set for projects
+    private String email;  // Only set for users
+    private float score;  // Relevance of the hit, higher is better
+
+    public SearchHitDTO() {}
+
+    public SearchHitDTO(String type, Long id, String name, String description, String email, float score) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.email = email;
+        this.score = score;
+    }
+
+    // getters and setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public void setScore(float score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,41 @@
+package com.joshbarrosweb.projectmanager.dtos;
+
+public class SuggestionDTO {
+
+    private Long id;
+    private String name;
+    private String email;  // Only set for users
+
+    public SuggestionDTO() {}
+
+    public SuggestionDTO(Long id, String name, String email) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+    }
+
+    // getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+}
@@ -1,14 +1,21 @@
 package com.joshbarrosweb.projectmanager.dtos;
 
+import javax.validation.constraints.Email;
+import javax.validation.constraints.NotBlank;
 import java.util.Set;
 
 public class UserDTO {
 
     private Long id;
+    @NotBlank
     private String name;
+    @NotBlank
+    @Email
     private String email;
+    @NotBlank
     private String password;
     private Set<Long> projectIds;  // Only IDs are sent, not full Project objects
+    private Long version;  // Changes on every update, used as the ETag
 
     // getters and setters
     public Long getId() {
@@ -50,5 +57,12 @@ public class UserDTO {
     public void setProjectIds(Set<Long> projectIds) {
         this.projectIds = projectIds;
     }
-}
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
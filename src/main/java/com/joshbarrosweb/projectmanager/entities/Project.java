@@ -5,11 +5,15 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "projects")
+@Table(name = "projects", indexes = {
+        @Index(name = "idx_projects_name_id", columnList = "name, id"),
+        @Index(name = "idx_projects_member_count_id", columnList = "member_count, id")
+})
 public class Project {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "projects_id_seq")
+    @SequenceGenerator(name = "projects_id_seq", sequenceName = "projects_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -18,7 +22,14 @@ public class Project {
     @Column
     private String description;
 
-    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, mappedBy = "projects")
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "member_count", nullable = false)
+    private Long memberCount = 0L;
+
+    @ManyToMany(fetch = FetchType.LAZY, mappedBy = "projects")
     private Set<User> users;
 
     public Project() {}
@@ -63,6 +74,22 @@ public class Project {
         this.users = users;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getMemberCount() {
+        return memberCount;
+    }
+
+    public void setMemberCount(Long memberCount) {
+        this.memberCount = memberCount;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
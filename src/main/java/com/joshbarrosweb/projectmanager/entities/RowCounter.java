@@ -0,0 +1,116 @@
+package com.joshbarrosweb.projectmanager.entities;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * One stripe of a maintained row count. A counter is the sum of its stripes, so concurrent
+ * writers can each increment a different row instead of queueing on a single one.
+ * Counters that are not scoped to a row, such as the number of projects, use scope 0.
+ */
+@Entity
+@Table(name = "row_counters")
+@IdClass(RowCounter.Key.class)
+public class RowCounter {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Id
+    @Column(name = "scope_id")
+    private Long scopeId;
+
+    @Id
+    private Integer stripe;
+
+    @Column(nullable = false)
+    private Long amount;
+
+    public RowCounter() {}
+
+    public RowCounter(String name, Long scopeId, Integer stripe, Long amount) {
+        this.name = name;
+        this.scopeId = scopeId;
+        this.stripe = stripe;
+        this.amount = amount;
+    }
+
+    // getters and setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getScopeId() {
+        return scopeId;
+    }
+
+    public void setScopeId(Long scopeId) {
+        this.scopeId = scopeId;
+    }
+
+    public Integer getStripe() {
+        return stripe;
+    }
+
+    public void setStripe(Integer stripe) {
+        this.stripe = stripe;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RowCounter that = (RowCounter) o;
+        return Objects.equals(name, that.name) && Objects.equals(scopeId, that.scopeId) && Objects.equals(stripe, that.stripe);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, scopeId, stripe);
+    }
+
+    /**
+     * The composite primary key of a counter stripe.
+     */
+    public static class Key implements Serializable {
+
+        private String name;
+        private Long scopeId;
+        private Integer stripe;
+
+        public Key() {}
+
+        public Key(String name, Long scopeId, Integer stripe) {
+            this.name = name;
+            this.scopeId = scopeId;
+            this.stripe = stripe;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(name, key.name) && Objects.equals(scopeId, key.scopeId) && Objects.equals(stripe, key.stripe);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, scopeId, stripe);
+        }
+    }
+}
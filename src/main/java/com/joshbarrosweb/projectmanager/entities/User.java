@@ -5,11 +5,12 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_name_id", columnList = "name, id"))
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -21,10 +22,15 @@ public class User {
     @Column(nullable = false)
     private String password;
 
-    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "project_user",
             joinColumns = @JoinColumn(name = "user_id"),
-            inverseJoinColumns = @JoinColumn(name = "project_id"))
+            inverseJoinColumns = @JoinColumn(name = "project_id"),
+            indexes = @Index(name = "idx_project_user_project_id_user_id", columnList = "project_id, user_id"))
     private Set<Project> projects;
 
     public User() {}
@@ -78,6 +84,14 @@ public class User {
         this.projects = projects;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
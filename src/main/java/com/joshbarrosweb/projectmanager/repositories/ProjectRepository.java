@@ -1,32 +1,334 @@
 package com.joshbarrosweb.projectmanager.repositories;
 
+import com.joshbarrosweb.projectmanager.dtos.MemberDTO;
 import com.joshbarrosweb.projectmanager.entities.Project;
-import com.joshbarrosweb.projectmanager.entities.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface ProjectRepository extends JpaRepository<Project, Long> {
 
     /**
-     * Find projects by name containing a given keyword.
+     * Find projects by name containing a given keyword, ignoring case.
+     * The query compares {@code UPPER(name)}, which the trigram index of V8 covers on PostgreSQL.
      *
      * @param name     The keyword to search for in project names.
      * @param pageable The pagination information.
      * @return A page of projects matching the search criteria.
      */
-    Page<Project> findByNameContaining(String name, Pageable pageable);
+    Page<Project> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
     /**
-     * Get the users assigned to a project.
+     * Find projects by name containing a given keyword, ignoring case, without a count query.
+     * One extra row is fetched to tell whether there is a next slice.
+     *
+     * @param name     The keyword to search for in project names.
+     * @param pageable The pagination information.
+     * @return A slice of projects matching the search criteria.
+     */
+    Slice<Project> findSliceByNameContainingIgnoreCase(String name, Pageable pageable);
+
+    /**
+     * Get a slice of projects, without a count query.
+     * One extra row is fetched to tell whether there is a next slice.
+     *
+     * @param pageable The pagination information.
+     * @return A slice of projects.
+     */
+    Slice<Project> findAllBy(Pageable pageable);
+
+    /**
+     * Get the first projects ordered by ID, without a count query.
+     *
+     * @param pageable The limit to apply.
+     * @return The first projects ordered by ID.
+     */
+    List<Project> findAllByOrderByIdAsc(Pageable pageable);
+
+    /**
+     * Get the projects following a given ID, without a count query.
+     *
+     * @param id       The ID of the last project of the previous page.
+     * @param pageable The limit to apply.
+     * @return The projects with an ID greater than the given one, ordered by ID.
+     */
+    List<Project> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Get the first projects ordered by name and ID, without a count query.
+     *
+     * @param pageable The limit to apply.
+     * @return The first projects ordered by name and ID.
+     */
+    List<Project> findAllByOrderByNameAscIdAsc(Pageable pageable);
+
+    /**
+     * Get the projects following a given (name, ID) position, without a count query.
+     *
+     * @param name     The name of the last project of the previous page.
+     * @param id       The ID of the last project of the previous page.
+     * @param pageable The limit to apply.
+     * @return The projects after the given position, ordered by name and ID.
+     */
+    @Query("SELECT p FROM Project p WHERE p.name >= :name AND (p.name > :name OR p.id > :id) ORDER BY p.name ASC, p.id ASC")
+    List<Project> findAfterName(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Get a page of the members of a project, selecting only the columns of {@link MemberDTO},
+     * so no user entity is loaded into the persistence context and no project collection is touched.
+     *
+     * @param projectId The ID of the project.
+     * @param pageable  The offset, limit and sort to apply.
+     * @return The members of the page.
+     */
+    @Query("SELECT new com.joshbarrosweb.projectmanager.dtos.MemberDTO(u.id, u.name, u.email, u.version) "
+            + "FROM User u JOIN u.projects p WHERE p.id = :projectId")
+    List<MemberDTO> findMembersByProjectId(@Param("projectId") Long projectId, Pageable pageable);
+
+    /**
+     * Get a slice of the members of a project, without a count query.
+     * One extra row is fetched to tell whether there is a next slice.
+     *
+     * @param projectId The ID of the project.
+     * @param pageable  The pagination information.
+     * @return A slice of the project's members.
+     */
+    @Query("SELECT new com.joshbarrosweb.projectmanager.dtos.MemberDTO(u.id, u.name, u.email, u.version) "
+            + "FROM User u JOIN u.projects p WHERE p.id = :projectId")
+    Slice<MemberDTO> findMemberSliceByProjectId(@Param("projectId") Long projectId, Pageable pageable);
+
+    /**
+     * Get the members of a project following a given user ID, seeking on the (project_id, user_id) index.
+     *
+     * @param projectId The ID of the project.
+     * @param afterId   The ID of the last member of the previous page, 0 for the first page.
+     * @param pageable  The limit to apply.
+     * @return The members with an ID greater than the given one, ordered by ID.
+     */
+    @Query("SELECT new com.joshbarrosweb.projectmanager.dtos.MemberDTO(u.id, u.name, u.email, u.version) "
+            + "FROM User u JOIN u.projects p WHERE p.id = :projectId AND u.id > :afterId ORDER BY u.id")
+    List<MemberDTO> findMembersAfter(@Param("projectId") Long projectId, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Stream the members of a project ordered by ID, fetching rows from the database in blocks of 1000.
+     * Must be consumed, and closed, inside a transaction.
+     *
+     * @param projectId The ID of the project.
+     * @return A forward-only stream of the project's members.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.joshbarrosweb.projectmanager.dtos.MemberDTO(u.id, u.name, u.email, u.version) "
+            + "FROM User u JOIN u.projects p WHERE p.id = :projectId ORDER BY u.id")
+    Stream<MemberDTO> streamMembersByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * Get the IDs of the users assigned to a project.
+     *
+     * @param projectId The ID of the project.
+     * @return The IDs of the users assigned to the project.
+     */
+    @Query("SELECT u.id FROM User u JOIN u.projects p WHERE p.id = :projectId")
+    List<Long> findUserIdsByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * Get which of the given users are assigned to a project.
+     *
+     * @param projectId The ID of the project.
+     * @param userIds   The IDs of the users to check, must not be empty.
+     * @return The IDs of the given users that are assigned to the project.
+     */
+    @Query("SELECT u.id FROM User u JOIN u.projects p WHERE p.id = :projectId AND u.id IN :userIds")
+    List<Long> findUserIdsByProjectIdAndUserIds(@Param("projectId") Long projectId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Assign users to a project with a single statement on the join table.
+     * Unknown user IDs and existing memberships are skipped, so the call can be retried safely.
+     *
+     * @param projectId The ID of the project.
+     * @param userIds   The IDs of the users to assign, must not be empty.
+     * @return The number of memberships created.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO project_user (user_id, project_id) "
+            + "SELECT u.id, CAST(:projectId AS BIGINT) FROM users u WHERE u.id IN (:userIds) "
+            + "AND NOT EXISTS (SELECT 1 FROM project_user pu WHERE pu.user_id = u.id AND pu.project_id = :projectId)",
+            nativeQuery = true)
+    int insertMemberships(@Param("projectId") Long projectId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Remove users from a project with a single statement on the join table.
+     *
+     * @param projectId The ID of the project.
+     * @param userIds   The IDs of the users to remove, must not be empty.
+     * @return The number of memberships removed.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM project_user WHERE project_id = :projectId AND user_id IN (:userIds)", nativeQuery = true)
+    int deleteMemberships(@Param("projectId") Long projectId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Remove all users from a project, before the project itself is deleted.
+     *
+     * @param projectId The ID of the project.
+     * @return The number of memberships removed.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM project_user WHERE project_id = :projectId", nativeQuery = true)
+    int deleteAllMemberships(@Param("projectId") Long projectId);
+
+    /**
+     * Get the user IDs of several projects at once, reading only the join table.
+     *
+     * @param projectIds The IDs of the projects.
+     * @return The user IDs keyed by project ID; projects without users are absent.
+     */
+    default Map<Long, Set<Long>> findUserIdsByProjectIds(Collection<Long> projectIds) {
+        Map<Long, Set<Long>> userIds = new HashMap<>();
+        if (projectIds.isEmpty()) {
+            return userIds;
+        }
+        for (Object[] row : findMembershipRowsByProjectIds(projectIds)) {
+            userIds.computeIfAbsent(((Number) row[0]).longValue(), id -> new HashSet<>())
+                    .add(((Number) row[1]).longValue());
+        }
+        return userIds;
+    }
+
+    /**
+     * Get the (project ID, user ID) rows of the join table for several projects.
+     *
+     * @param projectIds The IDs of the projects, must not be empty.
+     * @return The membership rows of the projects.
+     */
+    @Query(value = "SELECT project_id, user_id FROM project_user WHERE project_id IN (:projectIds)", nativeQuery = true)
+    List<Object[]> findMembershipRowsByProjectIds(@Param("projectIds") Collection<Long> projectIds);
+
+    /**
+     * Stream all projects ordered by ID, fetching rows from the database in blocks of 1000.
+     * Must be consumed, and closed, inside a transaction.
+     *
+     * @return A forward-only stream of all projects.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT p FROM Project p ORDER BY p.id")
+    Stream<Project> streamAllByOrderByIdAsc();
+
+    /**
+     * Stream the (project ID, user ID) rows of the whole join table, fetching them in blocks of 1000.
+     * Must be consumed, and closed, inside a transaction.
+     *
+     * @return A forward-only stream of all memberships.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT project_id, user_id FROM project_user", nativeQuery = true)
+    Stream<Object[]> streamMembershipRows();
+
+    /**
+     * Get the ID of the oldest project with each of the given names.
+     *
+     * @param names The project names to look up, must not be empty.
+     * @return (name, ID) pairs for the names in use.
+     */
+    @Query("SELECT p.name, MIN(p.id) FROM Project p WHERE p.name IN :names GROUP BY p.name")
+    List<Object[]> findFirstIdsByNames(@Param("names") Collection<String> names);
+
+    /**
+     * Get the version of a project without loading it.
+     *
+     * @param id The ID of the project.
+     * @return The version of the project, or empty if it does not exist.
+     */
+    @Query("SELECT p.version FROM Project p WHERE p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Get the sum of the versions of a project's members, which changes whenever one of them changes.
      *
      * @param projectId The ID of the project.
-     * @return A list of users assigned to the project.
+     * @return The sum of the member versions, or 0 if the project has no members.
+     */
+    @Query("SELECT COALESCE(SUM(u.version), 0) FROM User u JOIN u.projects p WHERE p.id = :projectId")
+    long sumMemberVersions(@Param("projectId") Long projectId);
+
+    /**
+     * Update a project only if it still has the expected version, and increment the version.
+     *
+     * @param id          The ID of the project.
+     * @param name        The new name.
+     * @param description The new description.
+     * @param version     The version the client last read.
+     * @return 1 if the project was updated, 0 if it does not exist or has another version.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Project p SET p.name = :name, p.description = :description, p.version = p.version + 1 "
+            + "WHERE p.id = :id AND p.version = :version")
+    int updateIfVersion(@Param("id") Long id, @Param("name") String name,
+                        @Param("description") String description, @Param("version") Long version);
+
+    /**
+     * Add to the member counts of projects whose members changed, and increment their versions
+     * so their ETags change. Updating the row locks the project until the transaction ends.
+     *
+     * @param ids   The IDs of the projects, must not be empty.
+     * @param delta The number of members each project gained, negative if it lost members.
+     * @return The number of projects updated.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Project p SET p.version = p.version + 1, p.memberCount = p.memberCount + :delta WHERE p.id IN :ids")
+    int addMembers(@Param("ids") Collection<Long> ids, @Param("delta") Long delta);
+
+    /**
+     * Get the member count of a project without loading it.
+     *
+     * @param id The ID of the project.
+     * @return The number of members of the project, or empty if it does not exist.
+     */
+    @Query("SELECT p.memberCount FROM Project p WHERE p.id = :id")
+    Optional<Long> findMemberCountById(@Param("id") Long id);
+
+    /**
+     * Lock the next batch of projects in ID order, so their memberships cannot change
+     * until the transaction ends.
+     *
+     * @param afterId The ID to start after, 0 for the first batch.
+     * @param limit   The maximum number of projects to lock.
+     * @return The IDs of the locked projects, in ascending order.
+     */
+    @Query(value = "SELECT CAST(id AS BIGINT) FROM projects WHERE id > :afterId ORDER BY id FETCH FIRST :limit ROWS ONLY FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockIdsAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Recount the members of a range of projects and fix the member counts that drifted,
+     * incrementing the versions of the fixed projects.
+     *
+     * @param afterId The ID to start after.
+     * @param lastId  The last ID of the range.
+     * @return The number of projects whose member count was fixed.
      */
-    @Query("SELECT DISTINCT u FROM User u JOIN FETCH u.projects p WHERE p.id = :projectId")
-    List<User> getUsersByProjectId(@Param("projectId") Long projectId);
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE projects SET version = version + 1, "
+            + "member_count = (SELECT COUNT(*) FROM project_user pu WHERE pu.project_id = projects.id) "
+            + "WHERE id > :afterId AND id <= :lastId "
+            + "AND member_count <> (SELECT COUNT(*) FROM project_user pu WHERE pu.project_id = projects.id)",
+            nativeQuery = true)
+    int repairMemberCounts(@Param("afterId") Long afterId, @Param("lastId") Long lastId);
 }
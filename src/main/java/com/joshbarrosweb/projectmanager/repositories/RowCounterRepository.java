@@ -0,0 +1,101 @@
+package com.joshbarrosweb.projectmanager.repositories;
+
+import com.joshbarrosweb.projectmanager.entities.RowCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface RowCounterRepository extends JpaRepository<RowCounter, RowCounter.Key> {
+
+    /**
+     * Add a delta to one stripe of a counter.
+     *
+     * @param name    The name of the counter.
+     * @param scopeId The ID of the row the counter belongs to, or 0.
+     * @param stripe  The stripe to update.
+     * @param delta   The amount to add, negative to subtract.
+     * @return The number of stripes updated, 0 if the stripe does not exist yet.
+     */
+    @Modifying
+    @Query("UPDATE RowCounter c SET c.amount = c.amount + :delta "
+            + "WHERE c.name = :name AND c.scopeId = :scopeId AND c.stripe = :stripe")
+    int add(@Param("name") String name, @Param("scopeId") Long scopeId, @Param("stripe") Integer stripe,
+            @Param("delta") Long delta);
+
+    /**
+     * Create one stripe of a counter without loading it first.
+     *
+     * @param name    The name of the counter.
+     * @param scopeId The ID of the row the counter belongs to, or 0.
+     * @param stripe  The stripe to create.
+     * @param amount  The initial amount of the stripe.
+     * @return The number of stripes created.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO row_counters (name, scope_id, stripe, amount) VALUES (:name, :scopeId, :stripe, :amount)",
+            nativeQuery = true)
+    int insert(@Param("name") String name, @Param("scopeId") Long scopeId, @Param("stripe") Integer stripe,
+               @Param("amount") Long amount);
+
+    /**
+     * Get the value of a counter, the sum of its stripes.
+     *
+     * @param name    The name of the counter.
+     * @param scopeId The ID of the row the counter belongs to, or 0.
+     * @return The value of the counter, 0 if it has no stripes.
+     */
+    @Query("SELECT COALESCE(SUM(c.amount), 0) FROM RowCounter c WHERE c.name = :name AND c.scopeId = :scopeId")
+    long sum(@Param("name") String name, @Param("scopeId") Long scopeId);
+
+    /**
+     * Lock every stripe of a counter until the transaction ends, so no increment can change it meanwhile.
+     *
+     * @param name    The name of the counter.
+     * @param scopeId The ID of the row the counter belongs to, or 0.
+     * @return The locked stripes, in ascending order.
+     */
+    @Query(value = "SELECT stripe FROM row_counters WHERE name = :name AND scope_id = :scopeId ORDER BY stripe FOR UPDATE",
+            nativeQuery = true)
+    List<Integer> lockStripes(@Param("name") String name, @Param("scopeId") Long scopeId);
+
+    /**
+     * Count the rows of the projects table.
+     *
+     * @return The number of projects.
+     */
+    @Query(value = "SELECT COUNT(*) FROM projects", nativeQuery = true)
+    long countProjectRows();
+
+    /**
+     * Count the rows of the users table.
+     *
+     * @return The number of users.
+     */
+    @Query(value = "SELECT COUNT(*) FROM users", nativeQuery = true)
+    long countUserRows();
+
+    /**
+     * Recreate a counter of all projects from the projects table, as a single stripe.
+     *
+     * @param name The name of the counter.
+     * @return The number of stripes created.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO row_counters (name, scope_id, stripe, amount) "
+            + "SELECT CAST(:name AS VARCHAR(64)), 0, 0, COUNT(*) FROM projects", nativeQuery = true)
+    int insertProjectCount(@Param("name") String name);
+
+    /**
+     * Recreate a counter of all users from the users table, as a single stripe.
+     *
+     * @param name The name of the counter.
+     * @return The number of stripes created.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO row_counters (name, scope_id, stripe, amount) "
+            + "SELECT CAST(:name AS VARCHAR(64)), 0, 0, COUNT(*) FROM users", nativeQuery = true)
+    int insertUserCount(@Param("name") String name);
+}
@@ -3,18 +3,38 @@ package com.joshbarrosweb.projectmanager.repositories;
 import com.joshbarrosweb.projectmanager.entities.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+import javax.persistence.QueryHint;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
 
     /**
-     * Find users by name containing a given keyword.
+     * Find users by name containing a given keyword, ignoring case.
+     * The query compares {@code UPPER(name)}, which the trigram index of V8 covers on PostgreSQL.
      *
      * @param name     The keyword to search for in user names.
      * @param pageable The pagination information.
      * @return A page of users matching the search criteria.
      */
-    Page<User> findByNameContaining(String name, Pageable pageable);
+    Page<User> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
     /**
      * Find users by email containing a given keyword.
@@ -24,4 +44,291 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return A page of users matching the search criteria.
      */
     Page<User> findByEmail(String email, Pageable pageable);
+
+    /**
+     * Search users whose name contains a keyword, ignoring case, or whose email matches exactly,
+     * with a single paged query and a single count query.
+     * A null or empty parameter disables its filter; when both are disabled every user matches.
+     *
+     * @param name     The keyword to search for in user names.
+     * @param email    The email address to match.
+     * @param pageable The pagination information.
+     * @return A page of users matching either criterion.
+     */
+    default Page<User> searchByNameOrEmail(String name, String email, Pageable pageable) {
+        return findAll(nameContainingOrEmail(name, email), pageable);
+    }
+
+    /**
+     * Build the name/email OR-filter used by {@link #searchByNameOrEmail}.
+     *
+     * @param name  The keyword to search for in user names, or null.
+     * @param email The email address to match, or null.
+     * @return The specification, matching every user when both parameters are null or empty.
+     */
+    static Specification<User> nameContainingOrEmail(String name, String email) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (name != null && !name.isEmpty()) {
+                predicates.add(builder.like(builder.upper(root.get("name")), builder.upper(builder.literal(containsPattern(name))), '\\'));
+            }
+            if (email != null && !email.isEmpty()) {
+                predicates.add(builder.equal(root.get("email"), email));
+            }
+            return predicates.isEmpty() ? null : builder.or(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Search users whose name contains a keyword, ignoring case, or whose email matches exactly, without a count query.
+     * One extra row is fetched to tell whether there is a next slice.
+     * A null or empty parameter disables its filter; when both are disabled every user matches.
+     *
+     * @param name     The keyword to search for in user names.
+     * @param email    The email address to match.
+     * @param pageable The pagination information.
+     * @return A slice of users matching either criterion.
+     */
+    default Slice<User> searchSliceByNameOrEmail(String name, String email, Pageable pageable) {
+        boolean byName = name != null && !name.isEmpty();
+        boolean byEmail = email != null && !email.isEmpty();
+        if (byName && byEmail) {
+            return findSliceByNamePatternOrEmail(containsPattern(name), email, pageable);
+        } else if (byName) {
+            return findSliceByNamePattern(containsPattern(name), pageable);
+        } else if (byEmail) {
+            return findSliceByEmail(email, pageable);
+        }
+        return findAllBy(pageable);
+    }
+
+    /**
+     * Search users whose name matches a LIKE pattern, ignoring case, or whose email matches exactly, without a count query.
+     * Each filter of {@link #searchSliceByNameOrEmail} has its own query, so no parameter is ever bound to null,
+     * which PostgreSQL could not type.
+     *
+     * @param pattern  The LIKE pattern for user names, with backslash escapes.
+     * @param email    The email address to match.
+     * @param pageable The pagination information.
+     * @return A slice of users matching either criterion.
+     */
+    @Query("SELECT u FROM User u WHERE UPPER(u.name) LIKE UPPER(:pattern) ESCAPE '\\' OR u.email = :email")
+    Slice<User> findSliceByNamePatternOrEmail(@Param("pattern") String pattern, @Param("email") String email, Pageable pageable);
+
+    /**
+     * Search users whose name matches a LIKE pattern, ignoring case, without a count query.
+     *
+     * @param pattern  The LIKE pattern for user names, with backslash escapes.
+     * @param pageable The pagination information.
+     * @return A slice of matching users.
+     */
+    @Query("SELECT u FROM User u WHERE UPPER(u.name) LIKE UPPER(:pattern) ESCAPE '\\'")
+    Slice<User> findSliceByNamePattern(@Param("pattern") String pattern, Pageable pageable);
+
+    /**
+     * Find users by email, without a count query.
+     *
+     * @param email    The email address to match.
+     * @param pageable The pagination information.
+     * @return A slice of matching users.
+     */
+    Slice<User> findSliceByEmail(String email, Pageable pageable);
+
+    /**
+     * Build a LIKE pattern matching names that contain a keyword, with its wildcards escaped by backslashes.
+     * Callers compare it in upper case against {@code UPPER(name)}, the expression of the trigram index of V8.
+     *
+     * @param keyword The keyword to search for.
+     * @return The pattern.
+     */
+    static String containsPattern(String keyword) {
+        return "%" + keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * Get a slice of users, without a count query.
+     * One extra row is fetched to tell whether there is a next slice.
+     *
+     * @param pageable The pagination information.
+     * @return A slice of users.
+     */
+    Slice<User> findAllBy(Pageable pageable);
+
+    /**
+     * Get the first users ordered by ID, without a count query.
+     *
+     * @param pageable The limit to apply.
+     * @return The first users ordered by ID.
+     */
+    List<User> findAllByOrderByIdAsc(Pageable pageable);
+
+    /**
+     * Get the users following a given ID, without a count query.
+     *
+     * @param id       The ID of the last user of the previous page.
+     * @param pageable The limit to apply.
+     * @return The users with an ID greater than the given one, ordered by ID.
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Get the first users ordered by name and ID, without a count query.
+     *
+     * @param pageable The limit to apply.
+     * @return The first users ordered by name and ID.
+     */
+    List<User> findAllByOrderByNameAscIdAsc(Pageable pageable);
+
+    /**
+     * Get the users following a given (name, ID) position, without a count query.
+     *
+     * @param name     The name of the last user of the previous page.
+     * @param id       The ID of the last user of the previous page.
+     * @param pageable The limit to apply.
+     * @return The users after the given position, ordered by name and ID.
+     */
+    @Query("SELECT u FROM User u WHERE u.name >= :name AND (u.name > :name OR u.id > :id) ORDER BY u.name ASC, u.id ASC")
+    List<User> findAfterName(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Get the IDs of the projects a user is assigned to.
+     *
+     * @param userId The ID of the user.
+     * @return The IDs of the projects the user is assigned to.
+     */
+    @Query("SELECT p.id FROM User u JOIN u.projects p WHERE u.id = :userId")
+    List<Long> findProjectIdsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Get which of the given email addresses are already in use.
+     *
+     * @param emails The email addresses to check, must not be empty.
+     * @return The email addresses that belong to an existing user.
+     */
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Get the project IDs of several users at once, reading only the join table.
+     *
+     * @param userIds The IDs of the users.
+     * @return The project IDs keyed by user ID; users without projects are absent.
+     */
+    default Map<Long, Set<Long>> findProjectIdsByUserIds(Collection<Long> userIds) {
+        Map<Long, Set<Long>> projectIds = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return projectIds;
+        }
+        for (Object[] row : findMembershipRowsByUserIds(userIds)) {
+            projectIds.computeIfAbsent(((Number) row[0]).longValue(), id -> new HashSet<>())
+                    .add(((Number) row[1]).longValue());
+        }
+        return projectIds;
+    }
+
+    /**
+     * Get the (user ID, project ID) rows of the join table for several users.
+     *
+     * @param userIds The IDs of the users, must not be empty.
+     * @return The membership rows of the users.
+     */
+    @Query(value = "SELECT user_id, project_id FROM project_user WHERE user_id IN (:userIds)", nativeQuery = true)
+    List<Object[]> findMembershipRowsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Get the users that share the most projects with a user, with one aggregate over the join table.
+     * The user's projects are read from the primary key and their members from the (project_id, user_id)
+     * index of V4, so neither side's collection is loaded; only the top rows are joined to users.
+     *
+     * @param userId The ID of the user.
+     * @param limit  The maximum number of rows to return.
+     * @return (ID, name, email, shared project count) rows, most shared projects first, then by ID.
+     */
+    @Query(value = "SELECT u.id, u.name, u.email, c.shared_projects FROM ("
+            + "SELECT pu2.user_id, COUNT(*) AS shared_projects FROM project_user pu1 "
+            + "JOIN project_user pu2 ON pu2.project_id = pu1.project_id "
+            + "WHERE pu1.user_id = :userId AND pu2.user_id <> :userId "
+            + "GROUP BY pu2.user_id ORDER BY shared_projects DESC, pu2.user_id LIMIT :limit) c "
+            + "JOIN users u ON u.id = c.user_id ORDER BY c.shared_projects DESC, u.id",
+            nativeQuery = true)
+    List<Object[]> findCollaboratorRows(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Get the IDs of every user that shares at least one project with a user, from the same two indexes
+     * as {@link #findCollaboratorRows}, so their cached collaborator lists can be evicted.
+     *
+     * @param userId The ID of the user.
+     * @return The IDs of the user's collaborators, in no particular order.
+     */
+    @Query(value = "SELECT DISTINCT pu2.user_id FROM project_user pu1 "
+            + "JOIN project_user pu2 ON pu2.project_id = pu1.project_id "
+            + "WHERE pu1.user_id = :userId AND pu2.user_id <> :userId",
+            nativeQuery = true)
+    List<Long> findCollaboratorIds(@Param("userId") Long userId);
+
+    /**
+     * Stream all users ordered by ID, fetching rows from the database in blocks of 1000.
+     * Must be consumed, and closed, inside a transaction.
+     *
+     * @return A forward-only stream of all users.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAllByOrderByIdAsc();
+
+    /**
+     * Get the IDs of the users with the given email addresses.
+     *
+     * @param emails The email addresses to look up, must not be empty.
+     * @return (email, ID) pairs for the email addresses in use.
+     */
+    @Query("SELECT u.email, u.id FROM User u WHERE u.email IN :emails")
+    List<Object[]> findIdsByEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Get the version of a user without loading it.
+     *
+     * @param id The ID of the user.
+     * @return The version of the user, or empty if it does not exist.
+     */
+    @Query("SELECT u.version FROM User u WHERE u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Update a user only if it still has the expected version, and increment the version.
+     *
+     * @param id      The ID of the user.
+     * @param name    The new name.
+     * @param email   The new email address.
+     * @param version The version the client last read.
+     * @return 1 if the user was updated, 0 if it does not exist or has another version.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.name = :name, u.email = :email, u.version = u.version + 1 "
+            + "WHERE u.id = :id AND u.version = :version")
+    int updateIfVersion(@Param("id") Long id, @Param("name") String name,
+                        @Param("email") String email, @Param("version") Long version);
+
+    /**
+     * Increment the versions of users whose memberships changed, so their ETags change.
+     *
+     * @param ids The IDs of the users, must not be empty.
+     * @return The number of users updated.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.version = u.version + 1 WHERE u.id IN :ids")
+    int incrementVersions(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Remove a user from all projects, before the user itself is deleted.
+     *
+     * @param userId The ID of the user.
+     * @return The number of memberships removed.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM project_user WHERE user_id = :userId", nativeQuery = true)
+    int deleteAllMemberships(@Param("userId") Long userId);
 }
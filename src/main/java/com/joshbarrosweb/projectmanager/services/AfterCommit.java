@@ -0,0 +1,52 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+
+/**
+ * Defers work on caches and in-memory indexes until the current transaction has committed.
+ *
+ * A write that is rolled back is then never seen, and a concurrent read cannot cache the pre-commit
+ * state again after the eviction. Outside of a transaction the work runs immediately.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Runs an action once the current transaction, if any, has committed.
+     *
+     * @param action The action to run.
+     */
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Evicts cache entries once the current transaction, if any, has committed.
+     *
+     * @param cacheManager The cache manager.
+     * @param cacheName    The name of the cache, ignored if it does not exist.
+     * @param keys         The keys to evict.
+     */
+    public static void evict(CacheManager cacheManager, String cacheName, Collection<?> keys) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && !keys.isEmpty()) {
+            run(() -> keys.forEach(cache::evict));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import com.joshbarrosweb.projectmanager.dtos.SuggestionDTO;
+
+import java.util.List;
+
+public interface AutocompleteService {
+    String TYPE_PROJECT = "project";
+    String TYPE_USER = "user";
+
+    List<SuggestionDTO> suggest(String prefix, String type, int size);
+
+    void putProject(Long id, String name);
+
+    void putUser(Long id, String name, String email);
+
+    void removeProject(Long id);
+
+    void removeUser(Long id);
+
+    long rebuild();
+}
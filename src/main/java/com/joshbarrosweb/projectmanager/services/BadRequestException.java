@@ -0,0 +1,18 @@
+package com.joshbarrosweb.projectmanager.services;
+
+/**
+ * Thrown when a client sends invalid input, such as a malformed cursor or an unsupported sort.
+ *
+ * Its message is written for the client and is returned as the body of a bad request,
+ * unlike those of other exceptions, which may come from Spring or a library.
+ */
+public class BadRequestException extends IllegalArgumentException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
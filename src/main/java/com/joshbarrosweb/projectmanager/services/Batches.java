@@ -0,0 +1,48 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import javax.validation.Validator;
+
+/**
+ * Limits and helpers shared by the bulk endpoints.
+ *
+ * Items are processed in chunks: each chunk is flushed as JDBC batches, or emitted, and then
+ * detached, so the persistence context stays small however large the request or export is.
+ */
+public final class Batches {
+
+    public static final int MAX_BATCH_SIZE = 10000;
+    public static final int CHUNK_SIZE = 1000;
+
+    private Batches() {
+    }
+
+    /**
+     * Checks that a batch is within the supported size.
+     *
+     * @param size The number of items in the batch.
+     * @throws BadRequestException if the batch is empty or larger than {@link #MAX_BATCH_SIZE}.
+     */
+    public static void checkBatchSize(int size) {
+        if (size < 1 || size > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Batch size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+    }
+
+    /**
+     * Validates a batch item against its bean validation constraints.
+     *
+     * @param validator The validator to use.
+     * @param item      The item to validate, may be null.
+     * @return The validation error message, or null if the item is valid.
+     */
+    public static String validate(Validator validator, Object item) {
+        if (item == null) {
+            return "Item must not be null";
+        }
+        return validator.validate(item).stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .reduce((a, b) -> a + "; " + b)
+                .orElse(null);
+    }
+}
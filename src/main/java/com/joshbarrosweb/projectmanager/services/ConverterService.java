@@ -4,32 +4,90 @@ import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
 import com.joshbarrosweb.projectmanager.dtos.UserDTO;
 import com.joshbarrosweb.projectmanager.entities.Project;
 import com.joshbarrosweb.projectmanager.entities.User;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Maps entities to DTOs and back.
+ *
+ * The mappings are written out field by field: no reflection, no type-map lookups and
+ * no intermediate objects besides the DTO and its ID set.
+ *
+ * The overloads taking an ID set never touch the entity's collection; list endpoints use them
+ * with membership IDs fetched for the whole page in one query.
+ */
 @Service
 public class ConverterService {
 
-    private final ModelMapper modelMapper;
-
-    public ConverterService(ModelMapper modelMapper) {
-        this.modelMapper = modelMapper;
+    public UserDTO convertToDto(User user) {
+        Set<Project> projects = user.getProjects();
+        if (projects == null || projects.isEmpty()) {
+            return convertToDto(user, Collections.emptySet());
+        }
+        Set<Long> projectIds = new HashSet<>(capacityFor(projects.size()));
+        for (Project project : projects) {
+            projectIds.add(project.getId());
+        }
+        return convertToDto(user, projectIds);
     }
 
-    public UserDTO convertToDto(User user) {
-        return modelMapper.map(user, UserDTO.class);
+    public UserDTO convertToDto(User user, Set<Long> projectIds) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(user.getId());
+        userDTO.setName(user.getName());
+        userDTO.setEmail(user.getEmail());
+        userDTO.setPassword(user.getPassword());
+        userDTO.setProjectIds(projectIds == null ? Collections.emptySet() : projectIds);
+        userDTO.setVersion(user.getVersion());
+        return userDTO;
     }
 
     public User convertToEntity(UserDTO userDTO) {
-        return modelMapper.map(userDTO, User.class);
+        User user = new User();
+        user.setId(userDTO.getId());
+        user.setName(userDTO.getName());
+        user.setEmail(userDTO.getEmail());
+        user.setPassword(userDTO.getPassword());
+        user.setProjects(new HashSet<>());
+        return user;
     }
 
     public ProjectDTO convertToDto(Project project) {
-        return modelMapper.map(project, ProjectDTO.class);
+        Set<User> users = project.getUsers();
+        if (users == null || users.isEmpty()) {
+            return convertToDto(project, Collections.emptySet());
+        }
+        Set<Long> userIds = new HashSet<>(capacityFor(users.size()));
+        for (User user : users) {
+            userIds.add(user.getId());
+        }
+        return convertToDto(project, userIds);
+    }
+
+    public ProjectDTO convertToDto(Project project, Set<Long> userIds) {
+        ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setId(project.getId());
+        projectDTO.setName(project.getName());
+        projectDTO.setDescription(project.getDescription());
+        projectDTO.setUserIds(userIds == null ? Collections.emptySet() : userIds);
+        projectDTO.setVersion(project.getVersion());
+        projectDTO.setMemberCount(project.getMemberCount());
+        return projectDTO;
     }
 
     public Project convertToEntity(ProjectDTO projectDTO) {
-        return modelMapper.map(projectDTO, Project.class);
+        Project project = new Project();
+        project.setId(projectDTO.getId());
+        project.setName(projectDTO.getName());
+        project.setDescription(projectDTO.getDescription());
+        project.setUsers(new HashSet<>());
+        return project;
     }
-}
 
+    private static int capacityFor(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+}
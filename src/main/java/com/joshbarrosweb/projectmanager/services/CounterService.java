@@ -0,0 +1,11 @@
+package com.joshbarrosweb.projectmanager.services;
+
+public interface CounterService {
+    void createStripes();
+    void addProjects(long delta);
+    void addUsers(long delta);
+    long countProjects();
+    long countUsers();
+    void reconcile();
+    int repair();
+}
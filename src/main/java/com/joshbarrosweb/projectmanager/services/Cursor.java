@@ -0,0 +1,100 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursor.
+ *
+ * A cursor captures the sort key and the ID of the last row of a page, so the next page can be
+ * fetched with a seek query ({@code WHERE (key, id) > (:key, :id)}) instead of an OFFSET.
+ */
+public final class Cursor {
+
+    public static final String SORT_ID = "id";
+    public static final String SORT_NAME = "name";
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = "\n";
+
+    private final String sort;
+    private final String key;
+    private final Long id;
+
+    private Cursor(String sort, String key, Long id) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+    }
+
+    /**
+     * Creates a cursor pointing after the given row.
+     *
+     * @param sort The sort the cursor was issued for.
+     * @param key  The sort key of the last row, or null when sorting by ID only.
+     * @param id   The ID of the last row.
+     * @return The cursor.
+     */
+    public static Cursor of(String sort, String key, Long id) {
+        return new Cursor(sort, key, id);
+    }
+
+    /**
+     * Decodes a cursor token and checks it was issued for the given sort.
+     *
+     * @param token The token returned as {@code nextCursor} by a previous page.
+     * @param sort  The sort requested by the client.
+     * @return The decoded cursor.
+     * @throws BadRequestException if the token is malformed or was issued for another sort.
+     */
+    public static Cursor decode(String token, String sort) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR, 3);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+        if (parts.length != 3 || !parts[0].equals(sort)) {
+            throw new BadRequestException("Invalid cursor for sort: " + sort);
+        }
+        try {
+            return new Cursor(parts[0], parts[2], Long.valueOf(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * Checks that a requested cursor page size is within bounds.
+     *
+     * @param size The requested page size.
+     * @throws BadRequestException if the size is not between 1 and {@link #MAX_PAGE_SIZE}.
+     */
+    public static void checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL-safe token.
+     *
+     * @return The token.
+     */
+    public String encode() {
+        String raw = sort + SEPARATOR + id + SEPARATOR + (key == null ? "" : key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
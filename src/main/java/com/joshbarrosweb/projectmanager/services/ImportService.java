@@ -0,0 +1,13 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import com.joshbarrosweb.projectmanager.dtos.ImportSummaryDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImportService {
+    String FORMAT_NDJSON = "ndjson";
+    String FORMAT_CSV = "csv";
+
+    ImportSummaryDTO importData(InputStream input, String format) throws IOException;
+}
@@ -0,0 +1,92 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import com.joshbarrosweb.projectmanager.config.CacheConfig;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repairs drift between the member counts on the projects table and the memberships in project_user,
+ * such as after rows were written past the services.
+ *
+ * Projects are checked in batches of {@code projectmanager.member-count.reconcile-batch-size}, in ID
+ * order, each in its own transaction. A batch first locks its projects, so no membership of theirs
+ * can change while they are recounted, and only rewrites the counts that are wrong, incrementing
+ * the versions of those projects. It runs on the {@code projectmanager.member-count.reconcile-cron}
+ * schedule, nightly by default, or "-" to disable it.
+ */
+@Component
+public class MemberCountReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(MemberCountReconciler.class);
+
+    private final ProjectRepository projectRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final int batchSize;
+
+    @Autowired
+    public MemberCountReconciler(ProjectRepository projectRepository, PlatformTransactionManager transactionManager,
+                                 CacheManager cacheManager,
+                                 @Value("${projectmanager.member-count.reconcile-batch-size:1000}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.projectRepository = projectRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheManager = cacheManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Recounts the members of every project and fixes the counts that drifted.
+     *
+     * @return The number of projects whose member count was fixed.
+     */
+    @Scheduled(cron = "${projectmanager.member-count.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        long start = System.nanoTime();
+        int repaired = 0;
+        int checked = 0;
+        Long afterId = 0L;
+        while (true) {
+            Long from = afterId;
+            List<Long> ids = new ArrayList<>();
+            Integer fixed = transactionTemplate.execute(status -> {
+                ids.addAll(projectRepository.lockIdsAfter(from, batchSize));
+                return ids.isEmpty() ? 0 : projectRepository.repairMemberCounts(from, ids.get(ids.size() - 1));
+            });
+            if (ids.isEmpty()) {
+                break;
+            }
+            if (fixed != null && fixed > 0) {
+                evict(ids);
+                repaired += fixed;
+            }
+            checked += ids.size();
+            afterId = ids.get(ids.size() - 1);
+        }
+        log.info("Checked the member counts of {} projects and repaired {} in {} ms", checked, repaired,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return repaired;
+    }
+
+    private void evict(List<Long> ids) {
+        Cache cache = cacheManager.getCache(CacheConfig.PROJECTS);
+        if (cache != null) {
+            ids.forEach(cache::evict);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+
+import java.util.Collection;
+
+public interface MembershipIndexService {
+    String OP_INTERSECTION = "intersection";
+    String OP_UNION = "union";
+    int MAX_SETS = 1000;
+
+    CursorPageDTO<Long> findUsers(String op, Collection<Long> projectIds, Collection<Long> excludedProjectIds, String after, int size);
+
+    long countUsers(String op, Collection<Long> projectIds, Collection<Long> excludedProjectIds);
+
+    CursorPageDTO<Long> findProjects(String op, Collection<Long> userIds, Collection<Long> excludedUserIds, String after, int size);
+
+    long countProjects(String op, Collection<Long> userIds, Collection<Long> excludedUserIds);
+
+    void addMembers(Long projectId, Collection<Long> userIds);
+
+    void removeMembers(Long projectId, Collection<Long> userIds);
+
+    void removeProject(Long projectId);
+
+    void removeUser(Long userId);
+
+    long rebuild();
+}
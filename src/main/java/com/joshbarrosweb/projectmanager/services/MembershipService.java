@@ -0,0 +1,13 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import com.joshbarrosweb.projectmanager.dtos.MembershipResultDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface MembershipService {
+    MembershipResultDTO addUsers(Long projectId, Collection<Long> userIds);
+    MembershipResultDTO removeUsers(Long projectId, Collection<Long> userIds);
+    List<Long> removeAllUsers(Long projectId);
+    List<Long> removeUserFromAllProjects(Long userId);
+}
@@ -0,0 +1,203 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory index from short texts, such as names and emails, to the IDs they belong to,
+ * for prefix lookups on every keystroke.
+ *
+ * Texts are normalized, without accents, in lower case and with single spaces, and indexed from the
+ * start of each of their first {@link #MAX_WORDS} words, so "ham" finds "Margaret Hamilton". Each key
+ * is at most {@link #MAX_KEY_LENGTH} characters of UTF-8 followed by the 8-byte ID, kept as a byte
+ * array in a concurrent skip list. The texts themselves are kept for display cut to
+ * {@link #MAX_TEXT_LENGTH} characters, and only that part is indexed, so an entry costs a bounded
+ * amount of memory per text however long the texts it was given are. A lookup seeks to the prefix and
+ * only scans the keys that match it. Updates and lookups are safe from any thread.
+ */
+public final class PrefixIndex {
+
+    public static final int MAX_KEY_LENGTH = 32;
+    public static final int MAX_WORDS = 4;
+    public static final int MAX_TEXT_LENGTH = 128;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s\\p{Cntrl}]+");
+
+    private final ConcurrentSkipListSet<byte[]> keys = new ConcurrentSkipListSet<>(Arrays::compareUnsigned);
+    private final ConcurrentHashMap<Long, String[]> texts = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the texts of an ID, cut to {@link #MAX_TEXT_LENGTH} characters, replacing any it had.
+     *
+     * @param id     The ID the texts belong to.
+     * @param values The texts, null ones are skipped.
+     */
+    public void put(long id, String... values) {
+        String[] copy = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            copy[i] = values[i] == null ? null : truncate(values[i], MAX_TEXT_LENGTH);
+        }
+        texts.compute(id, (key, old) -> {
+            if (old != null) {
+                keys.removeAll(keysOf(id, old));
+            }
+            keys.addAll(keysOf(id, copy));
+            return copy;
+        });
+    }
+
+    /**
+     * Removes an ID and its texts, if it is indexed.
+     *
+     * @param id The ID to remove.
+     */
+    public void remove(long id) {
+        texts.computeIfPresent(id, (key, old) -> {
+            keys.removeAll(keysOf(id, old));
+            return null;
+        });
+    }
+
+    /**
+     * Removes every ID.
+     */
+    public void clear() {
+        texts.clear();
+        keys.clear();
+    }
+
+    /**
+     * Retrieves the texts of an ID as they were indexed, cut to {@link #MAX_TEXT_LENGTH} characters.
+     *
+     * @param id The ID.
+     * @return The texts, or null if the ID is not indexed.
+     */
+    public String[] get(long id) {
+        return texts.get(id);
+    }
+
+    /**
+     * @return The number of indexed IDs.
+     */
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * Finds the IDs that have a word starting with a prefix, ordered by the text from that word on.
+     * Prefixes longer than the keys are matched on the keys first and then checked against the stored texts.
+     *
+     * @param prefix The prefix, normalized like the texts.
+     * @param limit  The maximum number of IDs to return.
+     * @return The matching IDs, each once.
+     */
+    public List<Long> lookup(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit < 1) {
+            return Collections.emptyList();
+        }
+        boolean truncated = normalized.length() > MAX_KEY_LENGTH;
+        byte[] from = truncate(normalized, MAX_KEY_LENGTH).getBytes(StandardCharsets.UTF_8);
+
+        Set<Long> ids = new LinkedHashSet<>();
+        for (byte[] key : keys.tailSet(from)) {
+            if (!startsWith(key, from)) {
+                break;
+            }
+            long id = ByteBuffer.wrap(key, key.length - Long.BYTES, Long.BYTES).getLong();
+            if (truncated && !matches(texts.get(id), normalized)) {
+                continue;
+            }
+            if (ids.add(id) && ids.size() == limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Strips accents, lower-cases and collapses whitespace and control characters into single spaces.
+     *
+     * @param text The text to normalize.
+     * @return The normalized text.
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+        return SEPARATORS.matcher(stripped).replaceAll(" ").trim();
+    }
+
+    /**
+     * Builds a key per word start: the truncated text from that word on, a zero byte and the ID.
+     */
+    private static List<byte[]> keysOf(long id, String[] values) {
+        List<byte[]> result = new ArrayList<>();
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            String normalized = normalize(value);
+            int start = 0;
+            for (int word = 0; word < MAX_WORDS && start < normalized.length(); word++) {
+                byte[] text = truncate(normalized.substring(start), MAX_KEY_LENGTH).getBytes(StandardCharsets.UTF_8);
+                result.add(ByteBuffer.allocate(text.length + 1 + Long.BYTES)
+                        .put(text)
+                        .put((byte) 0)
+                        .putLong(id)
+                        .array());
+                int space = normalized.indexOf(' ', start);
+                if (space < 0) {
+                    break;
+                }
+                start = space + 1;
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(String[] values, String prefix) {
+        if (values == null) {
+            return false;
+        }
+        for (String value : values) {
+            if (value != null) {
+                String normalized = normalize(value);
+                if (normalized.startsWith(prefix) || normalized.contains(" " + prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cuts a text to a number of characters, without splitting a surrogate pair.
+     */
+    private static String truncate(String text, int length) {
+        if (text.length() <= length) {
+            return text;
+        }
+        int end = length;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length > prefix.length
+                && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+}
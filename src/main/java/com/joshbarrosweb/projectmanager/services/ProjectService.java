@@ -1,18 +1,35 @@
 package com.joshbarrosweb.projectmanager.services;
 
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.MemberDTO;
 import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
-import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ProjectService {
     ProjectDTO createProject(ProjectDTO projectDTO);
+    BatchResultDTO createProjects(List<ProjectDTO> projectDTOs);
     Page<ProjectDTO> listProjects(Pageable pageable);
+    long countProjects();
+    CursorPageDTO<ProjectDTO> listProjects(String after, int size, String sort);
+    SliceDTO<ProjectDTO> listProjectSlice(Pageable pageable);
+    void exportProjects(Consumer<ProjectDTO> consumer);
     ProjectDTO getProjectById(Long id);
+    Long getProjectVersion(Long id);
+    String getMembersVersion(Long projectId);
     ProjectDTO updateProject(Long id, ProjectDTO projectDTO);
+    ProjectDTO updateProject(Long id, ProjectDTO projectDTO, Long expectedVersion);
     void deleteProject(Long id);
     Page<ProjectDTO> searchProjects(String name, Pageable pageable);
-    List<UserDTO> getUsersByProjectId(Long projectId);
+    SliceDTO<ProjectDTO> searchProjectSlice(String name, Pageable pageable);
+    Page<MemberDTO> getUsersByProjectId(Long projectId, Pageable pageable);
+    SliceDTO<MemberDTO> getUserSliceByProjectId(Long projectId, Pageable pageable);
+    CursorPageDTO<MemberDTO> getUsersByProjectId(Long projectId, String after, int size);
+    void exportUsersByProjectId(Long projectId, Consumer<MemberDTO> consumer);
+    long countUsersByProjectId(Long projectId);
 }
@@ -0,0 +1,24 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import com.joshbarrosweb.projectmanager.dtos.SearchHitDTO;
+
+import java.util.List;
+
+public interface SearchService {
+    String TYPE_PROJECT = "project";
+    String TYPE_USER = "user";
+
+    List<SearchHitDTO> search(String query, String type, int size);
+
+    void indexProject(Long id, String name, String description);
+
+    void indexUser(Long id, String name, String email);
+
+    void deleteProject(Long id);
+
+    void deleteUser(Long id);
+
+    long rebuild();
+
+    void refresh();
+}
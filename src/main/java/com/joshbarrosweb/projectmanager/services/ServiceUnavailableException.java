@@ -0,0 +1,12 @@
+package com.joshbarrosweb.projectmanager.services;
+
+/**
+ * Thrown when a request cannot be served yet, such as a query against an in-memory index that is
+ * still being loaded. The client may retry later.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -1,16 +1,34 @@
 package com.joshbarrosweb.projectmanager.services;
 
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.CollaboratorDTO;
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
 import com.joshbarrosweb.projectmanager.dtos.UserDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 public interface UserService {
+    int MAX_COLLABORATORS = 100;
+
     UserDTO createUser(UserDTO userDTO);
+    BatchResultDTO createUsers(List<UserDTO> userDTOs);
     Page<UserDTO> listUsers(Pageable pageable);
+    long countUsers();
+    CursorPageDTO<UserDTO> listUsers(String after, int size, String sort);
+    SliceDTO<UserDTO> listUserSlice(Pageable pageable);
+    void exportUsers(Consumer<UserDTO> consumer);
     UserDTO getUserById(Long id);
+    Long getUserVersion(Long id);
     UserDTO updateUser(Long id, UserDTO userDTO);
+    UserDTO updateUser(Long id, UserDTO userDTO, Long expectedVersion);
     void deleteUser(Long id);
     Page<UserDTO> searchUsers(String name, String email, Pageable pageable);
+    SliceDTO<UserDTO> searchUserSlice(String name, String email, Pageable pageable);
     void assignUserToProject(Long userId, Long projectId);
     void removeUserFromProject(Long userId, Long projectId);
+    List<CollaboratorDTO> getCollaborators(Long id);
 }
@@ -0,0 +1,245 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.dtos.SuggestionDTO;
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.AfterCommit;
+import com.joshbarrosweb.projectmanager.services.AutocompleteService;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.Batches;
+import com.joshbarrosweb.projectmanager.services.Cursor;
+import com.joshbarrosweb.projectmanager.services.PrefixIndex;
+import com.joshbarrosweb.projectmanager.services.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Typeahead suggestions for the project and user pickers, served from two in-memory {@link PrefixIndex}es:
+ * project names, and user names and emails.
+ *
+ * The indexes are loaded from the database once the application has started, unless
+ * {@code projectmanager.autocomplete.load-on-startup} is false, and the services report every write
+ * afterwards, which is applied once it has committed. Until the first load has completed, suggestions
+ * are refused with a {@link ServiceUnavailableException} rather than answered from empty indexes.
+ * A reload fills fresh indexes and swaps them in, replaying the writes that committed meanwhile,
+ * so suggestions stay complete while it runs. Rows written past the services are only suggested
+ * after the next start.
+ */
+@Service
+public class AutocompleteServiceImpl implements AutocompleteService {
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompleteServiceImpl.class);
+
+    private final ProjectRepository projectRepository;
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean loadOnStartup;
+    private final Object updateLock = new Object();
+    private volatile Indexes indexes = new Indexes();
+    // Updates applied while a reload runs, to replay on the fresh indexes; null when no reload runs
+    private List<Consumer<Indexes>> pending;
+    private volatile boolean ready;
+
+    @Autowired
+    public AutocompleteServiceImpl(ProjectRepository projectRepository, UserRepository userRepository, EntityManager entityManager,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${projectmanager.autocomplete.load-on-startup:true}") boolean loadOnStartup) {
+        this.projectRepository = projectRepository;
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        // Not read-only, so the load is never routed to a replica that may not have the latest writes yet
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loadOnStartup = loadOnStartup;
+    }
+
+    /**
+     * Suggests the projects or users with a word starting with a prefix, in alphabetical order of the matching text.
+     * Users match on their name or their email.
+     *
+     * @param prefix The start of the word typed so far.
+     * @param type   Either "project" or "user".
+     * @param size   The maximum number of suggestions.
+     * @return The suggestions.
+     * @throws BadRequestException         if the prefix is blank, or the type or size is invalid.
+     * @throws ServiceUnavailableException if the indexes have not been loaded yet.
+     */
+    @Override
+    public List<SuggestionDTO> suggest(String prefix, String type, int size) {
+        Cursor.checkPageSize(size);
+        if (prefix == null || prefix.trim().isEmpty()) {
+            throw new BadRequestException("Prefix must not be blank");
+        }
+        PrefixIndex index = index(indexes, type);
+        if (!ready) {
+            throw new ServiceUnavailableException("The autocomplete indexes are still loading, try again later");
+        }
+
+        List<SuggestionDTO> suggestions = new ArrayList<>(size);
+        for (Long id : index.lookup(prefix, size)) {
+            String[] texts = index.get(id);
+            if (texts != null) {
+                suggestions.add(new SuggestionDTO(id, texts[0], texts.length > 1 ? texts[1] : null));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Adds or replaces a project's name after commit.
+     *
+     * @param id   The ID of the project.
+     * @param name The name of the project.
+     */
+    @Override
+    public void putProject(Long id, String name) {
+        update(current -> current.projects.put(id, name));
+    }
+
+    /**
+     * Adds or replaces a user's name and email after commit.
+     *
+     * @param id    The ID of the user.
+     * @param name  The name of the user.
+     * @param email The email of the user.
+     */
+    @Override
+    public void putUser(Long id, String name, String email) {
+        update(current -> current.users.put(id, name, email));
+    }
+
+    /**
+     * Removes a project after commit.
+     *
+     * @param id The ID of the project.
+     */
+    @Override
+    public void removeProject(Long id) {
+        update(current -> current.projects.remove(id));
+    }
+
+    /**
+     * Removes a user after commit.
+     *
+     * @param id The ID of the user.
+     */
+    @Override
+    public void removeUser(Long id) {
+        update(current -> current.users.remove(id));
+    }
+
+    /**
+     * Reloads both indexes from the database, in one transaction on the primary.
+     * Rows are read through forward-only cursors and the persistence context is cleared every chunk.
+     * Fresh indexes are filled while the current ones keep serving suggestions and following writes;
+     * the writes that committed during the load are then replayed on the fresh indexes, which are swapped in.
+     *
+     * @return The number of projects and users loaded.
+     */
+    @Override
+    public synchronized long rebuild() {
+        long start = System.nanoTime();
+        Indexes fresh = new Indexes();
+        synchronized (updateLock) {
+            pending = new ArrayList<>();
+        }
+        Long loaded;
+        try {
+            loaded = transactionTemplate.execute(status -> load(fresh));
+            synchronized (updateLock) {
+                pending.forEach(update -> update.accept(fresh));
+                indexes = fresh;
+                ready = true;
+            }
+        } finally {
+            synchronized (updateLock) {
+                pending = null;
+            }
+        }
+        log.info("Loaded {} projects and users for autocomplete in {} ms", loaded,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return loaded == null ? 0 : loaded;
+    }
+
+    /**
+     * Loads the indexes once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexes() {
+        if (loadOnStartup) {
+            rebuild();
+        }
+    }
+
+    private long load(Indexes target) {
+        long loaded = 0;
+        try (Stream<Project> stream = projectRepository.streamAllByOrderByIdAsc()) {
+            Iterator<Project> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Project project = iterator.next();
+                target.projects.put(project.getId(), project.getName());
+                if (++loaded % Batches.CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        try (Stream<User> stream = userRepository.streamAllByOrderByIdAsc()) {
+            Iterator<User> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                target.users.put(user.getId(), user.getName(), user.getEmail());
+                if (++loaded % Batches.CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static PrefixIndex index(Indexes current, String type) {
+        if (TYPE_PROJECT.equals(type)) {
+            return current.projects;
+        }
+        if (TYPE_USER.equals(type)) {
+            return current.users;
+        }
+        throw new BadRequestException("Unsupported type: " + type);
+    }
+
+    /**
+     * Applies an update after commit, so a write that is rolled back is never suggested.
+     * While a reload runs, the update is also kept to be replayed on the fresh indexes.
+     */
+    private void update(Consumer<Indexes> update) {
+        AfterCommit.run(() -> {
+            synchronized (updateLock) {
+                update.accept(indexes);
+                if (pending != null) {
+                    pending.add(update);
+                }
+            }
+        });
+    }
+
+    private static final class Indexes {
+        private final PrefixIndex projects = new PrefixIndex();
+        private final PrefixIndex users = new PrefixIndex();
+    }
+}
@@ -0,0 +1,172 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.entities.RowCounter;
+import com.joshbarrosweb.projectmanager.repositories.RowCounterRepository;
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Maintains the number of projects and of users, so totals can be read from a handful of rows
+ * instead of counting the tables. The number of members of each project is kept on the project row.
+ *
+ * Counters are updated by the services, inside the transaction that creates or deletes the rows,
+ * so they commit or roll back with them. Each counter is split into {@link #STRIPES} rows and each
+ * increment goes to a random stripe, so concurrent writers rarely wait for each other; the value
+ * of a counter is the sum of its stripes. Drift from rows written past the services is repaired on
+ * the {@code projectmanager.row-counter.reconcile-cron} schedule.
+ */
+@Service
+public class CounterServiceImpl implements CounterService {
+
+    static final String PROJECTS = "projects";
+    static final String USERS = "users";
+    static final long GLOBAL = 0L;
+    static final int STRIPES = 16;
+
+    private static final Logger log = LoggerFactory.getLogger(CounterServiceImpl.class);
+
+    private final RowCounterRepository rowCounterRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public CounterServiceImpl(RowCounterRepository rowCounterRepository, PlatformTransactionManager transactionManager) {
+        this.rowCounterRepository = rowCounterRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates the missing stripes of the project and user counters once the application has started,
+     * so increments never have to create them.
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void createStripes() {
+        for (String name : List.of(PROJECTS, USERS)) {
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                if (!rowCounterRepository.existsById(new RowCounter.Key(name, GLOBAL, stripe))) {
+                    rowCounterRepository.insert(name, GLOBAL, stripe, 0L);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds to the number of projects, on a random stripe.
+     *
+     * @param delta The number of projects created, negative for deleted projects.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addProjects(long delta) {
+        add(PROJECTS, GLOBAL, ThreadLocalRandom.current().nextInt(STRIPES), delta);
+    }
+
+    /**
+     * Adds to the number of users, on a random stripe.
+     *
+     * @param delta The number of users created, negative for deleted users.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addUsers(long delta) {
+        add(USERS, GLOBAL, ThreadLocalRandom.current().nextInt(STRIPES), delta);
+    }
+
+    /**
+     * Retrieves the number of projects.
+     *
+     * @return The number of projects.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countProjects() {
+        return rowCounterRepository.sum(PROJECTS, GLOBAL);
+    }
+
+    /**
+     * Retrieves the number of users.
+     *
+     * @return The number of users.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countUsers() {
+        return rowCounterRepository.sum(USERS, GLOBAL);
+    }
+
+    /**
+     * Recomputes every counter from the tables, for data written without the services,
+     * such as generated or restored data. Changes committed while it runs may be missed,
+     * so it should run while the application is idle.
+     */
+    @Override
+    @Transactional
+    public void reconcile() {
+        rowCounterRepository.deleteAllInBatch();
+        rowCounterRepository.insertProjectCount(PROJECTS);
+        rowCounterRepository.insertUserCount(USERS);
+        createStripes();
+    }
+
+    /**
+     * Repairs the counters that drifted from their tables, such as after rows were fixed, migrated or restored
+     * past the services, while the application keeps serving requests.
+     * Each counter is checked in its own transaction, which first locks the counter's stripes, so no increment
+     * can change it while its table is counted, and the difference, if any, is added to one stripe.
+     * It runs on the {@code projectmanager.row-counter.reconcile-cron} schedule, nightly by default, or "-" to disable it.
+     *
+     * @return The number of counters repaired.
+     */
+    @Override
+    @Scheduled(cron = "${projectmanager.row-counter.reconcile-cron:0 45 3 * * *}")
+    public int repair() {
+        long start = System.nanoTime();
+        int repaired = repair(PROJECTS, rowCounterRepository::countProjectRows)
+                + repair(USERS, rowCounterRepository::countUserRows);
+        log.info("Checked the row counters and repaired {} in {} ms", repaired,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return repaired;
+    }
+
+    private int repair(String name, LongSupplier count) {
+        Long drift = transactionTemplate.execute(status -> {
+            rowCounterRepository.lockStripes(name, GLOBAL);
+            long delta = count.getAsLong() - rowCounterRepository.sum(name, GLOBAL);
+            add(name, GLOBAL, 0, delta);
+            return delta;
+        });
+        if (drift == null || drift == 0) {
+            return 0;
+        }
+        log.warn("The {} counter was off by {}, repaired", name, -drift);
+        return 1;
+    }
+
+    /**
+     * Adds a delta to one stripe, creating the stripe with the delta as its amount if it does not exist yet.
+     */
+    private void add(String name, Long scopeId, int stripe, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (rowCounterRepository.add(name, scopeId, stripe, delta) == 0) {
+            rowCounterRepository.insert(name, scopeId, stripe, delta);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.joshbarrosweb.projectmanager.dtos.BatchErrorDTO;
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.ImportRowDTO;
+import com.joshbarrosweb.projectmanager.dtos.ImportSummaryDTO;
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.ImportService;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.services.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+@Service
+public class ImportServiceImpl implements ImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportServiceImpl.class);
+
+    static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int MAX_LOOKUP_SIZE = 100000;
+
+    private static final String TYPE_USER = "user";
+    private static final String TYPE_PROJECT = "project";
+    private static final String TYPE_MEMBERSHIP = "membership";
+
+    private final UserService userService;
+    private final ProjectService projectService;
+    private final MembershipService membershipService;
+    private final UserRepository userRepository;
+    private final ProjectRepository projectRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+
+    @Autowired
+    public ImportServiceImpl(UserService userService, ProjectService projectService, MembershipService membershipService,
+                             UserRepository userRepository, ProjectRepository projectRepository,
+                             TransactionTemplate transactionTemplate, ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.projectService = projectService;
+        this.membershipService = membershipService;
+        this.userRepository = userRepository;
+        this.projectRepository = projectRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ndjsonReader = objectMapper.readerFor(ImportRowDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.csvReader = new CsvMapper().readerFor(ImportRowDTO.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .with(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * Imports users, projects and memberships from an NDJSON or CSV stream.
+     * Rows are parsed one at a time and written in transactions of {@value #BATCH_SIZE} rows,
+     * so neither the upload nor the parsed rows are ever held in memory as a whole.
+     * Within a batch, users and projects are created before memberships are resolved; a membership
+     * names its user by email and its project by name, looked up among the rows imported so far
+     * and then in the database. Invalid and unresolvable rows are counted and skipped.
+     * Each batch commits on its own. When a batch fails, it is rolled back and the import stops there,
+     * but the batches before it stay committed; the summary then reports the failure and the rows
+     * committed, and only counts what those rows created.
+     *
+     * @param input  The uploaded data.
+     * @param format The format of the data, either "ndjson" or "csv" (with a header row).
+     * @return The number of rows read, committed, created and rejected, the throughput, and whether the import failed.
+     * @throws BadRequestException if the format is unsupported or the input is malformed.
+     * @throws IOException if the input cannot be read.
+     */
+    @Override
+    public ImportSummaryDTO importData(InputStream input, String format) throws IOException {
+        long start = System.nanoTime();
+        Import state = new Import();
+
+        try (MappingIterator<ImportRowDTO> rows = reader(format).readValues(input)) {
+            List<ImportRowDTO> batch = new ArrayList<>(BATCH_SIZE);
+            List<Long> rowNumbers = new ArrayList<>(BATCH_SIZE);
+            long rowNumber = 0;
+            while (true) {
+                ImportRowDTO row;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    rowNumber++;
+                    row = rows.nextValue();
+                } catch (JsonMappingException e) {
+                    state.reject(rowNumber, "Invalid row: " + e.getOriginalMessage());
+                    continue;
+                } catch (JsonProcessingException e) {
+                    throw new BadRequestException("Malformed input at row " + rowNumber + ": " + e.getOriginalMessage(), e);
+                }
+                batch.add(row);
+                rowNumbers.add(rowNumber);
+                if (batch.size() == BATCH_SIZE) {
+                    if (!commit(state, batch, rowNumbers)) {
+                        break;
+                    }
+                    batch.clear();
+                    rowNumbers.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                commit(state, batch, rowNumbers);
+            }
+            if (state.summary.getFailure() == null) {
+                // Rows rejected while parsing after the last batch count as committed too
+                state.commit(rowNumber);
+            }
+            state.summary.setRows(rowNumber);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        state.summary.setElapsedMillis(elapsedNanos / 1_000_000);
+        state.summary.setRowsPerSecond(elapsedNanos == 0 ? 0 : state.summary.getRows() * 1e9 / elapsedNanos);
+        return state.summary;
+    }
+
+    private ObjectReader reader(String format) {
+        if (FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            return ndjsonReader;
+        }
+        if (FORMAT_CSV.equalsIgnoreCase(format)) {
+            return csvReader;
+        }
+        throw new BadRequestException("Unsupported format: " + format);
+    }
+
+    /**
+     * Writes one batch in its own transaction. When the batch fails, it is rolled back, what it counted
+     * is dropped from the summary, and the summary records the failure; earlier batches stay committed.
+     *
+     * @return Whether the batch was committed.
+     */
+    private boolean commit(Import state, List<ImportRowDTO> batch, List<Long> rowNumbers) {
+        long first = rowNumbers.get(0);
+        long last = rowNumbers.get(rowNumbers.size() - 1);
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(state, batch, rowNumbers));
+        } catch (RuntimeException e) {
+            log.error("Import of rows {} to {} failed and was rolled back", first, last, e);
+            state.rollBack();
+            state.summary.setFailure("The batch of rows " + first + " to " + last + " failed and was rolled back,"
+                    + " so the import stopped; the rows up to row " + state.summary.getCommittedRows() + " stay committed");
+            return false;
+        }
+        state.commit(last);
+        return true;
+    }
+
+    /**
+     * Writes one batch of rows: users, then projects, then the memberships between them.
+     */
+    private void write(Import state, List<ImportRowDTO> batch, List<Long> rowNumbers) {
+        List<UserDTO> users = new ArrayList<>();
+        List<Long> userRows = new ArrayList<>();
+        List<ProjectDTO> projects = new ArrayList<>();
+        List<Long> projectRows = new ArrayList<>();
+        List<ImportRowDTO> memberships = new ArrayList<>();
+        List<Long> membershipRows = new ArrayList<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            ImportRowDTO row = batch.get(i);
+            String type = row.getType() == null ? "" : row.getType().toLowerCase(Locale.ROOT);
+            switch (type) {
+                case TYPE_USER:
+                    UserDTO userDTO = new UserDTO();
+                    userDTO.setName(row.getName());
+                    userDTO.setEmail(row.getEmail());
+                    userDTO.setPassword(row.getPassword());
+                    users.add(userDTO);
+                    userRows.add(rowNumbers.get(i));
+                    break;
+                case TYPE_PROJECT:
+                    ProjectDTO projectDTO = new ProjectDTO();
+                    projectDTO.setName(row.getName());
+                    projectDTO.setDescription(row.getDescription());
+                    projects.add(projectDTO);
+                    projectRows.add(rowNumbers.get(i));
+                    break;
+                case TYPE_MEMBERSHIP:
+                    memberships.add(row);
+                    membershipRows.add(rowNumbers.get(i));
+                    break;
+                default:
+                    state.reject(rowNumbers.get(i), "Unknown row type: " + row.getType());
+            }
+        }
+
+        if (!users.isEmpty()) {
+            BatchResultDTO result = userService.createUsers(users);
+            for (int i = 0; i < users.size(); i++) {
+                Long id = result.getCreatedIds().get(i);
+                if (id != null) {
+                    state.userIds.put(users.get(i).getEmail(), id);
+                    state.summary.setUsersCreated(state.summary.getUsersCreated() + 1);
+                }
+            }
+            result.getErrors().forEach(error -> state.reject(userRows.get((int) error.getIndex()), error.getMessage()));
+        }
+        if (!projects.isEmpty()) {
+            BatchResultDTO result = projectService.createProjects(projects);
+            for (int i = 0; i < projects.size(); i++) {
+                Long id = result.getCreatedIds().get(i);
+                if (id != null) {
+                    state.projectIds.asMap().putIfAbsent(projects.get(i).getName(), id);
+                    state.summary.setProjectsCreated(state.summary.getProjectsCreated() + 1);
+                }
+            }
+            result.getErrors().forEach(error -> state.reject(projectRows.get((int) error.getIndex()), error.getMessage()));
+        }
+        if (!memberships.isEmpty()) {
+            writeMemberships(state, memberships, membershipRows);
+        }
+    }
+
+    private void writeMemberships(Import state, List<ImportRowDTO> memberships, List<Long> rowNumbers) {
+        Set<String> emails = new LinkedHashSet<>();
+        Set<String> names = new LinkedHashSet<>();
+        for (ImportRowDTO row : memberships) {
+            if (row.getEmail() != null) {
+                emails.add(row.getEmail());
+            }
+            if (row.getProject() != null) {
+                names.add(row.getProject());
+            }
+        }
+        resolve(state.userIds, emails, userRepository::findIdsByEmails);
+        resolve(state.projectIds, names, projectRepository::findFirstIdsByNames);
+
+        Map<Long, List<Long>> usersByProject = new LinkedHashMap<>();
+        for (int i = 0; i < memberships.size(); i++) {
+            ImportRowDTO row = memberships.get(i);
+            Long userId = row.getEmail() == null ? null : state.userIds.getIfPresent(row.getEmail());
+            Long projectId = row.getProject() == null ? null : state.projectIds.getIfPresent(row.getProject());
+            if (userId == null) {
+                state.reject(rowNumbers.get(i), "Unknown user: " + row.getEmail());
+            } else if (projectId == null) {
+                state.reject(rowNumbers.get(i), "Unknown project: " + row.getProject());
+            } else {
+                usersByProject.computeIfAbsent(projectId, id -> new ArrayList<>()).add(userId);
+            }
+        }
+        usersByProject.forEach((projectId, userIds) -> {
+            int created = membershipService.addUsers(projectId, userIds).getAffected();
+            state.summary.setMembershipsCreated(state.summary.getMembershipsCreated() + created);
+        });
+    }
+
+    /**
+     * Adds the IDs of the keys missing from the lookup, fetched with one query.
+     */
+    private static void resolve(Cache<String, Long> lookup, Set<String> keys,
+                                Function<Collection<String>, List<Object[]>> query) {
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            if (lookup.getIfPresent(key) == null) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (Object[] row : query.apply(missing)) {
+            lookup.put((String) row[0], ((Number) row[1]).longValue());
+        }
+    }
+
+    /**
+     * The running state of one import: counters, the first errors, and bounded
+     * email and project name lookups, so memory use does not grow with the input.
+     * The counters as of the last committed batch are kept, to drop what a failed batch counted.
+     */
+    private static final class Import {
+
+        private final ImportSummaryDTO summary = new ImportSummaryDTO();
+        private final List<BatchErrorDTO> errors = new ArrayList<>();
+        private final Cache<String, Long> userIds = Caffeine.newBuilder().maximumSize(MAX_LOOKUP_SIZE).build();
+        private final Cache<String, Long> projectIds = Caffeine.newBuilder().maximumSize(MAX_LOOKUP_SIZE).build();
+        private final ImportSummaryDTO committed = new ImportSummaryDTO();
+        private int committedErrors;
+
+        private Import() {
+            summary.setErrors(errors);
+        }
+
+        private void reject(long rowNumber, String message) {
+            summary.setRejected(summary.getRejected() + 1);
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new BatchErrorDTO(rowNumber, message));
+            }
+        }
+
+        private void commit(long rowNumber) {
+            summary.setCommittedRows(rowNumber);
+            committed.setUsersCreated(summary.getUsersCreated());
+            committed.setProjectsCreated(summary.getProjectsCreated());
+            committed.setMembershipsCreated(summary.getMembershipsCreated());
+            committed.setRejected(summary.getRejected());
+            committedErrors = errors.size();
+        }
+
+        private void rollBack() {
+            summary.setUsersCreated(committed.getUsersCreated());
+            summary.setProjectsCreated(committed.getProjectsCreated());
+            summary.setMembershipsCreated(committed.getMembershipsCreated());
+            summary.setRejected(committed.getRejected());
+            errors.subList(committedErrors, errors.size()).clear();
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.services.AfterCommit;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.Cursor;
+import com.joshbarrosweb.projectmanager.services.MembershipIndexService;
+import com.joshbarrosweb.projectmanager.services.ServiceUnavailableException;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Set algebra over memberships, served from an in-memory index of compressed bitmaps:
+ * the users of each project and the projects of each user, as {@link RoaringBitmap}s.
+ *
+ * Intersections, unions, differences and their cardinalities are computed on the bitmaps, without
+ * touching the database or loading any collection. IDs are stored as unsigned 32-bit values, so
+ * IDs above 4294967295 cannot be indexed and are logged and skipped.
+ *
+ * The index is loaded from project_user once the application has started, unless
+ * {@code projectmanager.memberships.load-on-startup} is false, and the membership service reports every
+ * change afterwards, which is applied once it has committed. Memberships written past the services
+ * are only seen after the next start. Until the first load has completed, queries are refused with a
+ * {@link ServiceUnavailableException} rather than answered from an empty index. A reload builds new
+ * bitmaps aside and replays the changes that committed meanwhile before swapping them in. Queries share
+ * a read lock and updates take the write lock, so a query never sees a half-applied change.
+ */
+@Service
+public class MembershipIndexServiceImpl implements MembershipIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(MembershipIndexServiceImpl.class);
+
+    private static final long MAX_ID = 0xFFFFFFFFL;
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+    private static final Function<Bitmaps, Map<Long, RoaringBitmap>> USERS_BY_PROJECT = bitmaps -> bitmaps.usersByProject;
+    private static final Function<Bitmaps, Map<Long, RoaringBitmap>> PROJECTS_BY_USER = bitmaps -> bitmaps.projectsByUser;
+
+    private final ProjectRepository projectRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean loadOnStartup;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by the lock
+    private Bitmaps bitmaps = new Bitmaps();
+    // Updates applied while a reload runs, to replay on the new bitmaps; null when no reload runs. Guarded by the lock
+    private List<Consumer<Bitmaps>> pending;
+    private volatile boolean ready;
+
+    @Autowired
+    public MembershipIndexServiceImpl(ProjectRepository projectRepository, PlatformTransactionManager transactionManager,
+                                      @Value("${projectmanager.memberships.load-on-startup:true}") boolean loadOnStartup) {
+        this.projectRepository = projectRepository;
+        // Not read-only, so the load is never routed to a replica that may not have the latest changes yet
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loadOnStartup = loadOnStartup;
+    }
+
+    /**
+     * Lists the users that are members of all, or of any, of the given projects and of none of the excluded ones,
+     * in ID order.
+     *
+     * @param op                 Either "intersection" or "union".
+     * @param projectIds         The IDs of the projects to combine.
+     * @param excludedProjectIds The IDs of the projects whose members are subtracted, may be null or empty.
+     * @param after              The cursor returned by the previous page, empty for the first page.
+     * @param size               The maximum number of user IDs to return.
+     * @return A page of user IDs and the cursor of the next page, if any.
+     * @throws BadRequestException         if the operation, the number of projects, the cursor or the size is invalid.
+     * @throws ServiceUnavailableException if the index has not been loaded yet.
+     */
+    @Override
+    public CursorPageDTO<Long> findUsers(String op, Collection<Long> projectIds, Collection<Long> excludedProjectIds,
+                                         String after, int size) {
+        Cursor.checkPageSize(size);
+        Long afterId = after == null || after.isEmpty() ? null : Cursor.decode(after, Cursor.SORT_ID).getId();
+        return page(evaluate(USERS_BY_PROJECT, op, projectIds, excludedProjectIds), afterId, size);
+    }
+
+    /**
+     * Counts the users that are members of all, or of any, of the given projects and of none of the excluded ones.
+     *
+     * @param op                 Either "intersection" or "union".
+     * @param projectIds         The IDs of the projects to combine.
+     * @param excludedProjectIds The IDs of the projects whose members are subtracted, may be null or empty.
+     * @return The number of distinct users.
+     * @throws BadRequestException         if the operation or the number of projects is invalid.
+     * @throws ServiceUnavailableException if the index has not been loaded yet.
+     */
+    @Override
+    public long countUsers(String op, Collection<Long> projectIds, Collection<Long> excludedProjectIds) {
+        return evaluate(USERS_BY_PROJECT, op, projectIds, excludedProjectIds).getLongCardinality();
+    }
+
+    /**
+     * Lists the projects that all, or any, of the given users are members of and none of the excluded ones are,
+     * in ID order.
+     *
+     * @param op              Either "intersection" or "union".
+     * @param userIds         The IDs of the users to combine.
+     * @param excludedUserIds The IDs of the users whose projects are subtracted, may be null or empty.
+     * @param after           The cursor returned by the previous page, empty for the first page.
+     * @param size            The maximum number of project IDs to return.
+     * @return A page of project IDs and the cursor of the next page, if any.
+     * @throws BadRequestException         if the operation, the number of users, the cursor or the size is invalid.
+     * @throws ServiceUnavailableException if the index has not been loaded yet.
+     */
+    @Override
+    public CursorPageDTO<Long> findProjects(String op, Collection<Long> userIds, Collection<Long> excludedUserIds,
+                                            String after, int size) {
+        Cursor.checkPageSize(size);
+        Long afterId = after == null || after.isEmpty() ? null : Cursor.decode(after, Cursor.SORT_ID).getId();
+        return page(evaluate(PROJECTS_BY_USER, op, userIds, excludedUserIds), afterId, size);
+    }
+
+    /**
+     * Counts the projects that all, or any, of the given users are members of and none of the excluded ones are.
+     *
+     * @param op              Either "intersection" or "union".
+     * @param userIds         The IDs of the users to combine.
+     * @param excludedUserIds The IDs of the users whose projects are subtracted, may be null or empty.
+     * @return The number of distinct projects.
+     * @throws BadRequestException         if the operation or the number of users is invalid.
+     * @throws ServiceUnavailableException if the index has not been loaded yet.
+     */
+    @Override
+    public long countProjects(String op, Collection<Long> userIds, Collection<Long> excludedUserIds) {
+        return evaluate(PROJECTS_BY_USER, op, userIds, excludedUserIds).getLongCardinality();
+    }
+
+    /**
+     * Adds memberships after commit.
+     *
+     * @param projectId The ID of the project.
+     * @param userIds   The IDs of the users that became members.
+     */
+    @Override
+    public void addMembers(Long projectId, Collection<Long> userIds) {
+        List<Long> ids = new ArrayList<>(userIds);
+        update(current -> ids.forEach(userId -> current.add(projectId, userId)));
+    }
+
+    /**
+     * Removes memberships after commit.
+     *
+     * @param projectId The ID of the project.
+     * @param userIds   The IDs of the users that stopped being members.
+     */
+    @Override
+    public void removeMembers(Long projectId, Collection<Long> userIds) {
+        List<Long> ids = new ArrayList<>(userIds);
+        update(current -> ids.forEach(userId -> current.remove(projectId, userId)));
+    }
+
+    /**
+     * Removes all memberships of a project after commit.
+     *
+     * @param projectId The ID of the project.
+     */
+    @Override
+    public void removeProject(Long projectId) {
+        update(current -> {
+            RoaringBitmap userIds = current.usersByProject.get(projectId);
+            if (userIds != null) {
+                for (int userId : userIds.toArray()) {
+                    current.remove(projectId, Integer.toUnsignedLong(userId));
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes all memberships of a user after commit.
+     *
+     * @param userId The ID of the user.
+     */
+    @Override
+    public void removeUser(Long userId) {
+        update(current -> {
+            RoaringBitmap projectIds = current.projectsByUser.get(userId);
+            if (projectIds != null) {
+                for (int projectId : projectIds.toArray()) {
+                    current.remove(Integer.toUnsignedLong(projectId), userId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reloads the index from project_user, in one transaction on the primary.
+     * The new bitmaps are built aside while queries keep seeing the old ones, which also keep following
+     * committed changes. Those changes are then replayed on the new bitmaps, which are swapped in at once.
+     *
+     * @return The number of memberships loaded.
+     */
+    @Override
+    public synchronized long rebuild() {
+        long start = System.nanoTime();
+        Bitmaps fresh = new Bitmaps();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Long loaded;
+        try {
+            loaded = transactionTemplate.execute(status -> load(fresh));
+            fresh.usersByProject.values().forEach(RoaringBitmap::runOptimize);
+            fresh.projectsByUser.values().forEach(RoaringBitmap::runOptimize);
+
+            lock.writeLock().lock();
+            try {
+                pending.forEach(update -> update.accept(fresh));
+                bitmaps = fresh;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Loaded {} memberships into the membership index in {} ms", loaded,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return loaded == null ? 0 : loaded;
+    }
+
+    /**
+     * Loads the index once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        if (loadOnStartup) {
+            rebuild();
+        }
+    }
+
+    private long load(Bitmaps target) {
+        long loaded = 0;
+        try (Stream<Object[]> stream = projectRepository.streamMembershipRows()) {
+            Iterator<Object[]> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                long projectId = ((Number) row[0]).longValue();
+                long userId = ((Number) row[1]).longValue();
+                if (target.add(projectId, userId)) {
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Combines the bitmaps of the given keys under the read lock, into a new bitmap the caller owns.
+     * Intersections start from the smallest bitmap and stop as soon as the result is empty.
+     * Keys that are not indexed count as empty sets.
+     */
+    private RoaringBitmap evaluate(Function<Bitmaps, Map<Long, RoaringBitmap>> side, String op, Collection<Long> ids,
+                                   Collection<Long> excludedIds) {
+        if (!OP_INTERSECTION.equals(op) && !OP_UNION.equals(op)) {
+            throw new BadRequestException("Unsupported operation: " + op);
+        }
+        Set<Long> included = distinct(ids);
+        Set<Long> excluded = distinct(excludedIds);
+        if (included.isEmpty() || included.size() + excluded.size() > MAX_SETS) {
+            throw new BadRequestException("Between 1 and " + MAX_SETS + " IDs must be given");
+        }
+        if (!ready) {
+            throw new ServiceUnavailableException("The membership index is still loading, try again later");
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, RoaringBitmap> sets = side.apply(bitmaps);
+            List<RoaringBitmap> operands = new ArrayList<>(included.size());
+            for (Long id : included) {
+                operands.add(sets.getOrDefault(id, EMPTY));
+            }
+            RoaringBitmap result;
+            if (OP_INTERSECTION.equals(op)) {
+                operands.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+                result = operands.get(0).clone();
+                for (int i = 1; i < operands.size() && !result.isEmpty(); i++) {
+                    result.and(operands.get(i));
+                }
+            } else {
+                result = new RoaringBitmap();
+                operands.forEach(result::or);
+            }
+            for (Long id : excluded) {
+                if (result.isEmpty()) {
+                    break;
+                }
+                result.andNot(sets.getOrDefault(id, EMPTY));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static CursorPageDTO<Long> page(RoaringBitmap result, Long afterId, int size) {
+        List<Long> ids = new ArrayList<>(size);
+        if (afterId == null || afterId < MAX_ID) {
+            PeekableIntIterator iterator = result.getIntIterator();
+            if (afterId != null && afterId >= 0) {
+                iterator.advanceIfNeeded((int) (afterId + 1));
+            }
+            while (iterator.hasNext() && ids.size() < size) {
+                ids.add(Integer.toUnsignedLong(iterator.next()));
+            }
+            if (iterator.hasNext()) {
+                return new CursorPageDTO<>(ids, Cursor.of(Cursor.SORT_ID, null, ids.get(ids.size() - 1)).encode());
+            }
+        }
+        return new CursorPageDTO<>(ids, null);
+    }
+
+    private static Set<Long> distinct(Collection<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>();
+        if (ids != null) {
+            ids.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        return distinct;
+    }
+
+    private static boolean indexable(long id) {
+        if (id < 0 || id > MAX_ID) {
+            log.warn("Skipping ID {} outside of the range of the membership index", id);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies an update under the write lock after commit, so a change that is rolled back is never seen.
+     * While a reload runs, the update is also kept to be replayed on the new bitmaps.
+     */
+    private void update(Consumer<Bitmaps> update) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                update.accept(bitmaps);
+                if (pending != null) {
+                    pending.add(update);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * The users of each project and the projects of each user.
+     */
+    private static final class Bitmaps {
+        private final Map<Long, RoaringBitmap> usersByProject = new HashMap<>();
+        private final Map<Long, RoaringBitmap> projectsByUser = new HashMap<>();
+
+        /**
+         * Adds a membership, unless an ID cannot be indexed.
+         *
+         * @return Whether the membership was indexed.
+         */
+        private boolean add(long projectId, long userId) {
+            if (!indexable(projectId) || !indexable(userId)) {
+                return false;
+            }
+            usersByProject.computeIfAbsent(projectId, id -> new RoaringBitmap()).add((int) userId);
+            projectsByUser.computeIfAbsent(userId, id -> new RoaringBitmap()).add((int) projectId);
+            return true;
+        }
+
+        private void remove(long projectId, long userId) {
+            if (indexable(projectId) && indexable(userId)) {
+                removeFrom(usersByProject, projectId, (int) userId);
+                removeFrom(projectsByUser, userId, (int) projectId);
+            }
+        }
+
+        /**
+         * Removes a value from a key's bitmap, dropping the bitmap once it is empty.
+         */
+        private static void removeFrom(Map<Long, RoaringBitmap> sets, long key, int value) {
+            RoaringBitmap set = sets.get(key);
+            if (set != null) {
+                set.remove(value);
+                if (set.isEmpty()) {
+                    sets.remove(key);
+                }
+            }
+        }
+    }
+}
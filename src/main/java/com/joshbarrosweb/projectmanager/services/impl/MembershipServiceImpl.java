@@ -0,0 +1,186 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.config.CacheConfig;
+import com.joshbarrosweb.projectmanager.dtos.MembershipResultDTO;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.AfterCommit;
+import com.joshbarrosweb.projectmanager.services.Batches;
+import com.joshbarrosweb.projectmanager.services.MembershipIndexService;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+@Service
+public class MembershipServiceImpl implements MembershipService {
+
+    private final ProjectRepository projectRepository;
+    private final UserRepository userRepository;
+    private final CacheManager cacheManager;
+    private final MembershipIndexService membershipIndexService;
+
+    @Autowired
+    public MembershipServiceImpl(ProjectRepository projectRepository, UserRepository userRepository, CacheManager cacheManager,
+                                 MembershipIndexService membershipIndexService) {
+        this.projectRepository = projectRepository;
+        this.userRepository = userRepository;
+        this.cacheManager = cacheManager;
+        this.membershipIndexService = membershipIndexService;
+    }
+
+    /**
+     * Assigns users to a project.
+     * Writes straight to the join table, one statement per chunk of IDs, without loading
+     * either side's collection. Unknown users and existing memberships are skipped.
+     * When memberships change, the versions of the project and of the users added are incremented,
+     * and the project's member count is increased by the number created. The membership index
+     * is updated, and the cached collaborator lists of the project's members are evicted, once the transaction commits.
+     *
+     * @param projectId The ID of the project.
+     * @param userIds   The IDs of the users to assign.
+     * @return The number of distinct users requested and of memberships created.
+     * @throws RuntimeException if the project is not found.
+     * @throws BadRequestException if no user IDs, or too many, are given.
+     */
+    @Override
+    @Transactional
+    public MembershipResultDTO addUsers(Long projectId, Collection<Long> userIds) {
+        return apply(projectId, userIds, projectRepository::insertMemberships, true);
+    }
+
+    /**
+     * Removes users from a project.
+     * Deletes straight from the join table, one statement per chunk of IDs, without loading
+     * either side's collection. Users that are not members are ignored.
+     * When memberships change, the versions of the project and of the users removed are incremented,
+     * and the project's member count is decreased by the number removed. The membership index
+     * is updated, and the cached collaborator lists of the project's members are evicted, once the transaction commits.
+     *
+     * @param projectId The ID of the project.
+     * @param userIds   The IDs of the users to remove.
+     * @return The number of distinct users requested and of memberships removed.
+     * @throws RuntimeException if the project is not found.
+     * @throws BadRequestException if no user IDs, or too many, are given.
+     */
+    @Override
+    @Transactional
+    public MembershipResultDTO removeUsers(Long projectId, Collection<Long> userIds) {
+        return apply(projectId, userIds, projectRepository::deleteMemberships, false);
+    }
+
+    private MembershipResultDTO apply(Long projectId, Collection<Long> userIds,
+                                      BiFunction<Long, Collection<Long>, Integer> statement, boolean add) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        ids.removeIf(Objects::isNull);
+        Batches.checkBatchSize(ids.size());
+        if (!projectRepository.existsById(projectId)) {
+            throw new RuntimeException("Project not found");
+        }
+
+        // Only the users whose membership actually changes get a new version, an eviction and an index update
+        Set<Long> before = new HashSet<>(projectRepository.findUserIdsByProjectId(projectId));
+        List<Long> candidates = new ArrayList<>(ids);
+        candidates.removeIf(id -> before.contains(id) == add);
+        int affected = 0;
+        List<Long> changed = new ArrayList<>();
+        for (int start = 0; start < candidates.size(); start += Batches.CHUNK_SIZE) {
+            List<Long> chunk = candidates.subList(start, Math.min(start + Batches.CHUNK_SIZE, candidates.size()));
+            int chunkAffected = statement.apply(projectId, chunk);
+            affected += chunkAffected;
+            if (!add || chunkAffected == chunk.size()) {
+                // A member removed meanwhile by someone else is bumped too, which is harmless
+                changed.addAll(chunk);
+            } else if (chunkAffected > 0) {
+                // Some IDs were skipped as unknown users, only keep the members
+                changed.addAll(projectRepository.findUserIdsByProjectIdAndUserIds(projectId, chunk));
+            }
+        }
+        if (affected > 0) {
+            projectRepository.addMembers(Collections.singletonList(projectId), (long) (add ? affected : -affected));
+            incrementVersions(userRepository::incrementVersions, changed);
+            AfterCommit.evict(cacheManager, CacheConfig.PROJECTS, Collections.singletonList(projectId));
+            AfterCommit.evict(cacheManager, CacheConfig.USERS, changed);
+            // The changed users now share one project more, or less, with every member, and every member with them
+            Set<Long> collaborators = new HashSet<>(before);
+            collaborators.addAll(changed);
+            AfterCommit.evict(cacheManager, CacheConfig.COLLABORATORS, collaborators);
+            if (add) {
+                membershipIndexService.addMembers(projectId, changed);
+            } else {
+                membershipIndexService.removeMembers(projectId, changed);
+            }
+        }
+        return new MembershipResultDTO(ids.size(), affected);
+    }
+
+    /**
+     * Removes all users from a project, typically before the project is deleted.
+     * The users' versions are incremented and their cached DTOs and collaborator lists evicted,
+     * as their project IDs change, and the project's member count is reset.
+     *
+     * @param projectId The ID of the project.
+     * @return The IDs of the users that were members.
+     */
+    @Override
+    @Transactional
+    public List<Long> removeAllUsers(Long projectId) {
+        List<Long> userIds = projectRepository.findUserIdsByProjectId(projectId);
+        if (!userIds.isEmpty()) {
+            projectRepository.deleteAllMemberships(projectId);
+            projectRepository.addMembers(Collections.singletonList(projectId), (long) -userIds.size());
+            incrementVersions(userRepository::incrementVersions, userIds);
+            AfterCommit.evict(cacheManager, CacheConfig.USERS, userIds);
+            AfterCommit.evict(cacheManager, CacheConfig.COLLABORATORS, userIds);
+            membershipIndexService.removeProject(projectId);
+        }
+        return userIds;
+    }
+
+    /**
+     * Removes a user from all of its projects, typically before the user is deleted.
+     * The projects' versions are incremented and their member counts decremented,
+     * and their cached DTOs evicted, as their user IDs change. The cached collaborator lists
+     * of the user and of everyone it shared a project with are evicted too.
+     *
+     * @param userId The ID of the user.
+     * @return The IDs of the projects the user was a member of.
+     */
+    @Override
+    @Transactional
+    public List<Long> removeUserFromAllProjects(Long userId) {
+        List<Long> projectIds = userRepository.findProjectIdsByUserId(userId);
+        if (!projectIds.isEmpty()) {
+            List<Long> collaborators = new ArrayList<>(userRepository.findCollaboratorIds(userId));
+            collaborators.add(userId);
+            userRepository.deleteAllMemberships(userId);
+            incrementVersions(chunk -> projectRepository.addMembers(chunk, -1L), projectIds);
+            AfterCommit.evict(cacheManager, CacheConfig.PROJECTS, projectIds);
+            AfterCommit.evict(cacheManager, CacheConfig.COLLABORATORS, collaborators);
+            membershipIndexService.removeUser(userId);
+        }
+        return projectIds;
+    }
+
+    /**
+     * Increments the versions of the given rows, one statement per chunk of IDs,
+     * so the ETags of everything whose memberships changed change too.
+     */
+    private static void incrementVersions(Function<Collection<Long>, Integer> statement, List<Long> ids) {
+        for (int start = 0; start < ids.size(); start += Batches.CHUNK_SIZE) {
+            statement.apply(ids.subList(start, Math.min(start + Batches.CHUNK_SIZE, ids.size())));
+        }
+    }
+}
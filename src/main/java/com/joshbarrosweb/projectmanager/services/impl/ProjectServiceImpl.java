@@ -1,73 +1,306 @@
 package com.joshbarrosweb.projectmanager.services.impl;
 
+import com.joshbarrosweb.projectmanager.config.CacheConfig;
+import com.joshbarrosweb.projectmanager.dtos.BatchErrorDTO;
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.MemberDTO;
 import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
-import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
 import com.joshbarrosweb.projectmanager.entities.Project;
-import com.joshbarrosweb.projectmanager.entities.User;
 import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.services.AfterCommit;
+import com.joshbarrosweb.projectmanager.services.AutocompleteService;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.Batches;
 import com.joshbarrosweb.projectmanager.services.ConverterService;
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import com.joshbarrosweb.projectmanager.services.Cursor;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
 import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.services.SearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProjectServiceImpl implements ProjectService {
 
     private final ProjectRepository projectRepository;
+    private final MembershipService membershipService;
+    private final CounterService counterService;
+    private final SearchService searchService;
+    private final AutocompleteService autocompleteService;
     private final ConverterService converterService;
+    private final CacheManager cacheManager;
+    private final Validator validator;
+    private final EntityManager entityManager;
 
     @Autowired
-    public ProjectServiceImpl(ProjectRepository projectRepository, ConverterService converterService) {
+    public ProjectServiceImpl(ProjectRepository projectRepository, MembershipService membershipService,
+                              CounterService counterService, SearchService searchService,
+                              AutocompleteService autocompleteService, ConverterService converterService,
+                              CacheManager cacheManager, Validator validator, EntityManager entityManager) {
         this.projectRepository = projectRepository;
+        this.membershipService = membershipService;
+        this.counterService = counterService;
+        this.searchService = searchService;
+        this.autocompleteService = autocompleteService;
         this.converterService = converterService;
+        this.cacheManager = cacheManager;
+        this.validator = validator;
+        this.entityManager = entityManager;
     }
 
     /**
      * Creates a new project.
+     * The project counter is incremented in the same transaction,
+     * and the project is indexed for search and autocomplete once it commits.
      *
      * @param projectDTO The project DTO containing project information.
      * @return The created project DTO.
      */
     @Override
+    @Transactional
     public ProjectDTO createProject(ProjectDTO projectDTO) {
         Project project = converterService.convertToEntity(projectDTO);
+        project.setId(null);
         Project savedProject = projectRepository.save(project);
+        counterService.addProjects(1);
+        searchService.indexProject(savedProject.getId(), savedProject.getName(), savedProject.getDescription());
+        autocompleteService.putProject(savedProject.getId(), savedProject.getName());
         return converterService.convertToDto(savedProject);
     }
 
+    /**
+     * Creates projects in bulk.
+     * Valid projects are inserted in chunks, each flushed as JDBC batches with pooled sequence IDs;
+     * invalid projects are reported and skipped. The project counter is incremented once for the whole batch,
+     * and the created projects are indexed for search and autocomplete once it commits.
+     *
+     * @param projectDTOs The project DTOs containing project information.
+     * @return The created IDs, in request order, and the per-item errors.
+     * @throws BadRequestException if the batch is empty or too large.
+     */
+    @Override
+    @Transactional
+    public BatchResultDTO createProjects(List<ProjectDTO> projectDTOs) {
+        Batches.checkBatchSize(projectDTOs.size());
+        List<Long> createdIds = new ArrayList<>(Collections.nCopies(projectDTOs.size(), null));
+        List<BatchErrorDTO> errors = new ArrayList<>();
+
+        for (int start = 0; start < projectDTOs.size(); start += Batches.CHUNK_SIZE) {
+            List<ProjectDTO> chunk = projectDTOs.subList(start, Math.min(start + Batches.CHUNK_SIZE, projectDTOs.size()));
+            List<Project> projects = new ArrayList<>(chunk.size());
+            List<Integer> indexes = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                String error = Batches.validate(validator, chunk.get(i));
+                if (error != null) {
+                    errors.add(new BatchErrorDTO(start + i, error));
+                    continue;
+                }
+                Project project = converterService.convertToEntity(chunk.get(i));
+                project.setId(null);
+                projects.add(project);
+                indexes.add(start + i);
+            }
+
+            projectRepository.saveAll(projects);
+            entityManager.flush();
+            entityManager.clear();
+            for (int i = 0; i < projects.size(); i++) {
+                Project project = projects.get(i);
+                createdIds.set(indexes.get(i), project.getId());
+                searchService.indexProject(project.getId(), project.getName(), project.getDescription());
+                autocompleteService.putProject(project.getId(), project.getName());
+            }
+        }
+        counterService.addProjects(projectDTOs.size() - errors.size());
+        return new BatchResultDTO(createdIds, errors);
+    }
+
     /**
      * Retrieves a page of projects.
+     * The total is read from the project counter instead of counting the table, and the user IDs
+     * of the whole page are loaded with one query on the join table.
      *
      * @param pageable The pageable information.
      * @return A page of project DTOs.
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<ProjectDTO> listProjects(Pageable pageable) {
-        Page<Project> projects = projectRepository.findAll(pageable);
-        return projects.map(converterService::convertToDto);
+        List<Project> projects = projectRepository.findAllBy(pageable).getContent();
+        Map<Long, Set<Long>> userIds = userIdsOf(projects);
+        List<ProjectDTO> content = projects.stream()
+                .map(project -> converterService.convertToDto(project, userIds.get(project.getId())))
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, counterService.countProjects());
+    }
+
+    /**
+     * Retrieves the number of projects from the project counter.
+     *
+     * @return The number of projects.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countProjects() {
+        return counterService.countProjects();
+    }
+
+    /**
+     * Retrieves a slice of projects, without a count query.
+     * One extra row is fetched to tell whether there is a next slice.
+     *
+     * @param pageable The pageable information.
+     * @return A slice of project DTOs.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SliceDTO<ProjectDTO> listProjectSlice(Pageable pageable) {
+        return toSliceDto(projectRepository.findAllBy(pageable));
+    }
+
+    /**
+     * Streams every project, ordered by ID, to a consumer.
+     * Rows are read through a forward-only cursor and handled in chunks: the user IDs of each chunk
+     * are loaded with one query, and the persistence context is cleared once the chunk is emitted,
+     * so memory use does not grow with the number of projects.
+     *
+     * @param consumer Receives each project DTO in turn.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportProjects(Consumer<ProjectDTO> consumer) {
+        try (Stream<Project> projects = projectRepository.streamAllByOrderByIdAsc()) {
+            List<Project> chunk = new ArrayList<>(Batches.CHUNK_SIZE);
+            Iterator<Project> iterator = projects.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == Batches.CHUNK_SIZE || !iterator.hasNext()) {
+                    Map<Long, Set<Long>> userIds = userIdsOf(chunk);
+                    for (Project project : chunk) {
+                        consumer.accept(converterService.convertToDto(project, userIds.get(project.getId())));
+                    }
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves a page of projects using keyset pagination.
+     * Seeks past the cursor position on an indexed column and never issues a count query.
+     *
+     * @param after The cursor returned by the previous page, or an empty string for the first page.
+     * @param size  The maximum number of projects to return.
+     * @param sort  The sort key, either "id" or "name".
+     * @return A cursor page of project DTOs.
+     * @throws BadRequestException if the cursor, size or sort is invalid.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProjectDTO> listProjects(String after, int size, String sort) {
+        Cursor.checkPageSize(size);
+        Cursor cursor = after == null || after.isEmpty() ? null : Cursor.decode(after, sort);
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        List<Project> projects;
+        if (Cursor.SORT_ID.equals(sort)) {
+            projects = cursor == null
+                    ? projectRepository.findAllByOrderByIdAsc(limit)
+                    : projectRepository.findByIdGreaterThanOrderByIdAsc(cursor.getId(), limit);
+        } else if (Cursor.SORT_NAME.equals(sort)) {
+            projects = cursor == null
+                    ? projectRepository.findAllByOrderByNameAscIdAsc(limit)
+                    : projectRepository.findAfterName(cursor.getKey(), cursor.getId(), limit);
+        } else {
+            throw new BadRequestException("Unsupported sort: " + sort);
+        }
+
+        String nextCursor = null;
+        if (projects.size() > size) {
+            projects = projects.subList(0, size);
+            Project last = projects.get(size - 1);
+            String key = Cursor.SORT_NAME.equals(sort) ? last.getName() : null;
+            nextCursor = Cursor.of(sort, key, last.getId()).encode();
+        }
+        Map<Long, Set<Long>> userIds = userIdsOf(projects);
+        List<ProjectDTO> content = projects.stream()
+                .map(project -> converterService.convertToDto(project, userIds.get(project.getId())))
+                .collect(Collectors.toList());
+        return new CursorPageDTO<>(content, nextCursor);
     }
 
     /**
      * Retrieves a project by its ID.
+     * The converted DTO is cached until the project or its members change.
      *
      * @param id The ID of the project.
      * @return The project DTO.
      * @throws RuntimeException if the project is not found.
      */
     @Override
+    @Cacheable(cacheNames = CacheConfig.PROJECTS, key = "#id")
     public ProjectDTO getProjectById(Long id) {
         Project project = projectRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
-        return converterService.convertToDto(project);
+        return converterService.convertToDto(project, new HashSet<>(projectRepository.findUserIdsByProjectId(id)));
+    }
+
+    /**
+     * Retrieves the version of a project, without loading it.
+     *
+     * @param id The ID of the project.
+     * @return The current version of the project.
+     * @throws RuntimeException if the project is not found.
+     */
+    @Override
+    public Long getProjectVersion(Long id) {
+        return projectRepository.findVersionById(id)
+                .orElseThrow(() -> new RuntimeException("Project not found"));
+    }
+
+    /**
+     * Retrieves a version token for the users of a project, without loading them.
+     * It combines the project's version, which changes when users join or leave, with the sum
+     * of the members' versions, which changes when any member is updated.
+     *
+     * @param projectId The ID of the project.
+     * @return The version token of the project's users.
+     * @throws RuntimeException if the project is not found.
+     */
+    @Override
+    public String getMembersVersion(Long projectId) {
+        return getProjectVersion(projectId) + "-" + projectRepository.sumMemberVersions(projectId);
     }
 
     /**
      * Updates an existing project.
+     * The cached project is evicted once the transaction commits.
      *
      * @param id         The ID of the project to update.
      * @param projectDTO The project DTO containing the updated project information.
@@ -75,51 +308,216 @@ public class ProjectServiceImpl implements ProjectService {
      * @throws RuntimeException if the project is not found.
      */
     @Override
+    @Transactional
     public ProjectDTO updateProject(Long id, ProjectDTO projectDTO) {
         Project project = projectRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
         project.setName(projectDTO.getName());
         project.setDescription(projectDTO.getDescription());
         Project updatedProject = projectRepository.save(project);
-        return converterService.convertToDto(updatedProject);
+        searchService.indexProject(id, updatedProject.getName(), updatedProject.getDescription());
+        autocompleteService.putProject(id, updatedProject.getName());
+        AfterCommit.evict(cacheManager, CacheConfig.PROJECTS, Collections.singletonList(id));
+        return converterService.convertToDto(updatedProject, new HashSet<>(projectRepository.findUserIdsByProjectId(id)));
+    }
+
+    /**
+     * Updates an existing project if it has not changed since it was read.
+     * The check and the write are a single conditional update, so the project is not loaded first.
+     * The cached project is evicted once the transaction commits.
+     *
+     * @param id              The ID of the project to update.
+     * @param projectDTO      The project DTO containing the updated project information.
+     * @param expectedVersion The version the client last read.
+     * @return The updated project DTO.
+     * @throws RuntimeException if the project is not found.
+     * @throws OptimisticLockingFailureException if the project's version is no longer the expected one.
+     */
+    @Override
+    @Transactional
+    public ProjectDTO updateProject(Long id, ProjectDTO projectDTO, Long expectedVersion) {
+        int updated = projectRepository.updateIfVersion(id, projectDTO.getName(), projectDTO.getDescription(), expectedVersion);
+        if (updated == 0) {
+            if (!projectRepository.existsById(id)) {
+                throw new RuntimeException("Project not found");
+            }
+            throw new OptimisticLockingFailureException("Project has been modified");
+        }
+        Project project = projectRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Project not found"));
+        searchService.indexProject(id, project.getName(), project.getDescription());
+        autocompleteService.putProject(id, project.getName());
+        AfterCommit.evict(cacheManager, CacheConfig.PROJECTS, Collections.singletonList(id));
+        return converterService.convertToDto(project, new HashSet<>(projectRepository.findUserIdsByProjectId(id)));
     }
 
     /**
      * Deletes a project by its ID.
+     * Its memberships are removed first, which increments its members' versions; the users themselves are kept.
+     * The project counter is decremented in the same transaction,
+     * and the project leaves the search and autocomplete indexes once it commits.
      *
      * @param id The ID of the project to delete.
      * @throws RuntimeException if the project is not found.
      */
     @Override
+    @Transactional
     public void deleteProject(Long id) {
         if (!projectRepository.existsById(id)) {
             throw new RuntimeException("Project not found");
         }
+        membershipService.removeAllUsers(id);
         projectRepository.deleteById(id);
+        counterService.addProjects(-1);
+        searchService.deleteProject(id);
+        autocompleteService.removeProject(id);
+
+        AfterCommit.evict(cacheManager, CacheConfig.PROJECTS, Collections.singletonList(id));
     }
 
     /**
-     * Searches for projects by name containing a given keyword.
+     * Searches for projects by name containing a given keyword, ignoring case.
      *
      * @param name     The keyword to search for in project names.
      * @param pageable The pageable information.
      * @return A page of project DTOs matching the search criteria.
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<ProjectDTO> searchProjects(String name, Pageable pageable) {
-        Page<Project> projects = projectRepository.findByNameContaining(name, pageable);
-        return projects.map(converterService::convertToDto);
+        Page<Project> projects = projectRepository.findByNameContainingIgnoreCase(name, pageable);
+        Map<Long, Set<Long>> userIds = userIdsOf(projects.getContent());
+        return projects.map(project -> converterService.convertToDto(project, userIds.get(project.getId())));
+    }
+
+    /**
+     * Searches for projects by name containing a given keyword, ignoring case, without a count query.
+     * One extra row is fetched to tell whether there is a next slice.
+     *
+     * @param name     The keyword to search for in project names.
+     * @param pageable The pageable information.
+     * @return A slice of project DTOs matching the search criteria.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SliceDTO<ProjectDTO> searchProjectSlice(String name, Pageable pageable) {
+        return toSliceDto(projectRepository.findSliceByNameContainingIgnoreCase(name, pageable));
+    }
+
+    /**
+     * Retrieves a page of the users associated with a specific project.
+     * Members are selected straight into DTOs, without their project IDs, and the total
+     * is the project's member count instead of a count query.
+     *
+     * @param projectId The ID of the project.
+     * @param pageable  The pageable information.
+     * @return A page of the project's members.
+     * @throws RuntimeException if the project is not found.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberDTO> getUsersByProjectId(Long projectId, Pageable pageable) {
+        long total = countUsersByProjectId(projectId);
+        return new PageImpl<>(projectRepository.findMembersByProjectId(projectId, pageable), pageable, total);
+    }
+
+    /**
+     * Retrieves a slice of the users associated with a specific project, without a count.
+     * One extra row is fetched to tell whether there is a next slice.
+     *
+     * @param projectId The ID of the project.
+     * @param pageable  The pageable information.
+     * @return A slice of the project's members.
+     * @throws RuntimeException if the project is not found.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SliceDTO<MemberDTO> getUserSliceByProjectId(Long projectId, Pageable pageable) {
+        checkProjectExists(projectId);
+        Slice<MemberDTO> members = projectRepository.findMemberSliceByProjectId(projectId, pageable);
+        return new SliceDTO<>(members.getContent(), members.getNumber(), members.getSize(), members.hasNext());
+    }
+
+    /**
+     * Retrieves a page of the users associated with a specific project using keyset pagination by user ID.
+     * Each page seeks on the (project_id, user_id) index, so deep pages cost the same as the first.
+     *
+     * @param projectId The ID of the project.
+     * @param after     The cursor returned by the previous page, or an empty string for the first page.
+     * @param size      The maximum number of members to return.
+     * @return A cursor page of the project's members.
+     * @throws RuntimeException if the project is not found.
+     * @throws BadRequestException if the cursor or size is invalid.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<MemberDTO> getUsersByProjectId(Long projectId, String after, int size) {
+        Cursor.checkPageSize(size);
+        Long afterId = after == null || after.isEmpty() ? 0L : Cursor.decode(after, Cursor.SORT_ID).getId();
+        checkProjectExists(projectId);
+
+        List<MemberDTO> members = projectRepository.findMembersAfter(projectId, afterId, PageRequest.of(0, size + 1));
+        String nextCursor = null;
+        if (members.size() > size) {
+            members = members.subList(0, size);
+            nextCursor = Cursor.of(Cursor.SORT_ID, null, members.get(size - 1).getId()).encode();
+        }
+        return new CursorPageDTO<>(members, nextCursor);
     }
 
     /**
-     * Retrieves a list of users associated with a specific project.
+     * Streams every user associated with a specific project, ordered by ID, to a consumer.
+     * Rows are read through a forward-only cursor straight into DTOs, which the persistence
+     * context does not keep, so memory use does not grow with the size of the project.
      *
      * @param projectId The ID of the project.
-     * @return A list of user DTOs associated with the project.
+     * @param consumer  Receives each member in turn.
+     * @throws RuntimeException if the project is not found.
      */
     @Override
-    public List<UserDTO> getUsersByProjectId(Long projectId) {
-        List<User> users = projectRepository.getUsersByProjectId(projectId);
-        return users.stream().map(converterService::convertToDto).collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public void exportUsersByProjectId(Long projectId, Consumer<MemberDTO> consumer) {
+        checkProjectExists(projectId);
+        try (Stream<MemberDTO> members = projectRepository.streamMembersByProjectId(projectId)) {
+            members.forEach(consumer);
+        }
+    }
+
+    /**
+     * Retrieves the number of users associated with a specific project, from its member count.
+     *
+     * @param projectId The ID of the project.
+     * @return The number of users associated with the project.
+     * @throws RuntimeException if the project is not found.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countUsersByProjectId(Long projectId) {
+        return projectRepository.findMemberCountById(projectId)
+                .orElseThrow(() -> new RuntimeException("Project not found"));
+    }
+
+    /**
+     * Loads the user IDs of a page of projects with one query, without touching their collections.
+     */
+    private Map<Long, Set<Long>> userIdsOf(List<Project> projects) {
+        return projectRepository.findUserIdsByProjectIds(projects.stream().map(Project::getId).collect(Collectors.toList()));
+    }
+
+    private void checkProjectExists(Long projectId) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new RuntimeException("Project not found");
+        }
+    }
+
+    /**
+     * Converts a slice of projects, loading their user IDs with one query.
+     */
+    private SliceDTO<ProjectDTO> toSliceDto(Slice<Project> projects) {
+        Map<Long, Set<Long>> userIds = userIdsOf(projects.getContent());
+        List<ProjectDTO> content = projects.stream()
+                .map(project -> converterService.convertToDto(project, userIds.get(project.getId())))
+                .collect(Collectors.toList());
+        return new SliceDTO<>(content, projects.getNumber(), projects.getSize(), projects.hasNext());
     }
 }
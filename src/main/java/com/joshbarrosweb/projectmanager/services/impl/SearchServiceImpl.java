@@ -0,0 +1,482 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.dtos.SearchHitDTO;
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.AfterCommit;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.Batches;
+import com.joshbarrosweb.projectmanager.services.Cursor;
+import com.joshbarrosweb.projectmanager.services.SearchService;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over the names and descriptions of projects and the names and emails of users,
+ * served from an embedded Lucene index without touching the database.
+ *
+ * The services report every write, and the index is updated once the write has committed.
+ * Searches see the updates after the next refresh, every {@code projectmanager.search.refresh-interval},
+ * and the index is committed to {@code projectmanager.search.index-dir} every
+ * {@code projectmanager.search.commit-interval} and on shutdown. An empty index directory keeps the
+ * index in memory. Rows written past the services are only found after a {@link #rebuild()}.
+ *
+ * Every commit but the one on shutdown marks the index as not closed cleanly. An index that is empty,
+ * or was not closed cleanly and so may have lost the updates since its last commit, is rebuilt once the
+ * application is ready, unless {@code projectmanager.search.rebuild-if-stale} is false.
+ */
+@Service
+public class SearchServiceImpl implements SearchService, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchServiceImpl.class);
+
+    /** The most terms a query may have, far below Lucene's limit on boolean clauses. */
+    static final int MAX_TERMS = 32;
+
+    private static final String KEY = "key";
+    private static final String TYPE = "type";
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String DESCRIPTION = "description";
+    private static final String EMAIL = "email";
+    private static final String CLEAN_SHUTDOWN = "cleanShutdown";
+
+    /** The searched fields and their boosts: a match in a name counts twice as much as one in a description or email. */
+    private static final Map<String, Float> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put(NAME, 2.0f);
+        FIELDS.put(DESCRIPTION, 1.0f);
+        FIELDS.put(EMAIL, 1.0f);
+    }
+
+    /**
+     * A change to the index, applied once the write it mirrors has committed.
+     */
+    private interface IndexUpdate {
+        void applyTo(IndexWriter writer) throws IOException;
+    }
+
+    private final ProjectRepository projectRepository;
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Analyzer analyzer;
+    private final Directory directory;
+    private final boolean rebuildIfStale;
+    private final boolean stale;
+    private final Object updateLock = new Object();
+    // Both replaced when a failed rebuild is rolled back, under the update lock
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+    // Updates applied while a rebuild runs, to replay once it has loaded; null when no rebuild runs. Guarded by the update lock
+    private List<IndexUpdate> pending;
+
+    @Autowired
+    public SearchServiceImpl(ProjectRepository projectRepository, UserRepository userRepository, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${projectmanager.search.index-dir:data/search-index}") String indexDir,
+                             @Value("${projectmanager.search.rebuild-if-stale:true}") boolean rebuildIfStale) throws IOException {
+        this.projectRepository = projectRepository;
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        // Not read-only, so a rebuild is never routed to a replica that may not have the latest writes yet
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.analyzer = new StandardAnalyzer();
+        this.rebuildIfStale = rebuildIfStale;
+        this.directory = indexDir.isEmpty() ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(indexDir));
+        try {
+            this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        } catch (LockObtainFailedException e) {
+            directory.close();
+            throw new IllegalStateException("The search index in " + indexDir + " is locked by another process, "
+                    + "such as the running application; stop it before rebuilding the index or generating data", e);
+        }
+        this.stale = !closedCleanly(writer) || writer.getDocStats().numDocs == 0;
+        writer.setLiveCommitData(Map.of(CLEAN_SHUTDOWN, "false").entrySet());
+        writer.commit();
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Searches projects and users, best matches first.
+     * The query is split into terms like the indexed text, and a hit must contain every term
+     * in at least one of its fields.
+     *
+     * @param query The words to search for.
+     * @param type  Either "project" or "user" to search only one of them, or null to search both.
+     * @param size  The maximum number of hits to return.
+     * @return The hits, ordered by descending score.
+     * @throws BadRequestException if the query is blank or has too many terms, or the type or size is invalid.
+     */
+    @Override
+    public List<SearchHitDTO> search(String query, String type, int size) {
+        Cursor.checkPageSize(size);
+        if (query == null || query.trim().isEmpty()) {
+            throw new BadRequestException("Search query must not be blank");
+        }
+        if (type != null && !TYPE_PROJECT.equals(type) && !TYPE_USER.equals(type)) {
+            throw new BadRequestException("Unsupported type: " + type);
+        }
+
+        try {
+            BooleanQuery.Builder builder = new BooleanQuery.Builder();
+            if (addTerms(builder, query) == 0) {
+                return Collections.emptyList();
+            }
+            if (type != null) {
+                builder.add(new TermQuery(new Term(TYPE, type)), BooleanClause.Occur.FILTER);
+            }
+
+            SearcherManager manager = searcherManager;
+            IndexSearcher searcher = manager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(builder.build(), size);
+                List<SearchHitDTO> hits = new ArrayList<>(topDocs.scoreDocs.length);
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    Document document = searcher.doc(scoreDoc.doc);
+                    hits.add(new SearchHitDTO(document.get(TYPE), document.getField(ID).numericValue().longValue(),
+                            document.get(NAME), document.get(DESCRIPTION), document.get(EMAIL), scoreDoc.score));
+                }
+                return hits;
+            } finally {
+                manager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds or replaces a project in the index after commit.
+     *
+     * @param id          The ID of the project.
+     * @param name        The name of the project.
+     * @param description The description of the project, if any.
+     */
+    @Override
+    public void indexProject(Long id, String name, String description) {
+        Document document = projectDocument(id, name, description);
+        update(writer -> writer.updateDocument(key(TYPE_PROJECT, id), document));
+    }
+
+    /**
+     * Adds or replaces a user in the index after commit.
+     *
+     * @param id    The ID of the user.
+     * @param name  The name of the user.
+     * @param email The email of the user.
+     */
+    @Override
+    public void indexUser(Long id, String name, String email) {
+        Document document = userDocument(id, name, email);
+        update(writer -> writer.updateDocument(key(TYPE_USER, id), document));
+    }
+
+    /**
+     * Removes a project from the index after commit.
+     *
+     * @param id The ID of the project.
+     */
+    @Override
+    public void deleteProject(Long id) {
+        update(writer -> writer.deleteDocuments(key(TYPE_PROJECT, id)));
+    }
+
+    /**
+     * Removes a user from the index after commit.
+     *
+     * @param id The ID of the user.
+     */
+    @Override
+    public void deleteUser(Long id) {
+        update(writer -> writer.deleteDocuments(key(TYPE_USER, id)));
+    }
+
+    /**
+     * Replaces the whole index with the projects and users in the database, in one transaction on the primary.
+     * Rows are read through forward-only cursors and the persistence context is cleared every chunk,
+     * so memory use does not grow with the size of the tables. The updates that commit while it runs
+     * are replayed once the rows are loaded, so they are not overwritten by rows read before them.
+     * If it fails, the index is rolled back to how it was when it started, the updates made since are
+     * replayed, and the exception is rethrown.
+     *
+     * @return The number of projects and users indexed.
+     */
+    @Override
+    public synchronized long rebuild() {
+        long start = System.nanoTime();
+        IndexWriter current = writer;
+        Long documents;
+        synchronized (updateLock) {
+            pending = new ArrayList<>();
+        }
+        try {
+            // The point a failed rebuild rolls back to
+            current.commit();
+            documents = transactionTemplate.execute(status -> load(current));
+            synchronized (updateLock) {
+                for (IndexUpdate update : pending) {
+                    update.applyTo(current);
+                }
+            }
+            current.commit();
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException | RuntimeException e) {
+            rollBack(current);
+            if (e instanceof IOException) {
+                throw new UncheckedIOException((IOException) e);
+            }
+            throw (RuntimeException) e;
+        } finally {
+            synchronized (updateLock) {
+                pending = null;
+            }
+        }
+        log.info("Rebuilt the search index with {} documents in {} ms", documents,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return documents == null ? 0 : documents;
+    }
+
+    /**
+     * Rebuilds the index once the application is ready if it is empty, or was not closed cleanly
+     * and may have lost the updates since its last commit.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        if (rebuildIfStale && stale) {
+            log.info("The search index is empty or was not closed cleanly, rebuilding it");
+            rebuild();
+        }
+    }
+
+    /**
+     * Makes every update applied so far visible to searches, waiting for a refresh already in progress.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${projectmanager.search.refresh-interval:PT1S}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Commits the updates applied so far to the index directory, so they survive a restart.
+     */
+    @Scheduled(fixedDelayString = "${projectmanager.search.commit-interval:PT1M}")
+    public void commit() {
+        IndexWriter current = writer;
+        try {
+            if (current.hasUncommittedChanges()) {
+                current.commit();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Commits and closes the index, marking it as closed cleanly.
+     */
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.setLiveCommitData(Map.of(CLEAN_SHUTDOWN, "true").entrySet());
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * Adds a clause per term of the query, each matching the term in any of the searched fields.
+     *
+     * @return The number of terms.
+     */
+    private int addTerms(BooleanQuery.Builder builder, String query) throws IOException {
+        int terms = 0;
+        try (TokenStream tokens = analyzer.tokenStream(NAME, query)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                if (++terms > MAX_TERMS) {
+                    throw new BadRequestException("Search query must not have more than " + MAX_TERMS + " terms");
+                }
+                BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+                for (Map.Entry<String, Float> field : FIELDS.entrySet()) {
+                    Query fieldQuery = new TermQuery(new Term(field.getKey(), term.toString()));
+                    anyField.add(new BoostQuery(fieldQuery, field.getValue()), BooleanClause.Occur.SHOULD);
+                }
+                builder.add(anyField.build(), BooleanClause.Occur.MUST);
+            }
+            tokens.end();
+        }
+        return terms;
+    }
+
+    /**
+     * Applies an update after commit, so a write that is rolled back never shows up in searches.
+     * While a rebuild runs, the update is also kept to be replayed once the rows are loaded.
+     * A failed update is logged rather than failing the committed write; a rebuild repairs the index.
+     */
+    private void update(IndexUpdate update) {
+        AfterCommit.run(() -> {
+            synchronized (updateLock) {
+                if (pending != null) {
+                    pending.add(update);
+                }
+                try {
+                    update.applyTo(writer);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not update the search index, rebuild it to catch up", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces every document with the projects and users in the database.
+     */
+    private long load(IndexWriter target) {
+        long documents = 0;
+        try {
+            target.deleteAll();
+            try (Stream<Project> projects = projectRepository.streamAllByOrderByIdAsc()) {
+                Iterator<Project> iterator = projects.iterator();
+                while (iterator.hasNext()) {
+                    Project project = iterator.next();
+                    target.addDocument(projectDocument(project.getId(), project.getName(), project.getDescription()));
+                    if (++documents % Batches.CHUNK_SIZE == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+            try (Stream<User> users = userRepository.streamAllByOrderByIdAsc()) {
+                Iterator<User> iterator = users.iterator();
+                while (iterator.hasNext()) {
+                    User user = iterator.next();
+                    target.addDocument(userDocument(user.getId(), user.getName(), user.getEmail()));
+                    if (++documents % Batches.CHUNK_SIZE == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return documents;
+    }
+
+    /**
+     * Discards everything a failed rebuild wrote since its first commit, reopens the index as of that commit
+     * and replays the updates made since, so the half-loaded index is never committed.
+     */
+    private void rollBack(IndexWriter failed) {
+        synchronized (updateLock) {
+            SearcherManager previous = searcherManager;
+            try {
+                failed.rollback();
+                writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+                searcherManager = new SearcherManager(writer, null);
+                previous.close();
+                for (IndexUpdate update : pending) {
+                    update.applyTo(writer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        log.warn("Rolled back a failed rebuild of the search index");
+    }
+
+    private static boolean closedCleanly(IndexWriter writer) {
+        for (Map.Entry<String, String> entry : writer.getLiveCommitData()) {
+            if (CLEAN_SHUTDOWN.equals(entry.getKey())) {
+                return Boolean.parseBoolean(entry.getValue());
+            }
+        }
+        return false;
+    }
+
+    private static Term key(String type, Long id) {
+        return new Term(KEY, type + ":" + id);
+    }
+
+    private static Document projectDocument(Long id, String name, String description) {
+        Document document = document(TYPE_PROJECT, id);
+        addText(document, NAME, name);
+        addText(document, DESCRIPTION, description);
+        return document;
+    }
+
+    private static Document userDocument(Long id, String name, String email) {
+        Document document = document(TYPE_USER, id);
+        addText(document, NAME, name);
+        addText(document, EMAIL, email);
+        return document;
+    }
+
+    private static Document document(String type, Long id) {
+        Document document = new Document();
+        document.add(new StringField(KEY, key(type, id).text(), Field.Store.NO));
+        document.add(new StringField(TYPE, type, Field.Store.YES));
+        document.add(new StoredField(ID, id));
+        return document;
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null) {
+            document.add(new TextField(field, value, Field.Store.YES));
+        }
+    }
+}
@@ -1,79 +1,312 @@
 package com.joshbarrosweb.projectmanager.services.impl;
 
+import com.joshbarrosweb.projectmanager.config.CacheConfig;
+import com.joshbarrosweb.projectmanager.dtos.BatchErrorDTO;
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.CollaboratorDTO;
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
 import com.joshbarrosweb.projectmanager.dtos.UserDTO;
-import com.joshbarrosweb.projectmanager.entities.Project;
 import com.joshbarrosweb.projectmanager.entities.User;
-import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
 import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.AfterCommit;
+import com.joshbarrosweb.projectmanager.services.AutocompleteService;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.Batches;
 import com.joshbarrosweb.projectmanager.services.ConverterService;
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import com.joshbarrosweb.projectmanager.services.Cursor;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
+import com.joshbarrosweb.projectmanager.services.SearchService;
 import com.joshbarrosweb.projectmanager.services.UserService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
-    private final ProjectRepository projectRepository;
+    private final MembershipService membershipService;
+    private final CounterService counterService;
+    private final SearchService searchService;
+    private final AutocompleteService autocompleteService;
     private final ConverterService converterService;
+    private final CacheManager cacheManager;
+    private final Validator validator;
+    private final EntityManager entityManager;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, ProjectRepository projectRepository, ConverterService converterService) {
+    public UserServiceImpl(UserRepository userRepository, MembershipService membershipService, CounterService counterService,
+                           SearchService searchService, AutocompleteService autocompleteService,
+                           ConverterService converterService, CacheManager cacheManager, Validator validator,
+                           EntityManager entityManager) {
         this.userRepository = userRepository;
-        this.projectRepository = projectRepository;
+        this.membershipService = membershipService;
+        this.counterService = counterService;
+        this.searchService = searchService;
+        this.autocompleteService = autocompleteService;
         this.converterService = converterService;
+        this.cacheManager = cacheManager;
+        this.validator = validator;
+        this.entityManager = entityManager;
     }
 
     /**
      * Creates a new user.
+     * The user counter is incremented in the same transaction,
+     * and the user is indexed for search and autocomplete once it commits.
      *
      * @param userDTO The user DTO containing user information.
      * @return The created user DTO.
      */
     @Override
+    @Transactional
     public UserDTO createUser(UserDTO userDTO) {
         User user = converterService.convertToEntity(userDTO);
+        user.setId(null);
         User savedUser = userRepository.save(user);
+        counterService.addUsers(1);
+        searchService.indexUser(savedUser.getId(), savedUser.getName(), savedUser.getEmail());
+        autocompleteService.putUser(savedUser.getId(), savedUser.getName(), savedUser.getEmail());
         return converterService.convertToDto(savedUser);
     }
 
+    /**
+     * Creates users in bulk.
+     * Valid users are inserted in chunks, each flushed as JDBC batches with pooled sequence IDs;
+     * invalid users, and users whose email is taken or repeated in the batch, are reported and skipped.
+     * The user counter is incremented once for the whole batch,
+     * and the created users are indexed for search and autocomplete once it commits.
+     *
+     * @param userDTOs The user DTOs containing user information.
+     * @return The created IDs, in request order, and the per-item errors.
+     * @throws BadRequestException if the batch is empty or too large.
+     */
+    @Override
+    @Transactional
+    public BatchResultDTO createUsers(List<UserDTO> userDTOs) {
+        Batches.checkBatchSize(userDTOs.size());
+        List<Long> createdIds = new ArrayList<>(Collections.nCopies(userDTOs.size(), null));
+        List<BatchErrorDTO> errors = new ArrayList<>();
+        Set<String> batchEmails = new HashSet<>();
+
+        for (int start = 0; start < userDTOs.size(); start += Batches.CHUNK_SIZE) {
+            List<UserDTO> chunk = userDTOs.subList(start, Math.min(start + Batches.CHUNK_SIZE, userDTOs.size()));
+            List<String> emails = chunk.stream()
+                    .filter(Objects::nonNull)
+                    .map(UserDTO::getEmail)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            Set<String> existingEmails = emails.isEmpty()
+                    ? Collections.emptySet()
+                    : new HashSet<>(userRepository.findExistingEmails(emails));
+
+            List<User> users = new ArrayList<>(chunk.size());
+            List<Integer> indexes = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                UserDTO userDTO = chunk.get(i);
+                String error = Batches.validate(validator, userDTO);
+                if (error == null && existingEmails.contains(userDTO.getEmail())) {
+                    error = "email already in use";
+                } else if (error == null && !batchEmails.add(userDTO.getEmail())) {
+                    error = "email is duplicated in the batch";
+                }
+                if (error != null) {
+                    errors.add(new BatchErrorDTO(start + i, error));
+                    continue;
+                }
+                User user = converterService.convertToEntity(userDTO);
+                user.setId(null);
+                users.add(user);
+                indexes.add(start + i);
+            }
+
+            userRepository.saveAll(users);
+            entityManager.flush();
+            entityManager.clear();
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                createdIds.set(indexes.get(i), user.getId());
+                searchService.indexUser(user.getId(), user.getName(), user.getEmail());
+                autocompleteService.putUser(user.getId(), user.getName(), user.getEmail());
+            }
+        }
+        counterService.addUsers(userDTOs.size() - errors.size());
+        return new BatchResultDTO(createdIds, errors);
+    }
+
     /**
      * Retrieves a page of users.
+     * The total is read from the user counter instead of counting the table, and the project IDs
+     * of the whole page are loaded with one query on the join table.
      *
      * @param pageable The pageable information.
      * @return A page of user DTOs.
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<UserDTO> listUsers(Pageable pageable) {
-        Page<User> users = userRepository.findAll(pageable);
-        return users.map(converterService::convertToDto);
+        List<User> users = userRepository.findAllBy(pageable).getContent();
+        Map<Long, Set<Long>> projectIds = projectIdsOf(users);
+        List<UserDTO> content = users.stream()
+                .map(user -> converterService.convertToDto(user, projectIds.get(user.getId())))
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, counterService.countUsers());
+    }
+
+    /**
+     * Retrieves the number of users from the user counter.
+     *
+     * @return The number of users.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countUsers() {
+        return counterService.countUsers();
+    }
+
+    /**
+     * Retrieves a slice of users, without a count query.
+     * One extra row is fetched to tell whether there is a next slice.
+     *
+     * @param pageable The pageable information.
+     * @return A slice of user DTOs.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SliceDTO<UserDTO> listUserSlice(Pageable pageable) {
+        return toSliceDto(userRepository.findAllBy(pageable));
+    }
+
+    /**
+     * Streams every user, ordered by ID, to a consumer.
+     * Rows are read through a forward-only cursor and handled in chunks: the project IDs of each chunk
+     * are loaded with one query, and the persistence context is cleared once the chunk is emitted,
+     * so memory use does not grow with the number of users.
+     *
+     * @param consumer Receives each user DTO in turn.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUsers(Consumer<UserDTO> consumer) {
+        try (Stream<User> users = userRepository.streamAllByOrderByIdAsc()) {
+            List<User> chunk = new ArrayList<>(Batches.CHUNK_SIZE);
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == Batches.CHUNK_SIZE || !iterator.hasNext()) {
+                    Map<Long, Set<Long>> projectIds = projectIdsOf(chunk);
+                    for (User user : chunk) {
+                        consumer.accept(converterService.convertToDto(user, projectIds.get(user.getId())));
+                    }
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves a page of users using keyset pagination.
+     * Seeks past the cursor position on an indexed column and never issues a count query.
+     *
+     * @param after The cursor returned by the previous page, or an empty string for the first page.
+     * @param size  The maximum number of users to return.
+     * @param sort  The sort key, either "id" or "name".
+     * @return A cursor page of user DTOs.
+     * @throws BadRequestException if the cursor, size or sort is invalid.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<UserDTO> listUsers(String after, int size, String sort) {
+        Cursor.checkPageSize(size);
+        Cursor cursor = after == null || after.isEmpty() ? null : Cursor.decode(after, sort);
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        List<User> users;
+        if (Cursor.SORT_ID.equals(sort)) {
+            users = cursor == null
+                    ? userRepository.findAllByOrderByIdAsc(limit)
+                    : userRepository.findByIdGreaterThanOrderByIdAsc(cursor.getId(), limit);
+        } else if (Cursor.SORT_NAME.equals(sort)) {
+            users = cursor == null
+                    ? userRepository.findAllByOrderByNameAscIdAsc(limit)
+                    : userRepository.findAfterName(cursor.getKey(), cursor.getId(), limit);
+        } else {
+            throw new BadRequestException("Unsupported sort: " + sort);
+        }
+
+        String nextCursor = null;
+        if (users.size() > size) {
+            users = users.subList(0, size);
+            User last = users.get(size - 1);
+            String key = Cursor.SORT_NAME.equals(sort) ? last.getName() : null;
+            nextCursor = Cursor.of(sort, key, last.getId()).encode();
+        }
+        Map<Long, Set<Long>> projectIds = projectIdsOf(users);
+        List<UserDTO> content = users.stream()
+                .map(user -> converterService.convertToDto(user, projectIds.get(user.getId())))
+                .collect(Collectors.toList());
+        return new CursorPageDTO<>(content, nextCursor);
     }
 
     /**
      * Retrieves a user by its ID.
+     * The converted DTO is cached until the user or its memberships change.
      *
      * @param id The ID of the user.
      * @return The user DTO.
      * @throws RuntimeException if the user is not found.
      */
     @Override
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#id")
     public UserDTO getUserById(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return converterService.convertToDto(user);
+        return converterService.convertToDto(user, new HashSet<>(userRepository.findProjectIdsByUserId(id)));
+    }
+
+    /**
+     * Retrieves the version of a user, without loading it.
+     *
+     * @param id The ID of the user.
+     * @return The current version of the user.
+     * @throws RuntimeException if the user is not found.
+     */
+    @Override
+    public Long getUserVersion(Long id) {
+        return userRepository.findVersionById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
     /**
      * Updates an existing user.
+     * Once the transaction commits, the cached user is evicted, and so are the cached collaborator lists
+     * of the user's collaborators, as its name or email may appear in them.
      *
      * @param id       The ID of the user to update.
      * @param userDTO  The user DTO containing the updated user information.
@@ -81,6 +314,7 @@ public class UserServiceImpl implements UserService {
      * @throws RuntimeException if the user is not found.
      */
     @Override
+    @Transactional
     public UserDTO updateUser(Long id, UserDTO userDTO) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -89,79 +323,123 @@ public class UserServiceImpl implements UserService {
         user.setEmail(userDTO.getEmail());
 
         User updatedUser = userRepository.save(user);
-        return converterService.convertToDto(updatedUser);
+        searchService.indexUser(id, updatedUser.getName(), updatedUser.getEmail());
+        autocompleteService.putUser(id, updatedUser.getName(), updatedUser.getEmail());
+        AfterCommit.evict(cacheManager, CacheConfig.USERS, Collections.singletonList(id));
+        evictCollaborators(id);
+        return converterService.convertToDto(updatedUser, new HashSet<>(userRepository.findProjectIdsByUserId(id)));
+    }
+
+    /**
+     * Updates an existing user if it has not changed since it was read.
+     * The check and the write are a single conditional update, so the user is not loaded first.
+     * Once the transaction commits, the cached user is evicted, and so are the cached collaborator lists
+     * of the user's collaborators, as its name or email may appear in them.
+     *
+     * @param id              The ID of the user to update.
+     * @param userDTO         The user DTO containing the updated user information.
+     * @param expectedVersion The version the client last read.
+     * @return The updated user DTO.
+     * @throws RuntimeException if the user is not found.
+     * @throws OptimisticLockingFailureException if the user's version is no longer the expected one.
+     */
+    @Override
+    @Transactional
+    public UserDTO updateUser(Long id, UserDTO userDTO, Long expectedVersion) {
+        int updated = userRepository.updateIfVersion(id, userDTO.getName(), userDTO.getEmail(), expectedVersion);
+        if (updated == 0) {
+            if (!userRepository.existsById(id)) {
+                throw new RuntimeException("User not found");
+            }
+            throw new OptimisticLockingFailureException("User has been modified");
+        }
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        searchService.indexUser(id, user.getName(), user.getEmail());
+        autocompleteService.putUser(id, user.getName(), user.getEmail());
+        AfterCommit.evict(cacheManager, CacheConfig.USERS, Collections.singletonList(id));
+        evictCollaborators(id);
+        return converterService.convertToDto(user, new HashSet<>(userRepository.findProjectIdsByUserId(id)));
     }
 
     /**
      * Deletes a user by its ID.
+     * Its memberships are removed first, which increments its projects' versions; the projects themselves are kept.
+     * The user counter is decremented in the same transaction,
+     * and the user leaves the search and autocomplete indexes once it commits.
      *
      * @param id The ID of the user to delete.
      * @throws RuntimeException if the user is not found.
      */
     @Override
+    @Transactional
     public void deleteUser(Long id) {
         if (!userRepository.existsById(id)) {
             throw new RuntimeException("User not found");
         }
+        membershipService.removeUserFromAllProjects(id);
         userRepository.deleteById(id);
+        counterService.addUsers(-1);
+        searchService.deleteUser(id);
+        autocompleteService.removeUser(id);
+
+        AfterCommit.evict(cacheManager, CacheConfig.USERS, Collections.singletonList(id));
+        AfterCommit.evict(cacheManager, CacheConfig.COLLABORATORS, Collections.singletonList(id));
     }
 
     /**
-     * Searches for users by name and email.
+     * Searches for users whose name contains a keyword, ignoring case, or whose email matches.
+     * Filtering, de-duplication and pagination happen in the database, with one query and one count,
+     * plus one query for the project IDs of the whole page.
      *
      * @param name     The keyword to search for in user names.
      * @param email    The keyword to search for in user emails.
      * @param pageable The pageable information.
      * @return A page of user DTOs matching the search criteria.
      */
+    @Override
+    @Transactional(readOnly = true)
     public Page<UserDTO> searchUsers(String name, String email, Pageable pageable) {
-        Page<User> usersByName = userRepository.findByNameContaining(name, pageable);
-        Page<User> usersByEmail = userRepository.findByEmail(email, pageable);
-
-        // Combine the lists
-        List<User> combined = new ArrayList<>(usersByName.getContent());
-        combined.addAll(usersByEmail.getContent());
-
-        // Remove duplicates
-        List<User> distinctUsers = combined.stream()
-            .distinct()
-            .collect(Collectors.toList());
-
-        // Convert to DTOs and return as a page
-        int start = (int)pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), distinctUsers.size());
+        Page<User> users = userRepository.searchByNameOrEmail(name, email, pageable);
+        Map<Long, Set<Long>> projectIds = projectIdsOf(users.getContent());
+        return users.map(user -> converterService.convertToDto(user, projectIds.get(user.getId())));
+    }
 
-        return new PageImpl<>(
-                distinctUsers.subList(start, end).stream()
-                    .map(converterService::convertToDto)
-                    .collect(Collectors.toList()),
-                pageable,
-                distinctUsers.size()
-        );
+    /**
+     * Searches for users whose name contains a keyword, ignoring case, or whose email matches, without a count query.
+     * One extra row is fetched to tell whether there is a next slice.
+     *
+     * @param name     The keyword to search for in user names.
+     * @param email    The keyword to search for in user emails.
+     * @param pageable The pageable information.
+     * @return A slice of user DTOs matching the search criteria.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SliceDTO<UserDTO> searchUserSlice(String name, String email, Pageable pageable) {
+        return toSliceDto(userRepository.searchSliceByNameOrEmail(name, email, pageable));
     }
 
     /**
      * Assigns a user to a project.
+     * Delegates to the set-based membership writes, so neither collection is loaded.
      *
      * @param userId    The ID of the user.
      * @param projectId The ID of the project.
      * @throws RuntimeException if the user or project is not found.
      */
-        @Override
+    @Override
     @Transactional
     public void assignUserToProject(Long userId, Long projectId) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
-        Project project = projectRepository.findById(projectId).orElseThrow(() -> new RuntimeException("Project not found"));
-
-        user.getProjects().add(project);
-        project.getUsers().add(user); // Update project's user list
-
-        userRepository.save(user);
-        projectRepository.save(project);
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        membershipService.addUsers(projectId, Collections.singletonList(userId));
     }
 
     /**
      * Removes a user from a project.
+     * Delegates to the set-based membership writes, so neither collection is loaded.
      *
      * @param userId    The ID of the user.
      * @param projectId The ID of the project.
@@ -170,13 +448,59 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public void removeUserFromProject(Long userId, Long projectId) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
-        Project project = projectRepository.findById(projectId).orElseThrow(() -> new RuntimeException("Project not found"));
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        membershipService.removeUsers(projectId, Collections.singletonList(userId));
+    }
 
-        user.getProjects().remove(project);
-        project.getUsers().remove(user); // Update project's user list
+    /**
+     * Retrieves the users that share the most projects with a user.
+     * The top {@link UserService#MAX_COLLABORATORS} are computed by one aggregate query over the join table and cached
+     * until the memberships of the user or of one of them change, or one of them is renamed.
+     * The entry is computed under the cache's per-key lock, so an eviction after commit waits for a load
+     * that may have read the previous state and removes it, rather than being overwritten by it.
+     *
+     * @param id The ID of the user.
+     * @return The collaborators, most shared projects first, then by ID.
+     * @throws RuntimeException if the user is not found.
+     */
+    @Override
+    @Cacheable(cacheNames = CacheConfig.COLLABORATORS, key = "#id", sync = true)
+    public List<CollaboratorDTO> getCollaborators(Long id) {
+        if (!userRepository.existsById(id)) {
+            throw new RuntimeException("User not found");
+        }
+        return userRepository.findCollaboratorRows(id, MAX_COLLABORATORS).stream()
+                .map(row -> new CollaboratorDTO(((Number) row[0]).longValue(), (String) row[1], (String) row[2],
+                        ((Number) row[3]).longValue()))
+                .collect(Collectors.toUnmodifiableList());
+    }
 
-        userRepository.save(user);
-        projectRepository.save(project);
+    /**
+     * Loads the project IDs of a page of users with one query, without touching their collections.
+     */
+    private Map<Long, Set<Long>> projectIdsOf(List<User> users) {
+        return userRepository.findProjectIdsByUserIds(users.stream().map(User::getId).collect(Collectors.toList()));
+    }
+
+    /**
+     * Converts a slice of users, loading their project IDs with one query.
+     */
+    private SliceDTO<UserDTO> toSliceDto(Slice<User> users) {
+        Map<Long, Set<Long>> projectIds = projectIdsOf(users.getContent());
+        List<UserDTO> content = users.stream()
+                .map(user -> converterService.convertToDto(user, projectIds.get(user.getId())))
+                .collect(Collectors.toList());
+        return new SliceDTO<>(content, users.getNumber(), users.getSize(), users.hasNext());
+    }
+
+
+    /**
+     * Evicts the cached collaborator lists of everyone a user shares a project with,
+     * once the current transaction, if any, has committed.
+     */
+    private void evictCollaborators(Long id) {
+        AfterCommit.evict(cacheManager, CacheConfig.COLLABORATORS, userRepository.findCollaboratorIds(id));
     }
 }
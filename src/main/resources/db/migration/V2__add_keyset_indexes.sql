@@ -0,0 +1,3 @@
+CREATE INDEX idx_projects_name_id ON projects (name, id);
+
+CREATE INDEX idx_users_name_id ON users (name, id);
@@ -0,0 +1,5 @@
+-- Hibernate allocates IDs in blocks of 50 from these sequences (pooled optimizer),
+-- so that batched inserts need one sequence call per 50 rows instead of one per row.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+
+ALTER SEQUENCE projects_id_seq INCREMENT BY 50;
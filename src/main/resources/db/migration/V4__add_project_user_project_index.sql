@@ -0,0 +1,3 @@
+-- The primary key (user_id, project_id) serves lookups by user; this index serves
+-- lookups by project, so a page of projects can load its member IDs from the index alone.
+CREATE INDEX idx_project_user_project_id_user_id ON project_user (project_id, user_id);
@@ -0,0 +1,4 @@
+-- Optimistic locking versions, also served as ETags. Existing rows start at version 0.
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE projects ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
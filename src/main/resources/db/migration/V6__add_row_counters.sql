@@ -0,0 +1,24 @@
+-- Maintained row counts, read instead of COUNT(*). A counter is the sum of its stripes;
+-- scope_id is the project of a member counter and 0 for the project and user counters.
+CREATE TABLE row_counters (
+    name VARCHAR(64) NOT NULL,
+    scope_id BIGINT NOT NULL,
+    stripe INT NOT NULL,
+    amount BIGINT NOT NULL,
+    PRIMARY KEY (name, scope_id, stripe)
+);
+
+INSERT INTO row_counters (name, scope_id, stripe, amount)
+SELECT 'projects', 0, 0, COUNT(*) FROM projects;
+
+INSERT INTO row_counters (name, scope_id, stripe, amount)
+SELECT 'users', 0, 0, COUNT(*) FROM users;
+
+-- The other 15 stripes of the project and user counters start at 0.
+INSERT INTO row_counters (name, scope_id, stripe, amount)
+SELECT c.name, 0, s.stripe, 0
+FROM (VALUES ('projects'), ('users')) AS c (name)
+CROSS JOIN generate_series(1, 15) AS s (stripe);
+
+INSERT INTO row_counters (name, scope_id, stripe, amount)
+SELECT 'members', project_id, 0, COUNT(*) FROM project_user GROUP BY project_id;
@@ -0,0 +1,9 @@
+-- Denormalized member count, maintained with the memberships, so projects can be sorted by size
+-- without aggregating project_user. It replaces the per-project member counters of V6.
+ALTER TABLE projects ADD COLUMN member_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE projects SET member_count = (SELECT COUNT(*) FROM project_user pu WHERE pu.project_id = projects.id);
+
+CREATE INDEX idx_projects_member_count_id ON projects (member_count, id);
+
+DELETE FROM row_counters WHERE name = 'members';
@@ -0,0 +1,8 @@
+-- Trigram indexes for the case-insensitive substring searches on names. A B-tree cannot serve
+-- UPPER(name) LIKE '%keyword%', but a GIN index with pg_trgm's operator class can, as long as it
+-- is built on the same UPPER(name) expression the search queries compare.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_projects_name_trgm ON projects USING gin (UPPER(name) gin_trgm_ops);
+
+CREATE INDEX idx_users_name_trgm ON users USING gin (UPPER(name) gin_trgm_ops);
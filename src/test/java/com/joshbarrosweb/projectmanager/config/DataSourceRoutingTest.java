@@ -0,0 +1,182 @@
+package com.joshbarrosweb.projectmanager.config;
+
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.AutocompleteService;
+import com.joshbarrosweb.projectmanager.services.MembershipIndexService;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+
+import static com.joshbarrosweb.projectmanager.services.MembershipIndexService.OP_UNION;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the read/write routing against two H2 databases: the primary of the "test" profile and a
+ * replica that has the primary's schema but never receives its rows, so the database a read was
+ * served from shows in its result.
+ */
+@SpringBootTest(properties = {
+        "projectmanager.datasource.replica.url=jdbc:h2:mem:replicadb;DB_CLOSE_DELAY=-1",
+        "projectmanager.datasource.replica.username=sa",
+        "projectmanager.datasource.replica.lag-query=SELECT lag_seconds FROM replica_status",
+        "projectmanager.datasource.replica.lag-check-interval=PT1H"
+})
+@ActiveProfiles("test")
+class DataSourceRoutingTest {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private MembershipIndexService membershipIndexService;
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
+    private JdbcTemplate replica;
+
+    /**
+     * Copies the primary's schema to the replica and reports it as up to date.
+     */
+    @BeforeEach
+    void setUp() {
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("DROP ALL OBJECTS");
+        new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NODATA", String.class).stream()
+                .filter(statement -> !statement.startsWith("--") && !statement.startsWith("CREATE USER"))
+                .forEach(replica::execute);
+        replica.execute("CREATE TABLE replica_status(lag_seconds DOUBLE)");
+        replica.update("INSERT INTO replica_status VALUES (0)");
+        lagMonitor.check();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+    }
+
+    /**
+     * Tests that read-only transactions get replica connections, and read-write transactions
+     * and statements outside transactions get primary connections.
+     */
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        assertTrue(lagMonitor.isReplicaUsable());
+        assertEquals("REPLICADB", inTransaction(true, status -> databaseName()));
+        assertEquals("TESTDB", inTransaction(false, status -> databaseName()));
+        assertEquals("TESTDB", databaseName());
+    }
+
+    /**
+     * Tests that the read-only query paths of the services are served by the replica,
+     * which has not received a project just written to the primary.
+     */
+    @Test
+    void serviceReadsUseTheReplica() {
+        Long id = projectRepository.save(new Project(null, "Routed", null, null)).getId();
+
+        assertEquals(0, projectService.listProjects(PageRequest.of(0, 10)).getNumberOfElements());
+        assertEquals("Routed", projectService.getProjectById(id).getName());
+    }
+
+    /**
+     * Tests that reads fall back to the primary while the replica lags more than the tolerance,
+     * and while its lag cannot be checked.
+     */
+    @Test
+    void laggingReplicaFallsBackToThePrimary() {
+        projectRepository.save(new Project(null, "Routed", null, null));
+
+        replica.update("UPDATE replica_status SET lag_seconds = 60");
+        lagMonitor.check();
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals(1, projectService.listProjects(PageRequest.of(0, 10)).getNumberOfElements());
+
+        replica.update("UPDATE replica_status SET lag_seconds = 1");
+        lagMonitor.check();
+        assertTrue(lagMonitor.isReplicaUsable());
+
+        replica.execute("DROP TABLE replica_status");
+        lagMonitor.check();
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals("TESTDB", inTransaction(true, status -> databaseName()));
+    }
+
+    /**
+     * Tests that the membership index reloads from the primary, as the replica has not received
+     * the membership just written to it.
+     */
+    @Test
+    void membershipIndexLoadsFromThePrimary() {
+        Long projectId = projectRepository.save(new Project(null, "Routed", null, null)).getId();
+        Long userId = userRepository.save(new User(null, "Routed", "routed@mail.com", "secret", null)).getId();
+        jdbcTemplate.update("INSERT INTO project_user (user_id, project_id) VALUES (?, ?)", userId, projectId);
+
+        assertEquals(1, membershipIndexService.rebuild());
+
+        assertEquals(1, membershipIndexService.countUsers(OP_UNION, Collections.singletonList(projectId), null));
+    }
+
+    /**
+     * Tests that the autocomplete indexes reload from the primary, as the replica has not received
+     * the user just written to it.
+     */
+    @Test
+    void autocompleteLoadsFromThePrimary() {
+        Long userId = userRepository.save(new User(null, "Routed", "routed@mail.com", "secret", null)).getId();
+
+        assertEquals(1, autocompleteService.rebuild());
+
+        assertEquals(userId, autocompleteService.suggest("rout", AutocompleteService.TYPE_USER, 10).get(0).getId());
+    }
+
+    private String databaseName() {
+        return jdbcTemplate.queryForObject("SELECT DATABASE()", String.class);
+    }
+
+    private <T> T inTransaction(boolean readOnly, TransactionCallback<T> action) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(action);
+    }
+}
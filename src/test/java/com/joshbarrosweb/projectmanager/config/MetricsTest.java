@@ -0,0 +1,84 @@
+package com.joshbarrosweb.projectmanager.config;
+
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the service, conversion, repository and Hibernate meters against the real beans and H2.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MetricsTest {
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+    }
+
+    /**
+     * Tests that service calls are timed by operation and outcome, and that the conversions
+     * and repository queries they make are timed too, but not the search index maintenance.
+     */
+    @Test
+    void servicesConversionsAndRepositoriesAreTimed() {
+        ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setName("Metered");
+        long created = count(registry.find(MetricsAspect.SERVICE_TIMER)
+                .tags("service", "ProjectServiceImpl", "operation", "createProject", "outcome", "SUCCESS").timer());
+        long failed = count(registry.find(MetricsAspect.SERVICE_TIMER)
+                .tags("operation", "getProjectById", "outcome", "ERROR", "exception", "RuntimeException").timer());
+        long conversions = count(registry.find(MetricsAspect.CONVERSION_TIMER)
+                .tags("operation", "convertToEntity", "type", "ProjectDTO").timer());
+
+        projectService.createProject(projectDTO);
+        assertThrows(RuntimeException.class, () -> projectService.getProjectById(-1L));
+
+        assertEquals(created + 1, registry.get(MetricsAspect.SERVICE_TIMER)
+                .tags("service", "ProjectServiceImpl", "operation", "createProject", "outcome", "SUCCESS").timer().count());
+        assertEquals(failed + 1, registry.get(MetricsAspect.SERVICE_TIMER)
+                .tags("operation", "getProjectById", "outcome", "ERROR", "exception", "RuntimeException").timer().count());
+        assertEquals(conversions + 1, registry.get(MetricsAspect.CONVERSION_TIMER)
+                .tags("operation", "convertToEntity", "type", "ProjectDTO").timer().count());
+        assertTrue(registry.get("spring.data.repository.invocations")
+                .tags("repository", "ProjectRepository", "method", "findById").timer().count() > 0);
+        assertNull(registry.find(MetricsAspect.SERVICE_TIMER).tags("service", "SearchServiceImpl").timer());
+    }
+
+    /**
+     * Tests that Hibernate statistics are published as meters.
+     */
+    @Test
+    void hibernateStatisticsArePublished() {
+        ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setName("Metered");
+        projectService.createProject(projectDTO);
+
+        assertTrue(registry.get("hibernate.entities.inserts").functionCounter().count() > 0);
+        assertNotNull(registry.find("hibernate.query.executions").functionCounter());
+        assertNotNull(registry.find("hibernate.flushes").functionCounter());
+    }
+
+    private static long count(Timer timer) {
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,77 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.dtos.SuggestionDTO;
+import com.joshbarrosweb.projectmanager.services.AutocompleteService;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AutocompleteControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AutocompleteService autocompleteService;
+
+    /**
+     * Tests that suggestions are returned with their ID and name.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void suggest() throws Exception {
+        when(autocompleteService.suggest("art", AutocompleteService.TYPE_PROJECT, 10))
+                .thenReturn(Collections.singletonList(new SuggestionDTO(1L, "Artemis Program", null)));
+
+        mockMvc.perform(get("/autocomplete").param("prefix", "art").param("type", "project"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("Artemis Program"));
+    }
+
+    /**
+     * Tests that an unknown type is a bad request.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void suggestRejectsUnknownType() throws Exception {
+        when(autocompleteService.suggest(eq("art"), eq("team"), anyInt())).thenThrow(new BadRequestException("Unsupported type: team"));
+
+        mockMvc.perform(get("/autocomplete").param("prefix", "art").param("type", "team"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that suggestions are unavailable while the indexes are loading.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void suggestWhileLoading() throws Exception {
+        when(autocompleteService.suggest(eq("art"), eq("project"), anyInt()))
+                .thenThrow(new ServiceUnavailableException("The autocomplete indexes are still loading, try again later"));
+
+        mockMvc.perform(get("/autocomplete").param("prefix", "art").param("type", "project"))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
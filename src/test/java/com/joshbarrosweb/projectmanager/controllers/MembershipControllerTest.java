@@ -0,0 +1,100 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.MembershipIndexService;
+import com.joshbarrosweb.projectmanager.services.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class MembershipControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MembershipIndexService membershipIndexService;
+
+    /**
+     * Tests that the members of the given projects, less those of the excluded ones, are returned as a cursor page.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void findUsers() throws Exception {
+        when(membershipIndexService.findUsers(MembershipIndexService.OP_INTERSECTION, Arrays.asList(1L, 2L),
+                Collections.singletonList(3L), "", 10)).thenReturn(new CursorPageDTO<>(Collections.singletonList(7L), null));
+
+        mockMvc.perform(get("/memberships/users").param("projects", "1,2").param("exclude", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0]").value(7))
+                .andExpect(jsonPath("$.content.length()").value(1));
+    }
+
+    /**
+     * Tests the counts of users and projects.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void countUsersAndProjects() throws Exception {
+        when(membershipIndexService.countUsers(MembershipIndexService.OP_UNION, Arrays.asList(1L, 2L), null)).thenReturn(4L);
+        when(membershipIndexService.countProjects(MembershipIndexService.OP_INTERSECTION, Collections.singletonList(5L), null)).thenReturn(3L);
+
+        mockMvc.perform(get("/memberships/users/count").param("projects", "1,2").param("op", "union"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(4));
+        mockMvc.perform(get("/memberships/projects/count").param("users", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(3));
+    }
+
+    /**
+     * Tests that an unknown operation is a bad request.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void findProjectsRejectsUnknownOperation() throws Exception {
+        when(membershipIndexService.findProjects(eq("xor"), any(), isNull(), anyString(), anyInt()))
+                .thenThrow(new BadRequestException("Unsupported operation: xor"));
+
+        mockMvc.perform(get("/memberships/projects").param("users", "5").param("op", "xor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that a query while the index is still loading is a service unavailable.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void countUsersWhileLoading() throws Exception {
+        when(membershipIndexService.countUsers(any(), any(), any()))
+                .thenThrow(new ServiceUnavailableException("The membership index is still loading, try again later"));
+
+        mockMvc.perform(get("/memberships/users/count").param("projects", "1"))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
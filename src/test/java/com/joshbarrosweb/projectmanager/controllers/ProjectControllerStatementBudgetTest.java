@@ -0,0 +1,383 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
+import com.joshbarrosweb.projectmanager.support.SqlStatementCounter;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sets a SQL statement budget for every endpoint of {@link ProjectController}, run against the
+ * real JPA mappings and H2, so that N+1 queries and other regressions fail the build.
+ * Budgets cover up to two sequence calls wherever rows are inserted, as the pooled ID
+ * generator only calls the sequence once per 50 IDs.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProjectControllerStatementBudgetTest {
+
+    private static final int MEMBERS = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipService membershipService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SqlStatementCounter counter;
+    private Long projectId;
+    private List<Long> userIds;
+
+    /**
+     * Creates two projects and three users, all members of the first project, and empties the caches.
+     */
+    @BeforeEach
+    void setUp() {
+        projectId = projectRepository.save(new Project(null, "Budget Project", "Budgeted", null)).getId();
+        projectRepository.save(new Project(null, "Budget Other", null, null));
+        userIds = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            userIds.add(userRepository.save(new User(null, "Budget User " + i, "budget" + i + "@mail.com", "secret", null)).getId());
+        }
+        membershipService.addUsers(projectId, userIds);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        counter = new SqlStatementCounter(entityManagerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+    }
+
+    /**
+     * Tests that creating a project costs one insert and one counter update, plus the sequence calls.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void createProject() throws Exception {
+        counter.assertAtMost(4, () -> mockMvc.perform(post("/projects")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Budget New\"}"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that creating projects in bulk costs one batched insert and one counter update, plus the sequence calls.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void createProjects() throws Exception {
+        counter.assertAtMost(4, () -> mockMvc.perform(post("/projects/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"name\":\"Budget A\"},{\"name\":\"Budget B\"},{\"name\":\"Budget C\"}]"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a page of projects costs one select, one counter read and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void listProjects() throws Exception {
+        counter.assertAtMost(3, () -> mockMvc.perform(get("/projects"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a page of projects sorted by member count costs the same as any other page,
+     * as the count is a column of the project rather than a join.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void listProjectsByMemberCount() throws Exception {
+        counter.assertAtMost(3, () -> mockMvc.perform(get("/projects").param("sort", "memberCount,desc"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that the number of projects costs a single counter read.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void countProjects() throws Exception {
+        counter.assertAtMost(1, () -> mockMvc.perform(get("/projects/count"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a slice of projects costs one select and one membership query, without a count.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void listProjectSlice() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/projects").param("count", "false"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a cursor page of projects costs one select and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void listProjectsByCursor() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/projects").param("after", ""))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that exporting projects costs one cursor query and one membership query per chunk.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void exportProjects() throws Exception {
+        counter.assertAtMost(2, () -> {
+            MvcResult result = mockMvc.perform(get("/projects/export"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk());
+        });
+    }
+
+    /**
+     * Tests that a project costs one select and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getProjectById() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/projects/{id}", projectId))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a project whose ETag still matches costs a single version lookup.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getProjectByIdNotModified() throws Exception {
+        Long version = projectRepository.findVersionById(projectId).orElseThrow();
+
+        counter.assertAtMost(1, () -> mockMvc.perform(get("/projects/{id}", projectId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + version + "\""))
+                .andExpect(status().isNotModified()));
+    }
+
+    /**
+     * Tests that updating a project costs one select, one update and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void updateProject() throws Exception {
+        counter.assertAtMost(3, () -> mockMvc.perform(put("/projects/{id}", projectId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Budget Renamed\"}"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a conditional update costs one conditional update, one select and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void updateProjectIfMatch() throws Exception {
+        Long version = projectRepository.findVersionById(projectId).orElseThrow();
+
+        counter.assertAtMost(3, () -> mockMvc.perform(put("/projects/{id}", projectId)
+                .header(HttpHeaders.IF_MATCH, "\"" + version + "\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Budget Renamed\"}"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that deleting a project with members costs an existence check, a membership query,
+     * a membership delete, one member count update for the project, one version update for the members,
+     * a select, the delete and one counter update.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void deleteProject() throws Exception {
+        counter.assertAtMost(8, () -> mockMvc.perform(delete("/projects/{id}", projectId))
+                .andExpect(status().isNoContent()));
+    }
+
+    /**
+     * Tests that a page of search results costs one select, one count and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void searchProjects() throws Exception {
+        counter.assertAtMost(3, () -> mockMvc.perform(get("/projects/search").param("name", "Budget"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a slice of search results costs one select and one membership query, without a count.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void searchProjectSlice() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/projects/search").param("name", "Budget").param("count", "false"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a page of the members of a project costs two version lookups for the ETag,
+     * one member count read and one select, whatever the number of members.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getUsersByProjectId() throws Exception {
+        counter.assertAtMost(4, () -> mockMvc.perform(get("/projects/{id}/users", projectId))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a slice of the members of a project costs an existence check and one select, without a count.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getUserSliceByProjectId() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/projects/{id}/users", projectId).param("count", "false"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a cursor page of the members of a project costs an existence check and one select.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getUsersByProjectIdByCursor() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/projects/{id}/users", projectId).param("after", ""))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that exporting the members of a project costs an existence check and one cursor query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void exportUsersByProjectId() throws Exception {
+        counter.assertAtMost(2, () -> {
+            MvcResult result = mockMvc.perform(get("/projects/{id}/users/export", projectId))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk());
+        });
+    }
+
+    /**
+     * Tests that the number of members of a project costs a single member count read.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void countUsersByProjectId() throws Exception {
+        counter.assertAtMost(1, () -> mockMvc.perform(get("/projects/{id}/users/count", projectId))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that members whose ETag still matches cost only the two version lookups.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getUsersByProjectIdNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/projects/{id}/users", projectId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/projects/{id}/users", projectId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()));
+    }
+
+    /**
+     * Tests that adding users costs an existence check, one member query for the users to change and the collaborator lists
+     * to evict, one insert per chunk, one version and member count update for the project and one version update for the users.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void addUsersToProject() throws Exception {
+        Long userId = userRepository.save(new User(null, "Budget Joiner", "joiner@mail.com", "secret", null)).getId();
+
+        counter.assertAtMost(5, () -> mockMvc.perform(post("/projects/{id}/users", projectId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + userId + "]"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that removing users costs an existence check, one member query for the users to change and the collaborator lists
+     * to evict, one delete per chunk, one version and member count update for the project and one version update for the users.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void removeUsersFromProject() throws Exception {
+        counter.assertAtMost(5, () -> mockMvc.perform(delete("/projects/{id}/users", projectId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(userIds.toString()))
+                .andExpect(status().isOk()));
+    }
+}
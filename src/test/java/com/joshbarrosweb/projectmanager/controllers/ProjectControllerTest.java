@@ -1,7 +1,12 @@
 package com.joshbarrosweb.projectmanager.controllers;
 
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.MemberDTO;
+import com.joshbarrosweb.projectmanager.dtos.MembershipResultDTO;
 import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
-import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
 import com.joshbarrosweb.projectmanager.services.ProjectService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,18 +18,34 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -38,6 +59,9 @@ public class ProjectControllerTest {
     @MockBean
     private ProjectService projectService;
 
+    @MockBean
+    private MembershipService membershipService;
+
     private ObjectMapper objectMapper;
 
     @BeforeEach
@@ -76,6 +100,72 @@ public class ProjectControllerTest {
                 .andExpect(status().isOk());
     }
 
+    /**
+     * Tests that the number of projects is served from the project counter.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void countProjects() throws Exception {
+        when(projectService.countProjects()).thenReturn(42L);
+
+        mockMvc.perform(get("/projects/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(42));
+        verify(projectService, never()).getProjectById(anyLong());
+    }
+
+    /**
+     * Tests that count=false returns a slice, without a total count.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void listProjectSlice() throws Exception {
+        SliceDTO<ProjectDTO> projects = new SliceDTO<>(Collections.singletonList(new ProjectDTO()), 0, 10, true);
+        when(projectService.listProjectSlice(any())).thenReturn(projects);
+
+        mockMvc.perform(get("/projects")
+                .param("count", "false")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+        verify(projectService, never()).listProjects(any());
+    }
+
+    /**
+     * Tests the retrieval of a list of projects using a cursor.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void listProjectsByCursor() throws Exception {
+        CursorPageDTO<ProjectDTO> projects = new CursorPageDTO<>(Collections.singletonList(new ProjectDTO()), "next");
+        when(projectService.listProjects(eq(""), eq(10), eq("id"))).thenReturn(projects);
+
+        mockMvc.perform(get("/projects")
+                .param("after", "")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    /**
+     * Tests that an invalid cursor is rejected.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void listProjectsByInvalidCursor() throws Exception {
+        when(projectService.listProjects(eq("bad"), anyInt(), anyString())).thenThrow(new BadRequestException("Invalid cursor"));
+
+        mockMvc.perform(get("/projects")
+                .param("after", "bad")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     /**
      * Tests the retrieval of a project by its ID.
      *
@@ -107,6 +197,70 @@ public class ProjectControllerTest {
                 .andExpect(status().isOk());
     }
 
+    /**
+     * Tests that a project is returned with its version as a strong ETag.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void getProjectByIdReturnsETag() throws Exception {
+        ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setVersion(3L);
+        when(projectService.getProjectById(1L)).thenReturn(projectDTO);
+
+        mockMvc.perform(get("/projects/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    /**
+     * Tests that a current If-None-Match ETag gets 304 from a version lookup, without loading the project.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void getProjectByIdNotModified() throws Exception {
+        when(projectService.getProjectVersion(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/projects/{id}", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2\", \"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+        verify(projectService, never()).getProjectById(anyLong());
+    }
+
+    /**
+     * Tests that an update with a stale If-Match ETag is rejected with 412.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void updateProjectWithStaleETag() throws Exception {
+        when(projectService.updateProject(eq(1L), any(ProjectDTO.class), eq(2L)))
+                .thenThrow(new OptimisticLockingFailureException("Project has been modified"));
+
+        mockMvc.perform(put("/projects/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ProjectDTO())))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    /**
+     * Tests that an If-Match header that is not a version ETag is rejected with 412.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void updateProjectWithMalformedETag() throws Exception {
+        mockMvc.perform(put("/projects/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ProjectDTO())))
+                .andExpect(status().isPreconditionFailed());
+        verify(projectService, never()).updateProject(anyLong(), any(ProjectDTO.class), anyLong());
+    }
+
     /**
      * Tests the deletion of a project.
      *
@@ -136,16 +290,168 @@ public class ProjectControllerTest {
     }
 
     /**
-     * Tests the retrieval of users assigned to a project.
+     * Tests the search for projects by name with count=false.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void searchProjectSlice() throws Exception {
+        SliceDTO<ProjectDTO> projects = new SliceDTO<>(Collections.singletonList(new ProjectDTO()), 0, 10, false);
+        when(projectService.searchProjectSlice(eq("test"), any())).thenReturn(projects);
+
+        mockMvc.perform(get("/projects/search")
+                .param("name", "test")
+                .param("count", "false")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    /**
+     * Tests the retrieval of a page of users assigned to a project, ordered by ID by default.
      *
      * @throws Exception if an error occurs during the test.
      */
     @Test
     public void getUsersByProjectId() throws Exception {
-        when(projectService.getUsersByProjectId(anyLong())).thenReturn(Arrays.asList(new UserDTO()));
+        Page<MemberDTO> page = new PageImpl<>(Collections.singletonList(new MemberDTO(2L, "Cloud", "cloud@mail.com", 0L)),
+                PageRequest.of(0, 10), 1);
+        when(projectService.getMembersVersion(1L)).thenReturn("3-17");
+        when(projectService.getUsersByProjectId(eq(1L), any(Pageable.class))).thenReturn(page);
 
         mockMvc.perform(get("/projects/{id}/users", 1L)
                 .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-17\""))
+                .andExpect(jsonPath("$.content[0].email").value("cloud@mail.com"))
+                .andExpect(jsonPath("$.content[0].projectIds").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(1));
+        verify(projectService).getUsersByProjectId(1L, PageRequest.of(0, 10, Sort.by("id")));
+    }
+
+    /**
+     * Tests the retrieval of users assigned to a project using a cursor.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void getUsersByProjectIdByCursor() throws Exception {
+        when(projectService.getUsersByProjectId(1L, "", 20))
+                .thenReturn(new CursorPageDTO<>(Collections.singletonList(new MemberDTO(2L, "Cloud", "cloud@mail.com", 0L)), "next"));
+
+        mockMvc.perform(get("/projects/{id}/users", 1L)
+                .param("after", "")
+                .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(2))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+        verify(projectService, never()).getMembersVersion(anyLong());
+    }
+
+    /**
+     * Tests the retrieval of a slice of users assigned to a project, without a count.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void getUserSliceByProjectId() throws Exception {
+        when(projectService.getUserSliceByProjectId(eq(1L), any(Pageable.class)))
+                .thenReturn(new SliceDTO<>(Collections.emptyList(), 0, 10, false));
+
+        mockMvc.perform(get("/projects/{id}/users", 1L)
+                .param("count", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    /**
+     * Tests the export of the users of a project as newline-delimited JSON, one member per line.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void exportUsersByProjectId() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<MemberDTO> consumer = invocation.getArgument(1);
+            consumer.accept(new MemberDTO(2L, "Cloud", "cloud@mail.com", 0L));
+            consumer.accept(new MemberDTO(3L, "Tifa", "tifa@mail.com", 0L));
+            return null;
+        }).when(projectService).exportUsersByProjectId(eq(1L), any());
+
+        MvcResult result = mockMvc.perform(get("/projects/{id}/users/export", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"Cloud\""));
+        assertTrue(lines[1].contains("\"name\":\"Tifa\""));
+    }
+
+    /**
+     * Tests that a current If-None-Match ETag on a project's users gets 304 without loading them.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void getUsersByProjectIdNotModified() throws Exception {
+        when(projectService.getMembersVersion(1L)).thenReturn("3-17");
+
+        mockMvc.perform(get("/projects/{id}/users", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3-17\""))
+                .andExpect(status().isNotModified());
+        verify(projectService, never()).getUsersByProjectId(anyLong(), any(Pageable.class));
+    }
+
+    /**
+     * Tests that the number of a project's users is served from its member counter.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void countUsersByProjectId() throws Exception {
+        when(projectService.countUsersByProjectId(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/projects/{id}/users/count", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(3));
+        verify(projectService, never()).getUsersByProjectId(anyLong(), any(Pageable.class));
+    }
+
+    /**
+     * Tests the assignment of several users to a project.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void addUsersToProject() throws Exception {
+        when(membershipService.addUsers(eq(1L), any())).thenReturn(new MembershipResultDTO(3, 2));
+
+        mockMvc.perform(post("/projects/1/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[2, 3, 4]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(3))
+                .andExpect(jsonPath("$.affected").value(2));
+    }
+
+    /**
+     * Tests the removal of several users from a project.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void removeUsersFromProject() throws Exception {
+        when(membershipService.removeUsers(eq(1L), any())).thenReturn(new MembershipResultDTO(2, 1));
+
+        mockMvc.perform(delete("/projects/1/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[2, 3]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(1));
     }
 }
@@ -0,0 +1,64 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.dtos.SearchHitDTO;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.SearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class SearchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SearchService searchService;
+
+    /**
+     * Tests that search hits are returned with their type, ID and fields.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void search() throws Exception {
+        SearchHitDTO hit = new SearchHitDTO(SearchService.TYPE_PROJECT, 1L, "Artemis Program", "Return to the Moon", null, 1.5f);
+        when(searchService.search("moon", SearchService.TYPE_PROJECT, 5)).thenReturn(Collections.singletonList(hit));
+
+        mockMvc.perform(get("/search").param("q", "moon").param("type", "project").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type").value("project"))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("Artemis Program"));
+    }
+
+    /**
+     * Tests that an invalid search, such as a blank query, is a bad request.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void searchRejectsInvalidQuery() throws Exception {
+        when(searchService.search(eq(" "), isNull(), anyInt())).thenThrow(new BadRequestException("Search query must not be blank"));
+
+        mockMvc.perform(get("/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+}
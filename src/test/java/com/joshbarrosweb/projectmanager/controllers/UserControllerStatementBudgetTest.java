@@ -0,0 +1,329 @@
+package com.joshbarrosweb.projectmanager.controllers;
+
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
+import com.joshbarrosweb.projectmanager.support.SqlStatementCounter;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sets a SQL statement budget for every endpoint of {@link UserController}, run against the
+ * real JPA mappings and H2, so that N+1 queries and other regressions fail the build.
+ * Budgets cover up to two sequence calls wherever rows are inserted, as the pooled ID
+ * generator only calls the sequence once per 50 IDs.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UserControllerStatementBudgetTest {
+
+    private static final int USERS = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private MembershipService membershipService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SqlStatementCounter counter;
+    private List<Long> userIds;
+    private List<Long> projectIds;
+
+    /**
+     * Creates three users and two projects, with every user in the first project and the first
+     * user in both, and empties the caches.
+     */
+    @BeforeEach
+    void setUp() {
+        userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(userRepository.save(new User(null, "Budget User " + i, "budget" + i + "@mail.com", "secret", null)).getId());
+        }
+        projectIds = new ArrayList<>();
+        projectIds.add(projectRepository.save(new Project(null, "Budget Project", null, null)).getId());
+        projectIds.add(projectRepository.save(new Project(null, "Budget Other", null, null)).getId());
+        membershipService.addUsers(projectIds.get(0), userIds);
+        membershipService.addUsers(projectIds.get(1), Collections.singletonList(userIds.get(0)));
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        counter = new SqlStatementCounter(entityManagerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+    }
+
+    /**
+     * Tests that creating a user costs one insert and one counter update, plus the sequence calls.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void createUser() throws Exception {
+        counter.assertAtMost(4, () -> mockMvc.perform(post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Budget New\",\"email\":\"new@mail.com\",\"password\":\"secret\"}"))
+                .andExpect(status().isCreated()));
+    }
+
+    /**
+     * Tests that creating users in bulk costs one email lookup, one batched insert and one counter update,
+     * plus the sequence calls.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void createUsers() throws Exception {
+        counter.assertAtMost(5, () -> mockMvc.perform(post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"name\":\"Budget A\",\"email\":\"a@mail.com\",\"password\":\"secret\"},"
+                        + "{\"name\":\"Budget B\",\"email\":\"b@mail.com\",\"password\":\"secret\"},"
+                        + "{\"name\":\"Budget C\",\"email\":\"c@mail.com\",\"password\":\"secret\"}]"))
+                .andExpect(status().isCreated()));
+    }
+
+    /**
+     * Tests that a page of users costs one select, one counter read and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void listUsers() throws Exception {
+        counter.assertAtMost(3, () -> mockMvc.perform(get("/users"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that the number of users costs a single counter read.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void countUsers() throws Exception {
+        counter.assertAtMost(1, () -> mockMvc.perform(get("/users/count"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a slice of users costs one select and one membership query, without a count.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void listUserSlice() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/users").param("count", "false"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a cursor page of users costs one select and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void listUsersByCursor() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/users").param("after", "").param("sort", "name"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that exporting users costs one cursor query and one membership query per chunk.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void exportUsers() throws Exception {
+        counter.assertAtMost(2, () -> {
+            MvcResult result = mockMvc.perform(get("/users/export"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk());
+        });
+    }
+
+    /**
+     * Tests that a user costs one select and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getUserById() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/users/{id}", userIds.get(0)))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a user whose ETag still matches costs a single version lookup.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getUserByIdNotModified() throws Exception {
+        Long version = userRepository.findVersionById(userIds.get(0)).orElseThrow();
+
+        counter.assertAtMost(1, () -> mockMvc.perform(get("/users/{id}", userIds.get(0))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + version + "\""))
+                .andExpect(status().isNotModified()));
+    }
+
+    /**
+     * Tests that updating a user costs one select, one update, one collaborator query and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void updateUser() throws Exception {
+        counter.assertAtMost(4, () -> mockMvc.perform(put("/users/{id}", userIds.get(0))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Budget Renamed\",\"email\":\"renamed@mail.com\"}"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a conditional update costs one conditional update, one select, one collaborator query
+     * and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void updateUserIfMatch() throws Exception {
+        Long version = userRepository.findVersionById(userIds.get(0)).orElseThrow();
+
+        counter.assertAtMost(4, () -> mockMvc.perform(put("/users/{id}", userIds.get(0))
+                .header(HttpHeaders.IF_MATCH, "\"" + version + "\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Budget Renamed\",\"email\":\"renamed@mail.com\"}"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that deleting a user in two projects costs an existence check, a membership query,
+     * a collaborator query, a membership delete, one version and member count update for the projects, a select,
+     * the delete of its (already empty) collection, the delete of the user and one counter update.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void deleteUser() throws Exception {
+        counter.assertAtMost(9, () -> mockMvc.perform(delete("/users/{id}", userIds.get(0)))
+                .andExpect(status().isNoContent()));
+    }
+
+    /**
+     * Tests that a page of search results costs one select, one count and one membership query.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void searchUsers() throws Exception {
+        counter.assertAtMost(3, () -> mockMvc.perform(get("/users/search").param("name", "Budget"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that a slice of search results costs one select and one membership query, without a count.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void searchUserSlice() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/users/search").param("name", "Budget").param("count", "false"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Tests that assigning a user costs two existence checks, one member query for the collaborator lists to evict, one insert,
+     * one version and member count update for the project and one version update for the user.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void assignUserToProject() throws Exception {
+        counter.assertAtMost(6, () -> mockMvc.perform(post("/users/{userId}/projects/{projectId}", userIds.get(1), projectIds.get(1)))
+                .andExpect(status().isNoContent()));
+    }
+
+    /**
+     * Tests that removing a user costs two existence checks, one member query for the collaborator lists to evict, one delete,
+     * one version and member count update for the project and one version update for the user.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void removeUserFromProject() throws Exception {
+        counter.assertAtMost(6, () -> mockMvc.perform(delete("/users/{userId}/projects/{projectId}", userIds.get(0), projectIds.get(0)))
+                .andExpect(status().isNoContent()));
+    }
+
+    /**
+     * Tests that the collaborators of a user cost an existence check and one aggregate query,
+     * nothing once cached, even after memberships change in a project none of them is in,
+     * and are computed again after a membership change in one of their projects.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getCollaborators() throws Exception {
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/users/{id}/collaborators", userIds.get(0)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(USERS - 1)));
+        counter.assertAtMost(0, () -> mockMvc.perform(get("/users/{id}/collaborators", userIds.get(0)).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1)));
+
+        Long outsider = userRepository.save(new User(null, "Budget Outsider", "outsider@mail.com", "secret", null)).getId();
+        Long elsewhere = projectRepository.save(new Project(null, "Budget Elsewhere", null, null)).getId();
+        membershipService.addUsers(elsewhere, Collections.singletonList(outsider));
+
+        counter.assertAtMost(0, () -> mockMvc.perform(get("/users/{id}/collaborators", userIds.get(0)))
+                .andExpect(status().isOk()));
+
+        membershipService.addUsers(projectIds.get(1), Collections.singletonList(userIds.get(2)));
+
+        counter.assertAtMost(2, () -> mockMvc.perform(get("/users/{id}/collaborators", userIds.get(0)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(userIds.get(2)))
+                .andExpect(jsonPath("$[0].sharedProjects").value(2)));
+    }
+}
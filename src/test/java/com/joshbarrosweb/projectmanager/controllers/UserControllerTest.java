@@ -1,5 +1,10 @@
 package com.joshbarrosweb.projectmanager.controllers;
 
+import com.joshbarrosweb.projectmanager.dtos.BatchErrorDTO;
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.CollaboratorDTO;
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
 import com.joshbarrosweb.projectmanager.dtos.UserDTO;
 import com.joshbarrosweb.projectmanager.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,20 +17,37 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Consumer;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -67,6 +89,25 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.email").value("john@mail.com"));
     }
 
+    /**
+     * Tests the bulk creation of users.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void createUsers() throws Exception {
+        BatchResultDTO result = new BatchResultDTO(Arrays.asList(1L, null),
+                Collections.singletonList(new BatchErrorDTO(1, "email must be a well-formed email address")));
+        when(userService.createUsers(any())).thenReturn(result);
+
+        mockMvc.perform(post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"name\":\"John\",\"email\":\"john@mail.com\",\"password\":\"secret\"},{\"name\":\"Jane\",\"email\":\"jane\"}]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.createdIds[0]").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1));
+    }
+
     /**
      * Tests the retrieval of a list of users.
      *
@@ -89,6 +130,79 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.content[0].email").value("john@mail.com"));
     }
 
+    /**
+     * Tests that the number of users is served from the user counter.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void countUsers() throws Exception {
+        when(userService.countUsers()).thenReturn(11L);
+
+        mockMvc.perform(get("/users/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(11));
+        verify(userService, never()).getUserById(anyLong());
+    }
+
+    /**
+     * Tests the retrieval of a list of users using a cursor.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void listUsersByCursor() throws Exception {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName("John");
+        userDTO.setEmail("john@mail.com");
+
+        CursorPageDTO<UserDTO> users = new CursorPageDTO<>(Arrays.asList(userDTO), "next");
+
+        when(userService.listUsers(eq("abc"), eq(5), eq("name"))).thenReturn(users);
+
+        mockMvc.perform(get("/users")
+                .param("after", "abc")
+                .param("size", "5")
+                .param("sort", "name")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("John"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    /**
+     * Tests the export of all users as newline-delimited JSON, one user per line.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void exportUsers() throws Exception {
+        UserDTO john = new UserDTO();
+        john.setName("John");
+        UserDTO jane = new UserDTO();
+        jane.setName("Jane");
+        doAnswer(invocation -> {
+            Consumer<UserDTO> consumer = invocation.getArgument(0);
+            consumer.accept(john);
+            consumer.accept(jane);
+            return null;
+        }).when(userService).exportUsers(any());
+
+        MvcResult result = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"John\""));
+        assertTrue(lines[1].contains("\"name\":\"Jane\""));
+        assertTrue(body.endsWith("\n"));
+    }
+
     /**
      * Tests the retrieval of a user by their ID.
      *
@@ -130,6 +244,43 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.email").value("john@mail.com"));
     }
 
+    /**
+     * Tests that a current If-None-Match ETag gets 304 from a version lookup, without loading the user.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getUserByIdNotModified() throws Exception {
+        when(userService.getUserVersion(1L)).thenReturn(5L);
+
+        mockMvc.perform(get("/users/{id}", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+        verify(userService, never()).getUserById(anyLong());
+    }
+
+    /**
+     * Tests that an update with a current If-Match ETag is applied conditionally and returns the new ETag.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void updateUserWithETag() throws Exception {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName("John");
+        userDTO.setVersion(6L);
+
+        when(userService.updateUser(eq(1L), any(UserDTO.class), eq(5L))).thenReturn(userDTO);
+
+        mockMvc.perform(put("/users/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"5\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"John\",\"email\":\"john@mail.com\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"6\""));
+    }
+
     /**
      * Tests the deletion of a user.
      *
@@ -166,6 +317,28 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.content[0].email").value("john@mail.com"));
     }
 
+    /**
+     * Tests the search for users by name with count=false, which returns a slice without a total count.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void searchUserSlice() throws Exception {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName("John");
+        SliceDTO<UserDTO> users = new SliceDTO<>(Collections.singletonList(userDTO), 0, 10, true);
+        when(userService.searchUserSlice(eq("John"), eq(null), any())).thenReturn(users);
+
+        mockMvc.perform(get("/users/search")
+                .param("name", "John")
+                .param("count", "false")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("John"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
     /**
      * Tests assigning a user to a project.
      *
@@ -189,4 +362,42 @@ class UserControllerTest {
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
     }
+
+    /**
+     * Tests retrieving the collaborators of a user, cut to the limit.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getCollaborators() throws Exception {
+        when(userService.getCollaborators(1L)).thenReturn(Arrays.asList(
+                new CollaboratorDTO(2L, "Jane", "jane@mail.com", 3L),
+                new CollaboratorDTO(3L, "John", "john@mail.com", 1L)));
+
+        mockMvc.perform(get("/users/{id}/collaborators", 1L)
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].name").value("Jane"))
+                .andExpect(jsonPath("$[0].sharedProjects").value(3));
+    }
+
+    /**
+     * Tests that a limit out of bounds is rejected before the collaborators are retrieved.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void getCollaboratorsRejectsInvalidLimit() throws Exception {
+        mockMvc.perform(get("/users/{id}/collaborators", 1L)
+                .param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Limit must be between 1 and " + UserService.MAX_COLLABORATORS));
+        mockMvc.perform(get("/users/{id}/collaborators", 1L)
+                .param("limit", String.valueOf(UserService.MAX_COLLABORATORS + 1)))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).getCollaborators(anyLong());
+    }
 }
@@ -0,0 +1,143 @@
+package com.joshbarrosweb.projectmanager.datagen;
+
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the {@link SyntheticDataGenerator} against H2, where it loads through JDBC batches.
+ * The "datagen" profile is not active, so each test builds its own generator.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SyntheticDataGeneratorTest {
+
+    private static final String RELATIVE_MEMBERSHIPS = "SELECT CONCAT(m.user_id - ?, ':', m.project_id - ?) FROM project_user m "
+            + "WHERE m.user_id >= ? ORDER BY m.user_id, m.project_id";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+    }
+
+    /**
+     * Tests that the requested rows are generated, that each user joins at most twice the mean number
+     * of projects, and that membership is skewed towards the most popular projects.
+     *
+     * @throws SQLException if the generator fails.
+     */
+    @Test
+    void generatesSkewedMemberships() throws SQLException {
+        long firstProjectId = nextId("projects");
+
+        long memberships = new SyntheticDataGenerator(dataSource, properties(42)).generate();
+
+        assertEquals(500, JdbcTestUtils.countRowsInTable(jdbcTemplate, "users"));
+        assertEquals(50, JdbcTestUtils.countRowsInTable(jdbcTemplate, "projects"));
+        assertEquals(memberships, JdbcTestUtils.countRowsInTable(jdbcTemplate, "project_user"));
+        Integer busiestUser = jdbcTemplate.queryForObject(
+                "SELECT MAX(c) FROM (SELECT COUNT(*) AS c FROM project_user GROUP BY user_id) counts", Integer.class);
+        assertTrue(busiestUser <= 8);
+        assertTrue(members(firstProjectId) > 5 * members(firstProjectId + 49));
+    }
+
+    /**
+     * Tests that users can join every project even when popularity is steeply skewed,
+     * which drawing ranks until they are distinct would take practically forever to do.
+     *
+     * @throws SQLException if the generator fails.
+     */
+    @Test
+    void joinsAllProjectsUnderSteepSkew() throws SQLException {
+        DataGenProperties properties = properties(3);
+        properties.setUsers(100);
+        properties.setProjects(200);
+        properties.setMembershipsPerUser(100);
+        properties.setZipfExponent(4.0);
+
+        long memberships = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> new SyntheticDataGenerator(dataSource, properties).generate());
+
+        assertEquals(memberships, JdbcTestUtils.countRowsInTable(jdbcTemplate, "project_user"));
+        Integer busiestUser = jdbcTemplate.queryForObject(
+                "SELECT MAX(c) FROM (SELECT COUNT(*) AS c FROM project_user GROUP BY user_id) counts", Integer.class);
+        assertTrue(busiestUser > 150 && busiestUser <= 200);
+    }
+
+    /**
+     * Tests that the same seed generates the same memberships, relative to the first generated IDs.
+     *
+     * @throws SQLException if the generator fails.
+     */
+    @Test
+    void sameSeedGeneratesSameData() throws SQLException {
+        long firstUserId = nextId("users");
+        long firstProjectId = nextId("projects");
+        new SyntheticDataGenerator(dataSource, properties(7)).generate();
+        List<String> first = jdbcTemplate.queryForList(RELATIVE_MEMBERSHIPS, String.class, firstUserId, firstProjectId, firstUserId);
+
+        long secondUserId = nextId("users");
+        long secondProjectId = nextId("projects");
+        new SyntheticDataGenerator(dataSource, properties(7)).generate();
+        List<String> second = jdbcTemplate.queryForList(RELATIVE_MEMBERSHIPS, String.class, secondUserId, secondProjectId, secondUserId);
+
+        assertFalse(first.isEmpty());
+        assertEquals(first, second);
+    }
+
+    /**
+     * Tests that the ID sequences are moved past the generated rows, so the application can insert afterwards.
+     *
+     * @throws SQLException if the generator fails.
+     */
+    @Test
+    void insertsAfterGeneration() throws SQLException {
+        new SyntheticDataGenerator(dataSource, properties(42)).generate();
+        long lastId = nextId("users") - 1;
+
+        User user = userRepository.save(new User(null, "After", "after@datagen.test", "secret", null));
+
+        assertTrue(user.getId() > lastId);
+    }
+
+    private DataGenProperties properties(long seed) {
+        DataGenProperties properties = new DataGenProperties();
+        properties.setUsers(500);
+        properties.setProjects(50);
+        properties.setMembershipsPerUser(4);
+        properties.setSeed(seed);
+        properties.setBatchSize(100);
+        return properties;
+    }
+
+    private long nextId(String table) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Long.class);
+    }
+
+    private int members(long projectId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM project_user WHERE project_id = ?", Integer.class, projectId);
+    }
+}
@@ -0,0 +1,119 @@
+package com.joshbarrosweb.projectmanager.repositories;
+
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ProjectRepositoryTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long projectId;
+    private Long cloudId;
+    private Long tifaId;
+
+    @BeforeEach
+    void setUp() {
+        projectId = projectRepository.save(new Project(null, "Warzone", null, null)).getId();
+        cloudId = userRepository.save(new User(null, "Cloud", "cloud@mail.com", "secret", null)).getId();
+        tifaId = userRepository.save(new User(null, "Tifa", "tifa@mail.com", "secret", null)).getId();
+    }
+
+    /**
+     * Tests that inserting memberships skips unknown users and existing memberships,
+     * so retrying the same request neither fails nor creates duplicates.
+     */
+    @Test
+    void insertMembershipsIsIdempotent() {
+        assertEquals(2, projectRepository.insertMemberships(projectId, Arrays.asList(cloudId, tifaId, -1L)));
+        assertEquals(0, projectRepository.insertMemberships(projectId, Arrays.asList(cloudId, tifaId)));
+
+        assertEquals(new HashSet<>(Arrays.asList(cloudId, tifaId)),
+                new HashSet<>(projectRepository.findUserIdsByProjectId(projectId)));
+    }
+
+    /**
+     * Tests that deleting memberships only removes the given users, and that deleting
+     * all memberships lets the project be deleted while its users are kept.
+     */
+    @Test
+    void deleteMemberships() {
+        projectRepository.insertMemberships(projectId, Arrays.asList(cloudId, tifaId));
+
+        assertEquals(1, projectRepository.deleteMemberships(projectId, Arrays.asList(cloudId, -1L)));
+        assertEquals(Arrays.asList(tifaId), projectRepository.findUserIdsByProjectId(projectId));
+
+        assertEquals(1, projectRepository.deleteAllMemberships(projectId));
+        projectRepository.deleteById(projectId);
+        projectRepository.flush();
+        assertTrue(userRepository.existsById(tifaId));
+    }
+
+    /**
+     * Tests that a conditional update only applies to the expected version and increments it,
+     * and that membership version bumps change the members' version sum.
+     */
+    @Test
+    void updateIfVersion() {
+        long version = projectRepository.findVersionById(projectId).orElseThrow();
+
+        assertEquals(0, projectRepository.updateIfVersion(projectId, "Stale", null, version + 1));
+        assertEquals(1, projectRepository.updateIfVersion(projectId, "Midgar", null, version));
+        assertEquals(version + 1, projectRepository.findVersionById(projectId).orElseThrow());
+        assertEquals("Midgar", projectRepository.findById(projectId).orElseThrow().getName());
+
+        projectRepository.insertMemberships(projectId, Arrays.asList(cloudId, tifaId));
+        long sum = projectRepository.sumMemberVersions(projectId);
+        assertEquals(1, userRepository.incrementVersions(Arrays.asList(cloudId)));
+        assertEquals(sum + 1, projectRepository.sumMemberVersions(projectId));
+    }
+
+    /**
+     * Tests that the name search ignores case and matches LIKE wildcards literally, with and without a count query.
+     */
+    @Test
+    void searchIgnoresCase() {
+        projectRepository.save(new Project(null, "100% Warzone_2", null, null));
+
+        assertEquals(2, projectRepository.findByNameContainingIgnoreCase("WARZ", PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(1, projectRepository.findByNameContainingIgnoreCase("0% warzone_", PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(0, projectRepository.findByNameContainingIgnoreCase("Warzone%", PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(2, projectRepository.findSliceByNameContainingIgnoreCase("zone", PageRequest.of(0, 10)).getNumberOfElements());
+    }
+
+    /**
+     * Tests that adding members moves the member count and the version together, and that repairing
+     * only rewrites the counts of the given ID range that differ from the memberships.
+     */
+    @Test
+    void memberCounts() {
+        long version = projectRepository.findVersionById(projectId).orElseThrow();
+        projectRepository.insertMemberships(projectId, Arrays.asList(cloudId, tifaId));
+
+        assertEquals(1, projectRepository.addMembers(Arrays.asList(projectId), 2L));
+        assertEquals(2L, projectRepository.findMemberCountById(projectId).orElseThrow());
+        assertEquals(version + 1, projectRepository.findVersionById(projectId).orElseThrow());
+        assertEquals(0, projectRepository.repairMemberCounts(projectId - 1, projectId));
+
+        projectRepository.addMembers(Arrays.asList(projectId), 5L);
+        assertEquals(0, projectRepository.repairMemberCounts(projectId, projectId + 1));
+        assertEquals(1, projectRepository.repairMemberCounts(projectId - 1, projectId));
+        assertEquals(2L, projectRepository.findMemberCountById(projectId).orElseThrow());
+    }
+}
@@ -0,0 +1,156 @@
+package com.joshbarrosweb.projectmanager.repositories;
+
+import com.joshbarrosweb.projectmanager.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class UserRepositoryTest {
+
+    private static final int USER_COUNT = 2500;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Creates a large set of users. Every third user has "Match" in their name.
+     */
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USER_COUNT; i++) {
+            String name = (i % 3 == 0 ? "Match " : "Other ") + String.format("%05d", i);
+            users.add(new User(null, name, "user" + i + "@mail.com", "secret", null));
+        }
+        userRepository.saveAll(users);
+    }
+
+    /**
+     * Tests that every page of a name search is full, disjoint from the other pages,
+     * and that the total matches the number of users with the keyword.
+     */
+    @Test
+    void searchByNameReturnsCorrectPages() {
+        int expected = (USER_COUNT + 2) / 3;
+        Set<Long> seen = new HashSet<>();
+        int pageSize = 100;
+
+        for (int page = 0; page * pageSize < expected; page++) {
+            Page<User> result = userRepository.searchByNameOrEmail("Match", null, PageRequest.of(page, pageSize, Sort.by("id")));
+
+            assertEquals(expected, result.getTotalElements());
+            assertEquals(Math.min(pageSize, expected - page * pageSize), result.getNumberOfElements());
+            for (User user : result.getContent()) {
+                assertTrue(user.getName().contains("Match"));
+                assertTrue(seen.add(user.getId()), "User returned on more than one page");
+            }
+        }
+        assertEquals(expected, seen.size());
+    }
+
+    /**
+     * Tests that the name and email filters are combined with OR and that
+     * a user matching both criteria is counted once.
+     */
+    @Test
+    void searchByNameOrEmailCombinesFilters() {
+        Page<User> either = userRepository.searchByNameOrEmail("Match", "user1@mail.com", PageRequest.of(0, 10));
+        Page<User> both = userRepository.searchByNameOrEmail("Match", "user3@mail.com", PageRequest.of(0, 10));
+
+        assertEquals((USER_COUNT + 2) / 3 + 1, either.getTotalElements());
+        assertEquals((USER_COUNT + 2) / 3, both.getTotalElements());
+    }
+
+    /**
+     * Tests that null parameters do not filter.
+     */
+    @Test
+    void searchWithNullParametersReturnsAllUsers() {
+        Page<User> all = userRepository.searchByNameOrEmail(null, null, PageRequest.of(24, 100));
+        Page<User> byEmail = userRepository.searchByNameOrEmail(null, "user42@mail.com", PageRequest.of(0, 10));
+
+        assertEquals(USER_COUNT, all.getTotalElements());
+        assertEquals(100, all.getNumberOfElements());
+        assertEquals(1, byEmail.getTotalElements());
+        assertEquals("user42@mail.com", byEmail.getContent().get(0).getEmail());
+    }
+
+    /**
+     * Tests that the name search ignores case, with and without a count query.
+     */
+    @Test
+    void searchIgnoresCase() {
+        int expected = (USER_COUNT + 2) / 3;
+
+        assertEquals(expected, userRepository.searchByNameOrEmail("mATCH", null, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(expected, userRepository.searchSliceByNameOrEmail("match 0", null, PageRequest.of(0, USER_COUNT)).getNumberOfElements());
+    }
+
+    /**
+     * Tests that LIKE wildcards in the keyword are matched literally.
+     */
+    @Test
+    void searchEscapesWildcards() {
+        Page<User> result = userRepository.searchByNameOrEmail("%", null, PageRequest.of(0, 10));
+
+        assertEquals(0, result.getTotalElements());
+    }
+
+    /**
+     * Tests that the count-free search matches the same users as the paged one, slice by slice,
+     * and reports whether there is a next slice.
+     */
+    @Test
+    void searchSliceMatchesSearch() {
+        int expected = (USER_COUNT + 2) / 3;
+        Slice<User> first = userRepository.searchSliceByNameOrEmail("Match", "user1@mail.com", PageRequest.of(0, 100, Sort.by("id")));
+        Slice<User> last = userRepository.searchSliceByNameOrEmail("Match", "user1@mail.com", PageRequest.of(expected / 100, 100, Sort.by("id")));
+
+        assertEquals(100, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+        assertEquals((expected + 1) % 100, last.getNumberOfElements());
+        assertFalse(last.hasNext());
+        assertEquals(userRepository.searchByNameOrEmail("Match", "user1@mail.com", PageRequest.of(0, 100, Sort.by("id"))).getContent(),
+                first.getContent());
+    }
+
+    /**
+     * Tests that the count-free search does not filter on null parameters and matches wildcards literally.
+     */
+    @Test
+    void searchSliceWithNullParametersAndWildcards() {
+        assertEquals(100, userRepository.searchSliceByNameOrEmail(null, null, PageRequest.of(0, 100)).getNumberOfElements());
+        assertEquals(1, userRepository.searchSliceByNameOrEmail("", "user42@mail.com", PageRequest.of(0, 10)).getNumberOfElements());
+        assertEquals(0, userRepository.searchSliceByNameOrEmail("%", null, PageRequest.of(0, 10)).getNumberOfElements());
+    }
+
+    /**
+     * Tests the count-free search by email alone, and by name alone, each through its own query.
+     */
+    @Test
+    void searchSliceBySingleFilter() {
+        Slice<User> byEmail = userRepository.searchSliceByNameOrEmail(null, "user7@mail.com", PageRequest.of(0, 10));
+        Slice<User> byName = userRepository.searchSliceByNameOrEmail("match 0000", "", PageRequest.of(0, 10, Sort.by("id")));
+
+        assertEquals(1, byEmail.getNumberOfElements());
+        assertEquals("user7@mail.com", byEmail.getContent().get(0).getEmail());
+        assertFalse(byEmail.hasNext());
+        assertEquals(4, byName.getNumberOfElements());
+        assertEquals(0, userRepository.searchSliceByNameOrEmail(null, "nobody@mail.com", PageRequest.of(0, 10)).getNumberOfElements());
+    }
+}
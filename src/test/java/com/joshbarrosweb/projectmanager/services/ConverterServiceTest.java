@@ -0,0 +1,102 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConverterServiceTest {
+
+    private final ConverterService converterService = new ConverterService();
+
+    /**
+     * Tests that a user is mapped to a DTO with the IDs of its projects.
+     */
+    @Test
+    void convertUserToDto() {
+        Set<Project> projects = new HashSet<>(Arrays.asList(
+                new Project(3L, "Warzone", null, null),
+                new Project(4L, "WWII", null, null)));
+        User user = new User(1L, "Tifa", "tifa@example.com", "secret", projects);
+
+        UserDTO userDTO = converterService.convertToDto(user);
+
+        assertEquals(1L, userDTO.getId());
+        assertEquals("Tifa", userDTO.getName());
+        assertEquals("tifa@example.com", userDTO.getEmail());
+        assertEquals("secret", userDTO.getPassword());
+        assertEquals(new HashSet<>(Arrays.asList(3L, 4L)), userDTO.getProjectIds());
+    }
+
+    /**
+     * Tests that a project is mapped to a DTO with the IDs of its users,
+     * and that a missing collection is mapped to an empty ID set.
+     */
+    @Test
+    void convertProjectToDto() {
+        Set<User> users = new HashSet<>(Arrays.asList(
+                new User(1L, "Cloud", "cloud@example.com", "secret", null),
+                new User(2L, "Tifa", "tifa@example.com", "secret", null)));
+        Project project = new Project(5L, "Modern Warfare", "Description", users);
+
+        ProjectDTO projectDTO = converterService.convertToDto(project);
+        ProjectDTO emptyProjectDTO = converterService.convertToDto(new Project(6L, "Ghosts", null, null));
+
+        assertEquals(5L, projectDTO.getId());
+        assertEquals("Modern Warfare", projectDTO.getName());
+        assertEquals("Description", projectDTO.getDescription());
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), projectDTO.getUserIds());
+        assertTrue(emptyProjectDTO.getUserIds().isEmpty());
+    }
+
+    /**
+     * Tests that DTOs are mapped back to entities with empty, mutable collections.
+     */
+    @Test
+    void convertDtosToEntities() {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName("Aerith");
+        userDTO.setEmail("aerith@example.com");
+        userDTO.setPassword("secret");
+        ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setName("Black Ops");
+        projectDTO.setDescription("Description");
+
+        User user = converterService.convertToEntity(userDTO);
+        Project project = converterService.convertToEntity(projectDTO);
+
+        assertNull(user.getId());
+        assertEquals("Aerith", user.getName());
+        assertEquals("aerith@example.com", user.getEmail());
+        assertEquals("secret", user.getPassword());
+        assertTrue(user.getProjects().isEmpty());
+        assertEquals("Black Ops", project.getName());
+        assertEquals("Description", project.getDescription());
+        assertTrue(project.getUsers().add(new User()));
+    }
+
+    /**
+     * Tests that the overloads taking ID sets use them instead of the entity collections,
+     * and map a missing set to an empty one.
+     */
+    @Test
+    void convertToDtoWithIds() {
+        User user = new User(1L, "Tifa", "tifa@example.com", "secret", null);
+        Project project = new Project(5L, "Warzone", null, null);
+
+        UserDTO userDTO = converterService.convertToDto(user, new HashSet<>(Arrays.asList(5L, 6L)));
+        ProjectDTO projectDTO = converterService.convertToDto(project, (Set<Long>) null);
+
+        assertEquals(new HashSet<>(Arrays.asList(5L, 6L)), userDTO.getProjectIds());
+        assertEquals("Tifa", userDTO.getName());
+        assertTrue(projectDTO.getUserIds().isEmpty());
+        assertEquals("Warzone", projectDTO.getName());
+    }
+}
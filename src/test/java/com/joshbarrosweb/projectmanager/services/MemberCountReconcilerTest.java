@@ -0,0 +1,125 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import com.joshbarrosweb.projectmanager.config.CacheConfig;
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the member count reconciliation against H2, with a batch size smaller than the number of projects.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MemberCountReconcilerTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipService membershipService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MemberCountReconciler reconciler;
+    private List<Long> projectIds;
+
+    /**
+     * Creates five projects, each with as many members as its index, and a reconciler that checks two projects per batch.
+     */
+    @BeforeEach
+    void setUp() {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            userIds.add(userRepository.save(new User(null, "Reconciled " + i, "reconciled" + i + "@mail.com", "secret", null)).getId());
+        }
+        projectIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Long projectId = projectRepository.save(new Project(null, "Reconciled " + i, null, null)).getId();
+            if (i > 0) {
+                membershipService.addUsers(projectId, userIds.subList(0, i));
+            }
+            projectIds.add(projectId);
+        }
+        reconciler = new MemberCountReconciler(projectRepository, transactionManager, cacheManager, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+    }
+
+    /**
+     * Tests that counts kept by the services need no repair.
+     */
+    @Test
+    void reconcileWithoutDrift() {
+        assertEquals(0, reconciler.reconcile());
+        assertMemberCounts();
+    }
+
+    /**
+     * Tests that counts and memberships changed past the services are repaired across batches,
+     * that the repaired projects get a new version, and that only the batches with a repair
+     * are evicted from the cache.
+     */
+    @Test
+    void reconcileRepairsDrift() {
+        Long drifted = projectIds.get(1);
+        long version = projectRepository.findVersionById(drifted).orElseThrow();
+        jdbcTemplate.update("UPDATE projects SET member_count = 7 WHERE id = ?", drifted);
+        jdbcTemplate.update("DELETE FROM project_user WHERE project_id = ?", projectIds.get(4));
+        cacheManager.getCache(CacheConfig.PROJECTS).put(drifted, new ProjectDTO());
+        cacheManager.getCache(CacheConfig.PROJECTS).put(projectIds.get(2), new ProjectDTO());
+
+        assertEquals(2, reconciler.reconcile());
+
+        assertMemberCounts();
+        assertEquals(version + 1, projectRepository.findVersionById(drifted).orElseThrow());
+        assertNull(cacheManager.getCache(CacheConfig.PROJECTS).get(drifted));
+        assertNotNull(cacheManager.getCache(CacheConfig.PROJECTS).get(projectIds.get(2)));
+    }
+
+    /**
+     * Tests that a batch size below one is rejected.
+     */
+    @Test
+    void rejectsEmptyBatches() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MemberCountReconciler(projectRepository, transactionManager, cacheManager, 0));
+    }
+
+    private void assertMemberCounts() {
+        for (Long projectId : projectIds) {
+            assertEquals(JdbcTestUtils.countRowsInTableWhere(jdbcTemplate, "project_user", "project_id = " + projectId),
+                    projectRepository.findMemberCountById(projectId).orElseThrow(), "project " + projectId);
+        }
+    }
+}
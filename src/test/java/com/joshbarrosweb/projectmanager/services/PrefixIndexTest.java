@@ -0,0 +1,104 @@
+package com.joshbarrosweb.projectmanager.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    private final PrefixIndex index = new PrefixIndex();
+
+    /**
+     * Tests that any word of any text matches, ignoring case and accents, ordered by the matching text.
+     */
+    @Test
+    void lookupMatchesWordStarts() {
+        index.put(1L, "Margaret Hamilton", "margaret@apollo.test");
+        index.put(2L, "Hammer Crusher", "hammer@apollo.test");
+        index.put(3L, "Jos\u00e9 \u00c1lvarez", "jose@apollo.test");
+
+        assertEquals(Arrays.asList(1L, 2L), index.lookup("HAM", 10));
+        assertEquals(Collections.singletonList(2L), index.lookup("hamm", 10));
+        assertEquals(Collections.singletonList(1L), index.lookup("margaret@", 10));
+        assertEquals(Collections.singletonList(3L), index.lookup("alv", 10));
+        assertEquals(Collections.singletonList(3L), index.lookup("  JOSE   al ", 10));
+        assertTrue(index.lookup("ilton", 10).isEmpty());
+        assertTrue(index.lookup(" ", 10).isEmpty());
+    }
+
+    /**
+     * Tests that an ID matching through several texts is returned once, and that the limit is applied to IDs.
+     */
+    @Test
+    void lookupReturnsEachIdOnce() {
+        index.put(1L, "Mara Mars", "mara@apollo.test");
+        index.put(2L, "Mario", "mario@apollo.test");
+
+        assertEquals(Arrays.asList(1L, 2L), index.lookup("mar", 10));
+        assertEquals(Collections.singletonList(1L), index.lookup("mar", 1));
+    }
+
+    /**
+     * Tests that putting an ID again replaces its texts, and that removed IDs are no longer found.
+     */
+    @Test
+    void putReplacesAndRemoveDeletes() {
+        index.put(1L, "Gemini Capsule");
+        index.put(1L, "Mercury Capsule");
+        index.put(2L, "Apollo Capsule");
+
+        assertTrue(index.lookup("gemini", 10).isEmpty());
+        assertEquals(Collections.singletonList(1L), index.lookup("mercury", 10));
+        assertArrayEquals(new String[]{"Mercury Capsule"}, index.get(1L));
+
+        index.remove(1L);
+        index.remove(9L);
+
+        assertEquals(Collections.singletonList(2L), index.lookup("capsule", 10));
+        assertNull(index.get(1L));
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Tests that keys are cut to the maximum length, and that longer prefixes are checked against the stored text.
+     */
+    @Test
+    void longPrefixesAreCheckedAgainstTheText() {
+        String common = String.join("", Collections.nCopies(PrefixIndex.MAX_KEY_LENGTH, "a"));
+        index.put(1L, common + " first");
+        index.put(2L, common + " second");
+
+        List<Long> ids = index.lookup(common + " s", 10);
+
+        assertEquals(Collections.singletonList(2L), ids);
+        assertEquals(Arrays.asList(1L, 2L), index.lookup(common, 10));
+    }
+
+    /**
+     * Tests that only the first words of a long text are indexed.
+     */
+    @Test
+    void onlyTheFirstWordsAreIndexed() {
+        index.put(1L, "one two three four five");
+
+        assertEquals(Collections.singletonList(1L), index.lookup("four", 10));
+        assertTrue(index.lookup("five", 10).isEmpty());
+    }
+
+    /**
+     * Tests that texts are stored cut to the maximum length, and only that part can be looked up.
+     */
+    @Test
+    void longTextsAreCut() {
+        String padding = String.join("", Collections.nCopies(PrefixIndex.MAX_TEXT_LENGTH, "b"));
+        index.put(1L, "long " + padding + " tail");
+
+        assertEquals(PrefixIndex.MAX_TEXT_LENGTH, index.get(1L)[0].length());
+        assertEquals(Collections.singletonList(1L), index.lookup("long", 10));
+        assertTrue(index.lookup("tail", 10).isEmpty());
+    }
+}
@@ -0,0 +1,200 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.dtos.SuggestionDTO;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.AutocompleteService;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.services.ServiceUnavailableException;
+import com.joshbarrosweb.projectmanager.services.UserService;
+import com.joshbarrosweb.projectmanager.support.SqlStatementCounter;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.joshbarrosweb.projectmanager.support.TestData.project;
+import static com.joshbarrosweb.projectmanager.support.TestData.user;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the autocomplete indexes against the services and H2, checking that they follow committed writes
+ * and serve suggestions without a single SQL statement.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class AutocompleteServiceImplTest {
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reloads the indexes, so entries left behind by other tests sharing the context are dropped.
+     */
+    @BeforeEach
+    void setUp() {
+        autocompleteService.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+        autocompleteService.rebuild();
+    }
+
+    /**
+     * Tests that created users are suggested by the start of any word of their name or of their email,
+     * without running any SQL statement, and that projects and users are suggested separately.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void suggestsCreatedUsers() throws Exception {
+        Long margaret = userService.createUser(user("Margaret Hamilton", "margaret@apollo.test")).getId();
+        Long hammer = userService.createUser(user("Hammer Crusher", "crusher@apollo.test")).getId();
+        projectService.createProject(project("Hamlet"));
+
+        List<SuggestionDTO> suggestions = new ArrayList<>();
+        new SqlStatementCounter(entityManagerFactory).assertAtMost(0,
+                () -> suggestions.addAll(autocompleteService.suggest("Ham", AutocompleteService.TYPE_USER, 10)));
+
+        assertEquals(List.of(margaret, hammer), ids(suggestions));
+        assertEquals("Margaret Hamilton", suggestions.get(0).getName());
+        assertEquals("margaret@apollo.test", suggestions.get(0).getEmail());
+        assertEquals(List.of(hammer), ids(autocompleteService.suggest("crusher@", AutocompleteService.TYPE_USER, 10)));
+        assertEquals(1, autocompleteService.suggest("ham", AutocompleteService.TYPE_PROJECT, 10).size());
+    }
+
+    /**
+     * Tests that renamed projects are suggested by their new name only, deleted ones not at all,
+     * and rolled back writes never.
+     */
+    @Test
+    void followsCommittedWrites() {
+        Long projectId = projectService.createProject(project("Gemini Capsule")).getId();
+        Long deletedId = projectService.createProject(project("Mercury Seven")).getId();
+        projectService.updateProject(projectId, project("Mercury Capsule"));
+        projectService.deleteProject(deletedId);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            projectService.createProject(project("Mercury Skylab"));
+            status.setRollbackOnly();
+        });
+
+        assertTrue(autocompleteService.suggest("gem", AutocompleteService.TYPE_PROJECT, 10).isEmpty());
+        assertEquals(List.of(projectId), ids(autocompleteService.suggest("merc", AutocompleteService.TYPE_PROJECT, 10)));
+    }
+
+    /**
+     * Tests that rows written past the services are suggested once the indexes are reloaded.
+     */
+    @Test
+    void rebuildLoadsTheDatabase() {
+        Long userId = userRepository.save(new User(null, "Yuri Gagarin", "yuri@vostok.test", "secret", null)).getId();
+        assertTrue(autocompleteService.suggest("gag", AutocompleteService.TYPE_USER, 10).isEmpty());
+
+        autocompleteService.rebuild();
+
+        assertEquals(List.of(userId), ids(autocompleteService.suggest("gag", AutocompleteService.TYPE_USER, 10)));
+    }
+
+    /**
+     * Tests that the indexes keep serving suggestions while a reload runs, and that writes committed
+     * meanwhile are replayed on the reloaded indexes, so a user deleted during the load is not resurrected.
+     */
+    @Test
+    void reloadReplaysConcurrentWrites() {
+        ProjectRepository projects = mock(ProjectRepository.class);
+        UserRepository users = mock(UserRepository.class);
+        AutocompleteServiceImpl service = new AutocompleteServiceImpl(projects, users, mock(EntityManager.class), transactionManager, false);
+        when(projects.streamAllByOrderByIdAsc()).thenReturn(Stream.empty(), Stream.empty());
+        when(users.streamAllByOrderByIdAsc()).thenReturn(Stream.of(
+                        new User(1L, "Alan Shepard", "alan@mercury.test", "secret", null),
+                        new User(2L, "Gus Grissom", "gus@mercury.test", "secret", null)))
+                .thenReturn(Stream.of(
+                        new User(1L, "Alan Shepard", "alan@mercury.test", "secret", null),
+                        new User(2L, "Gus Grissom", "gus@mercury.test", "secret", null))
+                .peek(user -> CompletableFuture.runAsync(() -> {
+                    if (user.getId() == 2L) {
+                        service.removeUser(2L);
+                        service.putUser(3L, "John Glenn", "john@mercury.test");
+                    }
+                    assertEquals(1, service.suggest("alan", AutocompleteService.TYPE_USER, 10).size());
+                }).join()));
+        service.rebuild();
+
+        assertEquals(2, service.rebuild());
+
+        assertEquals(List.of(1L), ids(service.suggest("alan", AutocompleteService.TYPE_USER, 10)));
+        assertTrue(service.suggest("gus", AutocompleteService.TYPE_USER, 10).isEmpty());
+        assertEquals(List.of(3L), ids(service.suggest("john", AutocompleteService.TYPE_USER, 10)));
+    }
+
+    /**
+     * Tests that suggestions are refused until the indexes have been loaded, rather than answered from empty indexes.
+     */
+    @Test
+    void refusesSuggestionsBeforeTheFirstLoad() {
+        ProjectRepository projects = mock(ProjectRepository.class);
+        UserRepository users = mock(UserRepository.class);
+        AutocompleteServiceImpl service = new AutocompleteServiceImpl(projects, users, mock(EntityManager.class), transactionManager, false);
+        when(projects.streamAllByOrderByIdAsc()).thenReturn(Stream.empty());
+        when(users.streamAllByOrderByIdAsc()).thenReturn(Stream.of(new User(1L, "Alan Shepard", "alan@mercury.test", "secret", null)));
+
+        assertThrows(ServiceUnavailableException.class, () -> service.suggest("alan", AutocompleteService.TYPE_USER, 10));
+
+        service.rebuild();
+
+        assertEquals(List.of(1L), ids(service.suggest("alan", AutocompleteService.TYPE_USER, 10)));
+    }
+
+    /**
+     * Tests that blank prefixes, unknown types and invalid sizes are rejected.
+     */
+    @Test
+    void rejectsInvalidRequests() {
+        assertThrows(BadRequestException.class, () -> autocompleteService.suggest(" ", AutocompleteService.TYPE_USER, 10));
+        assertThrows(BadRequestException.class, () -> autocompleteService.suggest("ham", "team", 10));
+        assertThrows(BadRequestException.class, () -> autocompleteService.suggest("ham", null, 10));
+        assertThrows(BadRequestException.class, () -> autocompleteService.suggest("ham", AutocompleteService.TYPE_USER, 0));
+    }
+
+    private static List<Long> ids(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(SuggestionDTO::getId).collect(Collectors.toList());
+    }
+}
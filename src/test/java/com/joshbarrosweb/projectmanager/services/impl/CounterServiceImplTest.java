@@ -0,0 +1,170 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.services.UserService;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.joshbarrosweb.projectmanager.support.TestData.project;
+import static com.joshbarrosweb.projectmanager.support.TestData.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the row counters and the project member counts against H2 through the services that maintain them.
+ * Other tests write rows past the services, so the counters are recomputed before each test.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CounterServiceImplTest {
+
+    @Autowired
+    private CounterService counterService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MembershipService membershipService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        counterService.reconcile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+    }
+
+    /**
+     * Tests that creating, assigning and deleting through the services keeps every counter
+     * equal to the rows in its table, and every member count equal to the project's memberships.
+     */
+    @Test
+    void countersFollowServiceWrites() {
+        Long projectId = projectService.createProject(project("Counted")).getId();
+        Long otherId = projectService.createProject(project("Counted Other")).getId();
+        Long first = userService.createUser(user("first", "first@counter.test")).getId();
+        Long second = userService.createUser(user("second", "second@counter.test")).getId();
+        membershipService.addUsers(projectId, Arrays.asList(first, second));
+        membershipService.addUsers(otherId, Collections.singletonList(first));
+
+        assertCountsMatchTables();
+        assertEquals(2, projectService.countUsersByProjectId(projectId));
+
+        membershipService.removeUsers(projectId, Collections.singletonList(second));
+        assertEquals(1, projectService.countUsersByProjectId(projectId));
+
+        userService.deleteUser(first);
+        assertEquals(0, projectService.countUsersByProjectId(projectId));
+        assertEquals(0, projectService.countUsersByProjectId(otherId));
+
+        projectService.deleteProject(otherId);
+        assertCountsMatchTables();
+    }
+
+    /**
+     * Tests that increments are spread over several stripes and still add up.
+     */
+    @Test
+    void incrementsAreStriped() {
+        long before = counterService.countProjects();
+        for (int i = 0; i < 64; i++) {
+            projectService.createProject(project("Striped " + i));
+        }
+
+        assertEquals(before + 64, counterService.countProjects());
+        Integer stripes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM row_counters WHERE name = 'projects' AND amount > 0", Integer.class);
+        assertTrue(stripes > 1, "only " + stripes + " stripe was used");
+    }
+
+    /**
+     * Tests that a counter update rolls back with the transaction that made it.
+     */
+    @Test
+    void rollbackUndoesIncrement() {
+        long before = counterService.countUsers();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.createUser(user("rolled-back", "rolled-back@counter.test"));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(before, counterService.countUsers());
+    }
+
+    /**
+     * Tests that reconciling picks up rows written past the services.
+     */
+    @Test
+    void reconcileRecountsTables() {
+        long before = counterService.countProjects();
+        projectRepository.save(new Project(null, "Direct", null, null));
+        assertEquals(before, counterService.countProjects());
+
+        counterService.reconcile();
+
+        assertCountsMatchTables();
+    }
+
+    /**
+     * Tests that repairing fixes counters that drifted from rows written and deleted past the services,
+     * keeps their stripes, and leaves correct counters alone.
+     */
+    @Test
+    void repairFixesDrift() {
+        projectService.createProject(project("Counted"));
+        Long userId = userService.createUser(user("drifted", "drifted@counter.test")).getId();
+        projectRepository.save(new Project(null, "Direct", null, null));
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+
+        assertEquals(2, counterService.repair());
+
+        assertCountsMatchTables();
+        assertEquals(CounterServiceImpl.STRIPES, JdbcTestUtils.countRowsInTableWhere(jdbcTemplate, "row_counters", "name = 'projects'"));
+        assertEquals(0, counterService.repair());
+    }
+
+    /**
+     * Tests that counters cannot be updated outside a transaction, where they could drift from the rows.
+     */
+    @Test
+    void incrementRequiresTransaction() {
+        assertThrows(IllegalTransactionStateException.class, () -> counterService.addProjects(1));
+    }
+
+    private void assertCountsMatchTables() {
+        assertEquals(JdbcTestUtils.countRowsInTable(jdbcTemplate, "projects"), counterService.countProjects());
+        assertEquals(JdbcTestUtils.countRowsInTable(jdbcTemplate, "users"), counterService.countUsers());
+    }
+}
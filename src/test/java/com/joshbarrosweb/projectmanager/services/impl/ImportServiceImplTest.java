@@ -0,0 +1,166 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.dtos.BatchErrorDTO;
+import com.joshbarrosweb.projectmanager.dtos.ImportSummaryDTO;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.ImportService;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ImportServiceImplTest {
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private MembershipService membershipService;
+
+    /**
+     * Tests an NDJSON import: users and projects are created, memberships are resolved by
+     * email and project name, and invalid or unresolvable rows are reported with their row number.
+     */
+    @Test
+    void importNdjson() throws IOException {
+        String ndjson = String.join("\n",
+                "{\"type\":\"user\",\"name\":\"Cloud\",\"email\":\"cloud@import.com\",\"password\":\"secret\"}",
+                "{\"type\":\"user\",\"name\":\"Tifa\",\"email\":\"tifa@import.com\",\"password\":\"secret\"}",
+                "{\"type\":\"user\",\"name\":\"\",\"email\":\"not-an-email\",\"password\":\"secret\"}",
+                "{\"type\":\"project\",\"name\":\"Import Project\",\"description\":\"Imported\"}",
+                "{\"type\":\"membership\",\"email\":\"cloud@import.com\",\"project\":\"Import Project\"}",
+                "{\"type\":\"membership\",\"email\":\"tifa@import.com\",\"project\":\"Import Project\"}",
+                "{\"type\":\"membership\",\"email\":\"nobody@import.com\",\"project\":\"Import Project\"}",
+                "{\"type\":\"team\",\"name\":\"Avalanche\"}");
+
+        ImportSummaryDTO summary = importService.importData(stream(ndjson), ImportService.FORMAT_NDJSON);
+
+        assertEquals(8, summary.getRows());
+        assertEquals(8, summary.getCommittedRows());
+        assertNull(summary.getFailure());
+        assertEquals(2, summary.getUsersCreated());
+        assertEquals(1, summary.getProjectsCreated());
+        assertEquals(2, summary.getMembershipsCreated());
+        assertEquals(3, summary.getRejected());
+        assertEquals(new HashSet<>(Arrays.asList(3L, 7L, 8L)),
+                summary.getErrors().stream().map(BatchErrorDTO::getIndex).collect(Collectors.toSet()));
+
+        List<Object[]> project = projectRepository.findFirstIdsByNames(Collections.singletonList("Import Project"));
+        Long projectId = ((Number) project.get(0)[1]).longValue();
+        assertEquals(2, projectRepository.findUserIdsByProjectId(projectId).size());
+    }
+
+    /**
+     * Tests a CSV import spanning several batches, where memberships refer to users and
+     * projects created in earlier batches, and a re-imported membership is not duplicated.
+     */
+    @Test
+    void importCsvAcrossBatches() throws IOException {
+        StringBuilder csv = new StringBuilder("type,name,email,password,description,project\n");
+        csv.append("project,CSV Project,,,Imported,\n");
+        int users = ImportServiceImpl.BATCH_SIZE + 10;
+        for (int i = 0; i < users; i++) {
+            csv.append("user,User ").append(i).append(",user").append(i).append("@csv.com,secret,,\n");
+        }
+        for (int i = 0; i < users; i++) {
+            csv.append("membership,,user").append(i).append("@csv.com,,,CSV Project\n");
+        }
+        csv.append("membership,,user0@csv.com,,,CSV Project\n");
+
+        ImportSummaryDTO summary = importService.importData(stream(csv.toString()), ImportService.FORMAT_CSV);
+
+        assertEquals(2L * users + 2, summary.getRows());
+        assertEquals(users, summary.getUsersCreated());
+        assertEquals(1, summary.getProjectsCreated());
+        assertEquals(users, summary.getMembershipsCreated());
+        assertEquals(0, summary.getRejected());
+        assertTrue(summary.getRowsPerSecond() > 0);
+
+        List<Object[]> project = projectRepository.findFirstIdsByNames(Collections.singletonList("CSV Project"));
+        Long projectId = ((Number) project.get(0)[1]).longValue();
+        assertEquals(users, new HashSet<>(projectRepository.findUserIdsByProjectId(projectId)).size());
+        assertEquals(1, userRepository.findIdsByEmails(Collections.singletonList("user0@csv.com")).size());
+    }
+
+    /**
+     * Tests that when a batch fails, it is rolled back and the import stops, while the batch before it
+     * stays committed and the summary reports the failure and counts only the committed rows.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void failedBatchKeepsEarlierBatches() throws IOException {
+        StringBuilder csv = new StringBuilder("type,name,email,password,description,project\n");
+        csv.append("project,Partial Project,,,Imported,\n");
+        for (int i = 1; i < ImportServiceImpl.BATCH_SIZE; i++) {
+            csv.append("user,User ").append(i).append(",user").append(i).append("@partial.com,secret,,\n");
+        }
+        csv.append("user,Late,late@partial.com,secret,,\n");
+        csv.append("membership,,user1@partial.com,,,Partial Project\n");
+        csv.append("user,Never,never@partial.com,secret,,\n");
+        doThrow(new DataIntegrityViolationException("Membership failed"))
+                .when(membershipService).addUsers(anyLong(), anyCollection());
+
+        try {
+            ImportSummaryDTO summary = importService.importData(stream(csv.toString()), ImportService.FORMAT_CSV);
+
+            assertEquals(ImportServiceImpl.BATCH_SIZE + 3, summary.getRows());
+            assertEquals(ImportServiceImpl.BATCH_SIZE, summary.getCommittedRows());
+            assertEquals(ImportServiceImpl.BATCH_SIZE - 1, summary.getUsersCreated());
+            assertEquals(1, summary.getProjectsCreated());
+            assertEquals(0, summary.getMembershipsCreated());
+            assertNotNull(summary.getFailure());
+            assertEquals(1, userRepository.findIdsByEmails(Collections.singletonList("user1@partial.com")).size());
+            assertTrue(userRepository.findIdsByEmails(Arrays.asList("late@partial.com", "never@partial.com")).isEmpty());
+        } finally {
+            TestData.deleteAll(jdbcTemplate);
+        }
+    }
+
+    /**
+     * Tests that an unsupported format is rejected.
+     */
+    @Test
+    void importRejectsUnknownFormat() {
+        assertThrows(BadRequestException.class, () -> importService.importData(stream(""), "xml"));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,153 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.MemberDTO;
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.entities.User;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.services.UserService;
+import com.joshbarrosweb.projectmanager.support.SqlStatementCounter;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the list endpoints issue a fixed number of SQL statements per page,
+ * whatever the page size, instead of one membership query per row.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ListStatementCountTest {
+
+    private static final int ROWS = 30;
+    private static final int MEMBERS = 3;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SqlStatementCounter counter;
+    private List<Long> projectIds;
+
+    /**
+     * Creates projects and users where every project has three members and every user is in three projects.
+     */
+    @BeforeEach
+    void setUp() {
+        List<Long> userIds = new ArrayList<>();
+        projectIds = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            userIds.add(userRepository.save(new User(null, "Count User " + i, "count" + i + "@mail.com", "secret", null)).getId());
+            projectIds.add(projectRepository.save(new Project(null, "Count Project " + i, null, null)).getId());
+        }
+        for (int i = 0; i < ROWS; i++) {
+            projectRepository.insertMemberships(projectIds.get(i), Arrays.asList(
+                    userIds.get(i), userIds.get((i + 1) % ROWS), userIds.get((i + 2) % ROWS)));
+        }
+        projectRepository.addMembers(projectIds, (long) MEMBERS);
+        entityManager.flush();
+        entityManager.clear();
+
+        counter = new SqlStatementCounter(entityManagerFactory);
+        counter.reset();
+    }
+
+    /**
+     * Tests that a page of users costs one select, one count and one membership query.
+     */
+    @Test
+    void listUsersUsesThreeStatements() {
+        Page<UserDTO> users = userService.listUsers(PageRequest.of(0, 20));
+
+        assertEquals(3, counter.count());
+        assertEquals(20, users.getNumberOfElements());
+        users.forEach(user -> assertEquals(MEMBERS, user.getProjectIds().size()));
+    }
+
+    /**
+     * Tests that a cursor page of projects costs one select and one membership query.
+     */
+    @Test
+    void listProjectsByCursorUsesTwoStatements() {
+        CursorPageDTO<ProjectDTO> projects = projectService.listProjects("", 20, "id");
+
+        assertEquals(2, counter.count());
+        assertEquals(20, projects.getContent().size());
+        projects.getContent().forEach(project -> assertEquals(MEMBERS, project.getUserIds().size()));
+    }
+
+    /**
+     * Tests that a page of search results costs one select, one count and one membership query.
+     */
+    @Test
+    void searchProjectsUsesThreeStatements() {
+        Page<ProjectDTO> projects = projectService.searchProjects("Count Project", PageRequest.of(0, 20));
+
+        assertEquals(3, counter.count());
+        assertEquals(20, projects.getNumberOfElements());
+    }
+
+    /**
+     * Tests that a page of the members of a project costs one member count read and one select,
+     * and that no user entity is loaded into the persistence context.
+     */
+    @Test
+    void getUsersByProjectIdUsesTwoStatements() {
+        Page<MemberDTO> members = projectService.getUsersByProjectId(projectIds.get(0), PageRequest.of(0, 20, Sort.by("id")));
+
+        assertEquals(2, counter.count());
+        assertEquals(MEMBERS, members.getTotalElements());
+        assertEquals(MEMBERS, members.getNumberOfElements());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    /**
+     * Tests that a cursor page of the members of a project costs one existence check and one select,
+     * and that the cursor resumes after the last member.
+     */
+    @Test
+    void getUsersByProjectIdByCursorUsesTwoStatements() {
+        CursorPageDTO<MemberDTO> first = projectService.getUsersByProjectId(projectIds.get(0), "", 2);
+
+        assertEquals(2, counter.count());
+        assertEquals(2, first.getContent().size());
+        CursorPageDTO<MemberDTO> second = projectService.getUsersByProjectId(projectIds.get(0), first.getNextCursor(), 2);
+        assertEquals(1, second.getContent().size());
+        assertNull(second.getNextCursor());
+        assertTrue(first.getContent().get(1).getId() < second.getContent().get(0).getId());
+    }
+}
@@ -0,0 +1,241 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.MembershipIndexService;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.services.ServiceUnavailableException;
+import com.joshbarrosweb.projectmanager.services.UserService;
+import com.joshbarrosweb.projectmanager.support.SqlStatementCounter;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static com.joshbarrosweb.projectmanager.services.MembershipIndexService.OP_INTERSECTION;
+import static com.joshbarrosweb.projectmanager.services.MembershipIndexService.OP_UNION;
+import static com.joshbarrosweb.projectmanager.support.TestData.project;
+import static com.joshbarrosweb.projectmanager.support.TestData.user;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the membership index against the services and H2, checking its set algebra, that it follows
+ * committed membership changes, and that it answers without a single SQL statement.
+ *
+ * Projects A, B and C have the members {1, 2, 3}, {2, 3, 4} and {3} respectively.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MembershipIndexServiceImplTest {
+
+    @Autowired
+    private MembershipIndexService membershipIndexService;
+
+    @Autowired
+    private MembershipService membershipService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> users = new ArrayList<>();
+    private Long projectA;
+    private Long projectB;
+    private Long projectC;
+
+    /**
+     * Reloads the index, so memberships left behind by other tests sharing the context are dropped,
+     * and creates the projects and memberships through the services.
+     */
+    @BeforeEach
+    void setUp() {
+        membershipIndexService.rebuild();
+        for (int i = 1; i <= 4; i++) {
+            users.add(userService.createUser(user("Member " + i, "member" + i + "@mail.com")).getId());
+        }
+        projectA = projectService.createProject(project("Project A")).getId();
+        projectB = projectService.createProject(project("Project B")).getId();
+        projectC = projectService.createProject(project("Project C")).getId();
+        membershipService.addUsers(projectA, users.subList(0, 3));
+        membershipService.addUsers(projectB, users.subList(1, 4));
+        membershipService.addUsers(projectC, users.subList(2, 3));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+        membershipIndexService.rebuild();
+    }
+
+    /**
+     * Tests intersections, unions and differences of the members of projects, and their cardinalities,
+     * without running any SQL statement.
+     */
+    @Test
+    void combinesMembersOfProjects() {
+        SqlStatementCounter counter = new SqlStatementCounter(entityManagerFactory);
+
+        counter.assertAtMost(0, () -> {
+            assertEquals(users.subList(1, 3), ids(membershipIndexService.findUsers(OP_INTERSECTION,
+                    Arrays.asList(projectA, projectB), null, "", 10)));
+            assertEquals(Collections.singletonList(users.get(1)), ids(membershipIndexService.findUsers(OP_INTERSECTION,
+                    Arrays.asList(projectA, projectB), Collections.singletonList(projectC), "", 10)));
+            assertEquals(users, ids(membershipIndexService.findUsers(OP_UNION,
+                    Arrays.asList(projectA, projectB), null, "", 10)));
+            assertEquals(4, membershipIndexService.countUsers(OP_UNION, Arrays.asList(projectA, projectB, projectC), null));
+            assertEquals(1, membershipIndexService.countUsers(OP_INTERSECTION, Arrays.asList(projectA, projectB, projectC), null));
+        });
+    }
+
+    /**
+     * Tests the same algebra over the projects of users, and that unknown IDs count as empty sets.
+     */
+    @Test
+    void combinesProjectsOfUsers() {
+        assertEquals(Arrays.asList(projectA, projectB), ids(membershipIndexService.findProjects(OP_INTERSECTION,
+                users.subList(1, 3), null, "", 10)));
+        assertEquals(Arrays.asList(projectB, projectC), ids(membershipIndexService.findProjects(OP_INTERSECTION,
+                Collections.singletonList(users.get(2)), Collections.singletonList(users.get(0)), "", 10)));
+        assertEquals(2, membershipIndexService.countProjects(OP_UNION, Arrays.asList(users.get(0), users.get(3)), null));
+        assertEquals(0, membershipIndexService.countProjects(OP_INTERSECTION, Arrays.asList(users.get(0), 404404L), null));
+    }
+
+    /**
+     * Tests that a page cursor continues after the last ID of the previous page.
+     */
+    @Test
+    void pagesThroughTheResult() {
+        CursorPageDTO<Long> first = membershipIndexService.findUsers(OP_UNION, Arrays.asList(projectA, projectB), null, "", 3);
+        CursorPageDTO<Long> second = membershipIndexService.findUsers(OP_UNION, Arrays.asList(projectA, projectB), null,
+                first.getNextCursor(), 3);
+
+        assertEquals(users.subList(0, 3), first.getContent());
+        assertEquals(users.subList(3, 4), second.getContent());
+        assertNull(second.getNextCursor());
+    }
+
+    /**
+     * Tests that removed memberships, deleted users and deleted projects leave the index once committed,
+     * and that rolled back changes never show up.
+     */
+    @Test
+    void followsCommittedChanges() {
+        membershipService.removeUsers(projectA, Collections.singletonList(users.get(0)));
+        userService.deleteUser(users.get(3));
+        projectService.deleteProject(projectC);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            membershipService.addUsers(projectC, Collections.singletonList(users.get(0)));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(users.subList(1, 3), ids(membershipIndexService.findUsers(OP_UNION,
+                Arrays.asList(projectA, projectB, projectC), null, "", 10)));
+        assertEquals(0, membershipIndexService.countProjects(OP_UNION, Arrays.asList(users.get(0), users.get(3)), null));
+    }
+
+    /**
+     * Tests that memberships written past the services are seen once the index is reloaded.
+     */
+    @Test
+    void rebuildLoadsTheJoinTable() {
+        jdbcTemplate.update("INSERT INTO project_user (user_id, project_id) VALUES (?, ?)", users.get(0), projectC);
+        assertEquals(1, membershipIndexService.countUsers(OP_UNION, Collections.singletonList(projectC), null));
+
+        assertEquals(8, membershipIndexService.rebuild());
+
+        assertEquals(2, membershipIndexService.countUsers(OP_UNION, Collections.singletonList(projectC), null));
+    }
+
+    /**
+     * Tests that queries are refused until the index has been loaded, rather than answered from an empty index.
+     */
+    @Test
+    void refusesQueriesBeforeTheFirstLoad() {
+        ProjectRepository projectRepository = mock(ProjectRepository.class);
+        MembershipIndexServiceImpl index = new MembershipIndexServiceImpl(projectRepository, transactionManager, false);
+        when(projectRepository.streamMembershipRows()).thenReturn(Stream.<Object[]>of(new Object[]{1L, 10L}));
+
+        assertThrows(ServiceUnavailableException.class, () -> index.countUsers(OP_UNION, Collections.singletonList(1L), null));
+        assertThrows(ServiceUnavailableException.class, () -> index.findProjects(OP_UNION, Collections.singletonList(10L), null, "", 10));
+
+        index.rebuild();
+
+        assertEquals(1, index.countUsers(OP_UNION, Collections.singletonList(1L), null));
+    }
+
+    /**
+     * Tests that queries keep being served while the index is reloaded, and that changes committed meanwhile
+     * are replayed on the reloaded bitmaps rather than lost when they are swapped in.
+     */
+    @Test
+    void reloadReplaysConcurrentChanges() {
+        ProjectRepository projectRepository = mock(ProjectRepository.class);
+        MembershipIndexServiceImpl index = new MembershipIndexServiceImpl(projectRepository, transactionManager, false);
+        when(projectRepository.streamMembershipRows())
+                .thenReturn(Stream.<Object[]>of(new Object[]{1L, 10L}, new Object[]{1L, 11L}))
+                .thenReturn(Stream.<Object[]>of(new Object[]{1L, 10L}, new Object[]{1L, 11L})
+                        .peek(row -> CompletableFuture.runAsync(() -> {
+                            if (((Number) row[1]).longValue() == 11L) {
+                                index.removeMembers(1L, Collections.singletonList(11L));
+                                index.addMembers(2L, Collections.singletonList(12L));
+                            }
+                            assertEquals(2, index.countUsers(OP_UNION, Arrays.asList(1L, 2L), null));
+                        }).join()));
+        index.rebuild();
+
+        assertEquals(2, index.rebuild());
+
+        assertEquals(Collections.singletonList(10L), ids(index.findUsers(OP_UNION, Collections.singletonList(1L), null, "", 10)));
+        assertEquals(Collections.singletonList(2L), ids(index.findProjects(OP_UNION, Collections.singletonList(12L), null, "", 10)));
+        assertEquals(0, index.countProjects(OP_UNION, Collections.singletonList(11L), null));
+    }
+
+    /**
+     * Tests that unknown operations, missing or too many sets and invalid sizes are rejected.
+     */
+    @Test
+    void rejectsInvalidRequests() {
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 1; id <= MembershipIndexService.MAX_SETS + 1; id++) {
+            tooMany.add(id);
+        }
+
+        assertThrows(BadRequestException.class, () -> membershipIndexService.countUsers("xor", Collections.singletonList(projectA), null));
+        assertThrows(BadRequestException.class, () -> membershipIndexService.countUsers(OP_UNION, Collections.emptyList(), null));
+        assertThrows(BadRequestException.class, () -> membershipIndexService.countUsers(OP_UNION, tooMany, null));
+        assertThrows(BadRequestException.class, () -> membershipIndexService.findUsers(OP_UNION, Collections.singletonList(projectA), null, "", 0));
+    }
+
+    private static List<Long> ids(CursorPageDTO<Long> page) {
+        return page.getContent();
+    }
+}
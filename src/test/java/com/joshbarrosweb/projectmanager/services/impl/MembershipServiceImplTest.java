@@ -0,0 +1,203 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.config.CacheConfig;
+import com.joshbarrosweb.projectmanager.dtos.MembershipResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.MembershipIndexService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MembershipServiceImplTest {
+
+    private MembershipServiceImpl membershipService;
+    private ProjectRepository projectRepository;
+    private UserRepository userRepository;
+    private CacheManager cacheManager;
+    private MembershipIndexService membershipIndexService;
+
+    @BeforeEach
+    void setUp() {
+        projectRepository = mock(ProjectRepository.class);
+        userRepository = mock(UserRepository.class);
+        cacheManager = new ConcurrentMapCacheManager(CacheConfig.PROJECTS, CacheConfig.USERS, CacheConfig.COLLABORATORS);
+        membershipIndexService = mock(MembershipIndexService.class);
+        membershipService = new MembershipServiceImpl(projectRepository, userRepository, cacheManager, membershipIndexService);
+    }
+
+    /**
+     * Tests that duplicate and null IDs are dropped, that large requests are split into
+     * chunks of at most 1000 IDs, and that the affected rows of every chunk are summed
+     * and added to the project's member count at once.
+     */
+    @Test
+    void addUsersInChunks() {
+        List<Long> userIds = new ArrayList<>();
+        for (long id = 1; id <= 2500; id++) {
+            userIds.add(id);
+        }
+        userIds.add(1L);
+        userIds.add(null);
+        when(projectRepository.existsById(9L)).thenReturn(true);
+        when(projectRepository.insertMemberships(eq(9L), anyCollection()))
+                .thenAnswer(invocation -> ((Collection<?>) invocation.getArgument(1)).size());
+
+        MembershipResultDTO result = membershipService.addUsers(9L, userIds);
+
+        assertEquals(2500, result.getRequested());
+        assertEquals(2500, result.getAffected());
+        verify(projectRepository, times(3)).insertMemberships(eq(9L), anyCollection());
+        verify(projectRepository, times(1)).addMembers(Collections.singletonList(9L), 2500L);
+        verify(userRepository, times(3)).incrementVersions(anyCollection());
+        verify(projectRepository, never()).findUserIdsByProjectIdAndUserIds(anyLong(), anyCollection());
+        verify(membershipIndexService).addMembers(eq(9L), argThat(ids -> ids.size() == 2500));
+    }
+
+    /**
+     * Tests that when some users are skipped, only the members among them are added to the membership index.
+     */
+    @Test
+    void addUsersIndexesOnlyMembers() {
+        when(projectRepository.existsById(9L)).thenReturn(true);
+        when(projectRepository.insertMemberships(eq(9L), anyCollection())).thenReturn(1);
+        when(projectRepository.findUserIdsByProjectIdAndUserIds(eq(9L), anyCollection()))
+                .thenReturn(Collections.singletonList(1L));
+
+        membershipService.addUsers(9L, Arrays.asList(1L, 404L));
+
+        verify(membershipIndexService).addMembers(9L, Collections.singletonList(1L));
+    }
+
+    /**
+     * Tests that versions and member counts are left alone when no membership changes,
+     * and that no statement runs for users that are already members.
+     */
+    @Test
+    void addExistingMembersKeepsVersions() {
+        when(projectRepository.existsById(9L)).thenReturn(true);
+        when(projectRepository.findUserIdsByProjectId(9L)).thenReturn(Arrays.asList(1L, 2L));
+
+        membershipService.addUsers(9L, Arrays.asList(1L, 2L));
+
+        verify(projectRepository, never()).insertMemberships(anyLong(), anyCollection());
+        verify(projectRepository, never()).addMembers(anyCollection(), anyLong());
+        verify(userRepository, never()).incrementVersions(anyCollection());
+        verifyNoInteractions(membershipIndexService);
+    }
+
+    /**
+     * Tests that when an existing member is re-added with a new one, only the new member's version
+     * is incremented and only its cached entry is evicted.
+     */
+    @Test
+    void readdingMemberKeepsItsVersion() {
+        cacheManager.getCache(CacheConfig.USERS).put(1L, new UserDTO());
+        cacheManager.getCache(CacheConfig.USERS).put(2L, new UserDTO());
+        when(projectRepository.existsById(9L)).thenReturn(true);
+        when(projectRepository.findUserIdsByProjectId(9L)).thenReturn(Collections.singletonList(1L));
+        when(projectRepository.insertMemberships(eq(9L), anyCollection())).thenReturn(1);
+
+        MembershipResultDTO result = membershipService.addUsers(9L, Arrays.asList(1L, 2L));
+
+        assertEquals(1, result.getAffected());
+        verify(projectRepository).insertMemberships(9L, Collections.singletonList(2L));
+        verify(userRepository).incrementVersions(Collections.singletonList(2L));
+        verify(userRepository, never()).incrementVersions(argThat(ids -> ids.contains(1L)));
+        assertNotNull(cacheManager.getCache(CacheConfig.USERS).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.USERS).get(2L));
+        verify(membershipIndexService).addMembers(9L, Collections.singletonList(2L));
+    }
+
+    /**
+     * Tests that removing users evicts the project and the removed users from the cache, and the collaborator
+     * lists of the project's members but no others, subtracts the removed memberships from the project's
+     * member count, and leaves users that were not members alone.
+     */
+    @Test
+    void removeUsersEvictsCachedEntries() {
+        cacheManager.getCache(CacheConfig.PROJECTS).put(9L, new ProjectDTO());
+        cacheManager.getCache(CacheConfig.USERS).put(1L, new UserDTO());
+        cacheManager.getCache(CacheConfig.USERS).put(3L, new UserDTO());
+        cacheManager.getCache(CacheConfig.USERS).put(5L, new UserDTO());
+        for (long id = 1; id <= 5; id++) {
+            cacheManager.getCache(CacheConfig.COLLABORATORS).put(id, Collections.emptyList());
+        }
+        when(projectRepository.existsById(9L)).thenReturn(true);
+        when(projectRepository.deleteMemberships(eq(9L), anyCollection())).thenReturn(2);
+        when(projectRepository.findUserIdsByProjectId(9L)).thenReturn(Arrays.asList(1L, 2L, 3L));
+
+        membershipService.removeUsers(9L, Arrays.asList(1L, 2L, 5L));
+
+        assertNull(cacheManager.getCache(CacheConfig.PROJECTS).get(9L));
+        assertNull(cacheManager.getCache(CacheConfig.USERS).get(1L));
+        assertNotNull(cacheManager.getCache(CacheConfig.USERS).get(3L));
+        assertNull(cacheManager.getCache(CacheConfig.COLLABORATORS).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.COLLABORATORS).get(2L));
+        assertNull(cacheManager.getCache(CacheConfig.COLLABORATORS).get(3L));
+        assertNotNull(cacheManager.getCache(CacheConfig.COLLABORATORS).get(4L));
+        assertNotNull(cacheManager.getCache(CacheConfig.USERS).get(5L));
+        assertNotNull(cacheManager.getCache(CacheConfig.COLLABORATORS).get(5L));
+        verify(projectRepository).deleteMemberships(9L, Arrays.asList(1L, 2L));
+        verify(userRepository).incrementVersions(Arrays.asList(1L, 2L));
+        verify(projectRepository, times(1)).addMembers(Collections.singletonList(9L), -2L);
+        verify(membershipIndexService).removeMembers(9L, Arrays.asList(1L, 2L));
+    }
+
+    /**
+     * Tests that an unknown project is rejected before any statement runs.
+     */
+    @Test
+    void addUsersToUnknownProject() {
+        when(projectRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> membershipService.addUsers(9L, Arrays.asList(1L, 2L)));
+        verify(projectRepository, never()).insertMemberships(anyLong(), anyCollection());
+    }
+
+    /**
+     * Tests that removing a user from all projects increments the projects' versions,
+     * decrements their member counts and evicts them from the cache, with the collaborator lists
+     * of the user and of its collaborators.
+     */
+    @Test
+    void removeUserFromAllProjects() {
+        cacheManager.getCache(CacheConfig.PROJECTS).put(7L, new ProjectDTO());
+        cacheManager.getCache(CacheConfig.PROJECTS).put(8L, new ProjectDTO());
+        for (long id = 1; id <= 3; id++) {
+            cacheManager.getCache(CacheConfig.COLLABORATORS).put(id, Collections.emptyList());
+        }
+        when(userRepository.findProjectIdsByUserId(1L)).thenReturn(Collections.singletonList(7L));
+        when(userRepository.findCollaboratorIds(1L)).thenReturn(Collections.singletonList(2L));
+
+        List<Long> projectIds = membershipService.removeUserFromAllProjects(1L);
+
+        assertEquals(Collections.singletonList(7L), projectIds);
+        verify(userRepository, times(1)).deleteAllMemberships(1L);
+        verify(projectRepository, times(1)).addMembers(Collections.singletonList(7L), -1L);
+        assertNull(cacheManager.getCache(CacheConfig.PROJECTS).get(7L));
+        assertNotNull(cacheManager.getCache(CacheConfig.PROJECTS).get(8L));
+        assertNull(cacheManager.getCache(CacheConfig.COLLABORATORS).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.COLLABORATORS).get(2L));
+        assertNotNull(cacheManager.getCache(CacheConfig.COLLABORATORS).get(3L));
+        verify(membershipIndexService).removeUser(1L);
+    }
+}
@@ -1,21 +1,44 @@
 package com.joshbarrosweb.projectmanager.services.impl;
 
+import com.joshbarrosweb.projectmanager.config.CacheConfig;
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.MemberDTO;
 import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
 import com.joshbarrosweb.projectmanager.entities.Project;
-import com.joshbarrosweb.projectmanager.entities.User;
 import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.AutocompleteService;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
 import com.joshbarrosweb.projectmanager.services.ConverterService;
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import com.joshbarrosweb.projectmanager.services.Cursor;
+import com.joshbarrosweb.projectmanager.services.MembershipIndexService;
+import com.joshbarrosweb.projectmanager.services.SearchService;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -27,17 +50,33 @@ class ProjectServiceImplTest {
 
     private ProjectServiceImpl projectService;
     private ProjectRepository projectRepository;
+    private UserRepository userRepository;
     private ConverterService converterService;
+    private CounterService counterService;
+    private SearchService searchService;
+    private AutocompleteService autocompleteService;
+    private CacheManager cacheManager;
+    private EntityManager entityManager;
 
     @BeforeEach
     void setUp() {
         projectRepository = mock(ProjectRepository.class);
+        userRepository = mock(UserRepository.class);
         converterService = mock(ConverterService.class);
-        projectService = new ProjectServiceImpl(projectRepository, converterService);
+        counterService = mock(CounterService.class);
+        searchService = mock(SearchService.class);
+        autocompleteService = mock(AutocompleteService.class);
+        cacheManager = new ConcurrentMapCacheManager(CacheConfig.PROJECTS, CacheConfig.USERS);
+        entityManager = mock(EntityManager.class);
+        projectService = new ProjectServiceImpl(projectRepository,
+                new MembershipServiceImpl(projectRepository, userRepository, cacheManager, mock(MembershipIndexService.class)),
+                counterService, searchService, autocompleteService, converterService, cacheManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), entityManager);
     }
 
     /**
      * Tests the creation of a project.
+     * It verifies that the project counter is incremented and the project is indexed for search and autocomplete.
      */
     @Test
     void createProject() {
@@ -51,19 +90,123 @@ class ProjectServiceImplTest {
 
         assertEquals(projectDTO, result);
         verify(projectRepository, times(1)).save(any(Project.class));
+        verify(counterService, times(1)).addProjects(1);
+        verify(searchService, times(1)).indexProject(project.getId(), project.getName(), project.getDescription());
+        verify(autocompleteService, times(1)).putProject(project.getId(), project.getName());
+    }
+
+    /**
+     * Tests the bulk creation of projects.
+     * Valid projects are saved and flushed once per chunk, invalid ones are reported,
+     * and the project counter is incremented once by the number created, which are indexed for search and autocomplete.
+     */
+    @Test
+    void createProjects() {
+        ProjectDTO valid = new ProjectDTO();
+        valid.setName("Warzone");
+        ProjectDTO invalid = new ProjectDTO();
+        when(converterService.convertToEntity(any(ProjectDTO.class))).thenAnswer(invocation -> new Project());
+        when(projectRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<Project> projects = invocation.getArgument(0);
+            projects.forEach(project -> project.setId(7L));
+            return projects;
+        });
+
+        BatchResultDTO result = projectService.createProjects(Arrays.asList(invalid, valid, null));
+
+        assertEquals(Arrays.asList(null, 7L, null), result.getCreatedIds());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(0, result.getErrors().get(0).getIndex());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("name "));
+        assertEquals(2, result.getErrors().get(1).getIndex());
+        verify(entityManager, times(1)).flush();
+        verify(entityManager, times(1)).clear();
+        verify(counterService, times(1)).addProjects(1);
+        verify(searchService, times(1)).indexProject(eq(7L), any(), any());
+        verify(autocompleteService, times(1)).putProject(eq(7L), any());
     }
 
     /**
      * Tests the retrieval of a list of projects.
+     * It verifies that the total comes from the project counter and no count is issued.
      */
     @Test
     void listProjects() {
-        Page<Project> projects = new PageImpl<>(Collections.singletonList(new Project()), PageRequest.of(0, 10), 1);
-        when(projectRepository.findAll(any(PageRequest.class))).thenReturn(projects);
+        when(projectRepository.findAllBy(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(new Project(1L, "Alpha", null, null)), PageRequest.of(0, 1), true));
+        when(counterService.countProjects()).thenReturn(42L);
+
+        Page<ProjectDTO> page = projectService.listProjects(PageRequest.of(0, 1));
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(42L, page.getTotalElements());
+        assertEquals(42, page.getTotalPages());
+        verify(projectRepository, never()).findAll(any(Pageable.class));
+        verify(projectRepository, never()).count();
+    }
+
+    /**
+     * Tests the retrieval of a slice of projects.
+     * It verifies that whether there is a next slice is reported and no count is issued.
+     */
+    @Test
+    void listProjectSlice() {
+        when(projectRepository.findAllBy(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(new Project(1L, "Alpha", null, null)), PageRequest.of(2, 1), true));
+
+        SliceDTO<ProjectDTO> slice = projectService.listProjectSlice(PageRequest.of(2, 1));
+
+        assertEquals(1, slice.getContent().size());
+        assertEquals(2, slice.getPage());
+        assertTrue(slice.isHasNext());
+        verify(projectRepository, never()).findAll(any(Pageable.class));
+        verify(projectRepository, never()).count();
+    }
 
-        projectService.listProjects(PageRequest.of(0, 10));
+    /**
+     * Tests the retrieval of a list of projects using a cursor.
+     * It verifies that one extra row is fetched to detect the next page and no count is issued.
+     */
+    @Test
+    void listProjectsByCursor() {
+        Project first = new Project(1L, "Alpha", null, null);
+        Project second = new Project(2L, "Beta", null, null);
+        Project third = new Project(3L, "Gamma", null, null);
+        when(projectRepository.findAllByOrderByNameAscIdAsc(any(Pageable.class))).thenReturn(Arrays.asList(first, second, third));
 
-        verify(projectRepository, times(1)).findAll(any(PageRequest.class));
+        CursorPageDTO<ProjectDTO> page = projectService.listProjects("", 2, Cursor.SORT_NAME);
+
+        assertEquals(2, page.getContent().size());
+        Cursor next = Cursor.decode(page.getNextCursor(), Cursor.SORT_NAME);
+        assertEquals("Beta", next.getKey());
+        assertEquals(2L, next.getId());
+        verify(projectRepository, times(1)).findAllByOrderByNameAscIdAsc(PageRequest.of(0, 3));
+        verify(projectRepository, never()).count();
+    }
+
+    /**
+     * Tests that a cursor seeks past the last row of the previous page.
+     */
+    @Test
+    void listProjectsAfterCursor() {
+        String after = Cursor.of(Cursor.SORT_ID, null, 2L).encode();
+        when(projectRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(new Project(3L, "Gamma", null, null)));
+
+        CursorPageDTO<ProjectDTO> page = projectService.listProjects(after, 2, Cursor.SORT_ID);
+
+        assertEquals(1, page.getContent().size());
+        assertNull(page.getNextCursor());
+    }
+
+    /**
+     * Tests that a cursor issued for another sort is rejected.
+     */
+    @Test
+    void listProjectsWithMismatchedCursor() {
+        String after = Cursor.of(Cursor.SORT_ID, null, 2L).encode();
+
+        assertThrows(BadRequestException.class, () -> projectService.listProjects(after, 2, Cursor.SORT_NAME));
     }
 
     /**
@@ -80,11 +223,13 @@ class ProjectServiceImplTest {
     }
 
     /**
-     * Tests the update of a project.
+     * Tests the update of a project, which is indexed for search and autocomplete again and evicted from the cache.
      */
     @Test
     void updateProject() {
+        cacheManager.getCache(CacheConfig.PROJECTS).put(1L, new ProjectDTO());
         ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setName("Renamed");
         Project project = new Project();
         when(projectRepository.findById(anyLong())).thenReturn(Optional.of(project));
         when(projectRepository.save(any(Project.class))).thenReturn(project);
@@ -93,10 +238,29 @@ class ProjectServiceImplTest {
 
         verify(projectRepository, times(1)).findById(anyLong());
         verify(projectRepository, times(1)).save(any(Project.class));
+        verify(searchService, times(1)).indexProject(1L, "Renamed", null);
+        verify(autocompleteService, times(1)).putProject(1L, "Renamed");
+        assertNull(cacheManager.getCache(CacheConfig.PROJECTS).get(1L));
     }
 
     /**
-     * Tests the deletion of a project.
+     * Tests that a conditional update against a stale version is rejected, while a missing project is reported as not found.
+     */
+    @Test
+    void updateProjectWithStaleVersion() {
+        when(projectRepository.updateIfVersion(eq(1L), any(), any(), eq(2L))).thenReturn(0);
+        when(projectRepository.existsById(1L)).thenReturn(true);
+        when(projectRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> projectService.updateProject(1L, new ProjectDTO(), 2L));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> projectService.updateProject(9L, new ProjectDTO(), 2L));
+        assertEquals("Project not found", e.getMessage());
+        verify(projectRepository, never()).save(any(Project.class));
+        verifyNoInteractions(searchService, autocompleteService);
+    }
+
+    /**
+     * Tests the deletion of a project, which leaves the search and autocomplete indexes.
      */
     @Test
     void deleteProject() {
@@ -105,7 +269,29 @@ class ProjectServiceImplTest {
         projectService.deleteProject(1L);
 
         verify(projectRepository, times(1)).existsById(anyLong());
+        verify(projectRepository, times(1)).deleteAllMemberships(1L);
         verify(projectRepository, times(1)).deleteById(anyLong());
+        verify(counterService, times(1)).addProjects(-1);
+        verify(searchService, times(1)).deleteProject(1L);
+        verify(autocompleteService, times(1)).removeProject(1L);
+    }
+
+    /**
+     * Tests that deleting a project evicts it and its members from the cache.
+     */
+    @Test
+    void deleteProjectEvictsCachedEntries() {
+        cacheManager.getCache(CacheConfig.PROJECTS).put(1L, new ProjectDTO());
+        cacheManager.getCache(CacheConfig.USERS).put(2L, new UserDTO());
+        cacheManager.getCache(CacheConfig.USERS).put(3L, new UserDTO());
+        when(projectRepository.existsById(1L)).thenReturn(true);
+        when(projectRepository.findUserIdsByProjectId(1L)).thenReturn(Collections.singletonList(2L));
+
+        projectService.deleteProject(1L);
+
+        assertNull(cacheManager.getCache(CacheConfig.PROJECTS).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.USERS).get(2L));
+        assertNotNull(cacheManager.getCache(CacheConfig.USERS).get(3L));
     }
 
     /**
@@ -114,22 +300,120 @@ class ProjectServiceImplTest {
     @Test
     void searchProjects() {
         Page<Project> projects = new PageImpl<>(Collections.singletonList(new Project()), PageRequest.of(0, 10), 1);
-        when(projectRepository.findByNameContaining(anyString(), any(PageRequest.class))).thenReturn(projects);
+        when(projectRepository.findByNameContainingIgnoreCase(anyString(), any(PageRequest.class))).thenReturn(projects);
 
         projectService.searchProjects("test", PageRequest.of(0, 10));
 
-        verify(projectRepository, times(1)).findByNameContaining(anyString(), any(PageRequest.class));
+        verify(projectRepository, times(1)).findByNameContainingIgnoreCase(anyString(), any(PageRequest.class));
+    }
+
+    /**
+     * Tests the search for projects by name without a count.
+     */
+    @Test
+    void searchProjectSlice() {
+        when(projectRepository.findSliceByNameContainingIgnoreCase(eq("test"), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(new Project(1L, "test", null, null)), PageRequest.of(0, 10), false));
+
+        SliceDTO<ProjectDTO> slice = projectService.searchProjectSlice("test", PageRequest.of(0, 10));
+
+        assertEquals(1, slice.getContent().size());
+        assertFalse(slice.isHasNext());
+        verify(projectRepository, never()).findByNameContainingIgnoreCase(anyString(), any(Pageable.class));
     }
 
     /**
-     * Tests the retrieval of users associated with a project.
+     * Tests the retrieval of a page of users associated with a project.
+     * It verifies that the total is the project's member count, without loading the members' project IDs.
      */
     @Test
     void getUsersByProjectId() {
-        when(projectRepository.getUsersByProjectId(anyLong())).thenReturn(Collections.singletonList(new User()));
+        Pageable pageable = PageRequest.of(0, 2);
+        when(projectRepository.findMemberCountById(1L)).thenReturn(Optional.of(5L));
+        when(projectRepository.findMembersByProjectId(1L, pageable)).thenReturn(Arrays.asList(
+                new MemberDTO(2L, "Cloud", "cloud@mail.com", 0L), new MemberDTO(3L, "Tifa", "tifa@mail.com", 0L)));
+
+        Page<MemberDTO> members = projectService.getUsersByProjectId(1L, pageable);
+
+        assertEquals(5, members.getTotalElements());
+        assertEquals(2, members.getNumberOfElements());
+        verify(userRepository, never()).findProjectIdsByUserIds(any());
+    }
 
-        projectService.getUsersByProjectId(1L);
+    /**
+     * Tests the retrieval of users associated with a project that does not exist.
+     */
+    @Test
+    void getUsersByProjectIdNotFound() {
+        when(projectRepository.findMemberCountById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> projectService.getUsersByProjectId(1L, PageRequest.of(0, 10)));
+        verify(projectRepository, never()).findMembersByProjectId(anyLong(), any(Pageable.class));
+    }
+
+    /**
+     * Tests keyset pagination over the users of a project.
+     * It verifies that one extra row is fetched to detect the next page, and that the
+     * returned cursor resumes after the last member of the page.
+     */
+    @Test
+    void getUsersByProjectIdByCursor() {
+        when(projectRepository.existsById(1L)).thenReturn(true);
+        when(projectRepository.findMembersAfter(eq(1L), eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(
+                new MemberDTO(2L, "Cloud", "cloud@mail.com", 0L), new MemberDTO(3L, "Tifa", "tifa@mail.com", 0L)));
+
+        CursorPageDTO<MemberDTO> page = projectService.getUsersByProjectId(1L, "", 1);
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(2L, Cursor.decode(page.getNextCursor(), Cursor.SORT_ID).getId());
+        verify(projectRepository, times(1)).findMembersAfter(1L, 0L, PageRequest.of(0, 2));
+    }
+
+    /**
+     * Tests that every member of a project is exported in order.
+     */
+    @Test
+    void exportUsersByProjectId() {
+        when(projectRepository.existsById(1L)).thenReturn(true);
+        when(projectRepository.streamMembersByProjectId(1L)).thenReturn(Stream.of(
+                new MemberDTO(2L, "Cloud", "cloud@mail.com", 0L), new MemberDTO(3L, "Tifa", "tifa@mail.com", 0L)));
+        List<Long> exported = new ArrayList<>();
+
+        projectService.exportUsersByProjectId(1L, member -> exported.add(member.getId()));
+
+        assertEquals(Arrays.asList(2L, 3L), exported);
+    }
+
+    /**
+     * Tests that a slice of the users of a project that does not exist is rejected.
+     */
+    @Test
+    void getUserSliceByProjectIdNotFound() {
+        when(projectRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> projectService.getUserSliceByProjectId(1L, PageRequest.of(0, 10)));
+        verify(projectRepository, never()).findMemberSliceByProjectId(anyLong(), any(Pageable.class));
+    }
+
+    /**
+     * Tests counting the users of a project.
+     * It verifies that the count is read from the project's member count without counting memberships.
+     */
+    @Test
+    void countUsersByProjectId() {
+        when(projectRepository.findMemberCountById(1L)).thenReturn(Optional.of(3L));
+
+        assertEquals(3L, projectService.countUsersByProjectId(1L));
+        verify(projectRepository, never()).findUserIdsByProjectId(anyLong());
+    }
+
+    /**
+     * Tests counting the users of a project that does not exist.
+     */
+    @Test
+    void countUsersByProjectIdNotFound() {
+        when(projectRepository.findMemberCountById(1L)).thenReturn(Optional.empty());
 
-        verify(projectRepository, times(1)).getUsersByProjectId(anyLong());
+        assertThrows(RuntimeException.class, () -> projectService.countUsersByProjectId(1L));
     }
 }
@@ -0,0 +1,255 @@
+package com.joshbarrosweb.projectmanager.services.impl;
+
+import com.joshbarrosweb.projectmanager.dtos.SearchHitDTO;
+import com.joshbarrosweb.projectmanager.entities.Project;
+import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
+import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
+import com.joshbarrosweb.projectmanager.services.ProjectService;
+import com.joshbarrosweb.projectmanager.services.SearchService;
+import com.joshbarrosweb.projectmanager.services.UserService;
+import com.joshbarrosweb.projectmanager.support.SqlStatementCounter;
+import com.joshbarrosweb.projectmanager.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.joshbarrosweb.projectmanager.support.TestData.project;
+import static com.joshbarrosweb.projectmanager.support.TestData.user;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the search index against the services and H2, checking that it follows committed writes
+ * and serves searches without a single SQL statement.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SearchServiceImplTest {
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Rebuilds the index, so documents left behind by other tests sharing the context are dropped.
+     */
+    @BeforeEach
+    void setUp() {
+        searchService.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteAll(jdbcTemplate);
+        searchService.rebuild();
+    }
+
+    /**
+     * Tests that created projects and users are found by any word of their fields once refreshed,
+     * without running any SQL statement.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void searchesCreatedProjectsAndUsers() throws Exception {
+        Long projectId = projectService.createProject(project("Apollo Guidance", "Lunar module flight software")).getId();
+        Long userId = userService.createUser(user("Margaret Hamilton", "margaret@apollo.test")).getId();
+        searchService.refresh();
+
+        List<SearchHitDTO> hits = new ArrayList<>();
+        new SqlStatementCounter(entityManagerFactory).assertAtMost(0, () -> {
+            hits.addAll(searchService.search("lunar SOFTWARE", null, 10));
+            hits.addAll(searchService.search("hamilton", null, 10));
+        });
+
+        assertEquals(2, hits.size());
+        assertEquals(SearchService.TYPE_PROJECT, hits.get(0).getType());
+        assertEquals(projectId, hits.get(0).getId());
+        assertEquals("Apollo Guidance", hits.get(0).getName());
+        assertEquals("Lunar module flight software", hits.get(0).getDescription());
+        assertEquals(SearchService.TYPE_USER, hits.get(1).getType());
+        assertEquals(userId, hits.get(1).getId());
+        assertEquals("margaret@apollo.test", hits.get(1).getEmail());
+        assertTrue(searchService.search("lunar rover", null, 10).isEmpty());
+    }
+
+    /**
+     * Tests that a match in a name ranks above a match in a description, and that hits can be limited to one type.
+     */
+    @Test
+    void ranksNameMatchesFirst() {
+        Long inName = projectService.createProject(project("Telemetry Dashboard", "Charts")).getId();
+        Long inDescription = projectService.createProject(project("Charts", "Telemetry views")).getId();
+        userService.createUser(user("Telemetry Operator", "operator@apollo.test"));
+        searchService.refresh();
+
+        List<SearchHitDTO> hits = searchService.search("telemetry", SearchService.TYPE_PROJECT, 10);
+
+        assertEquals(List.of(inName, inDescription), hits.stream().map(SearchHitDTO::getId).collect(Collectors.toList()));
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+        assertEquals(3, searchService.search("telemetry", null, 10).size());
+        assertEquals(1, searchService.search("telemetry", null, 1).size());
+    }
+
+    /**
+     * Tests that updated projects are found by their new name only, and deleted users are no longer found.
+     */
+    @Test
+    void followsUpdatesAndDeletes() {
+        Long projectId = projectService.createProject(project("Gemini Capsule", null)).getId();
+        Long userId = userService.createUser(user("Gus Grissom", "gus@apollo.test")).getId();
+        projectService.updateProject(projectId, project("Mercury Capsule", null));
+        userService.deleteUser(userId);
+        searchService.refresh();
+
+        assertTrue(searchService.search("gemini", null, 10).isEmpty());
+        assertEquals(projectId, searchService.search("mercury", null, 10).get(0).getId());
+        assertTrue(searchService.search("grissom", null, 10).isEmpty());
+    }
+
+    /**
+     * Tests that a write rolled back with its transaction never reaches the index.
+     */
+    @Test
+    void ignoresRolledBackWrites() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            projectService.createProject(project("Skylab", null));
+            status.setRollbackOnly();
+        });
+        searchService.refresh();
+
+        assertTrue(searchService.search("skylab", null, 10).isEmpty());
+    }
+
+    /**
+     * Tests that rows written past the services are only found once the index is rebuilt from the database.
+     */
+    @Test
+    void rebuildIndexesTheDatabase() {
+        Long projectId = projectRepository.save(new Project(null, "Vostok Program", "Orbital flight", null)).getId();
+        searchService.refresh();
+        assertTrue(searchService.search("vostok", null, 10).isEmpty());
+
+        long documents = searchService.rebuild();
+
+        assertEquals(projectRepository.count() + userRepository.count(), documents);
+        assertEquals(projectId, searchService.search("orbital", null, 10).get(0).getId());
+    }
+
+    /**
+     * Tests that a rebuild failing partway leaves the index as it was before, rather than committing
+     * the deleted index with only some of its documents.
+     *
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void failedRebuildKeepsTheIndex() throws Exception {
+        ProjectRepository projects = mock(ProjectRepository.class);
+        UserRepository users = mock(UserRepository.class);
+        SearchServiceImpl service = new SearchServiceImpl(projects, users, mock(EntityManager.class), transactionManager, "", false);
+        when(users.streamAllByOrderByIdAsc()).thenAnswer(invocation -> Stream.empty());
+        when(projects.streamAllByOrderByIdAsc())
+                .thenAnswer(invocation -> Stream.of(new Project(1L, "Vostok Program", null, null), new Project(2L, "Voskhod Program", null, null)))
+                .thenAnswer(invocation -> Stream.of(new Project(1L, "Vostok Program", null, null), new Project(2L, "Voskhod Program", null, null))
+                        .peek(project -> {
+                            if (project.getId() == 2L) {
+                                throw new IllegalStateException("Connection lost");
+                            }
+                        }));
+        try {
+            assertEquals(2, service.rebuild());
+
+            assertThrows(IllegalStateException.class, service::rebuild);
+            service.commit();
+            service.refresh();
+
+            assertEquals(2, service.search("program", null, 10).size());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    /**
+     * Tests that an empty index is rebuilt once the application is ready, and one that was closed cleanly is not.
+     *
+     * @param indexDir A fresh index directory.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    void rebuildsEmptyIndexOnStartup(@TempDir Path indexDir) throws Exception {
+        ProjectRepository projects = mock(ProjectRepository.class);
+        UserRepository users = mock(UserRepository.class);
+        when(projects.streamAllByOrderByIdAsc()).thenAnswer(invocation -> Stream.of(new Project(1L, "Vostok Program", null, null)));
+        when(users.streamAllByOrderByIdAsc()).thenAnswer(invocation -> Stream.empty());
+
+        SearchServiceImpl created = new SearchServiceImpl(projects, users, mock(EntityManager.class), transactionManager,
+                indexDir.toString(), true);
+        created.catchUp();
+        created.destroy();
+        SearchServiceImpl restarted = new SearchServiceImpl(projects, users, mock(EntityManager.class), transactionManager,
+                indexDir.toString(), true);
+        restarted.catchUp();
+
+        try {
+            verify(projects, times(1)).streamAllByOrderByIdAsc();
+            assertEquals(1, restarted.search("vostok", null, 10).size());
+        } finally {
+            restarted.destroy();
+        }
+    }
+
+    /**
+     * Tests that blank queries, queries with too many terms, unknown types and invalid sizes are rejected,
+     * and that a query without any searchable term finds nothing.
+     */
+    @Test
+    void rejectsInvalidSearches() {
+        String tooManyTerms = String.join(" ", Collections.nCopies(SearchServiceImpl.MAX_TERMS + 1, "word"));
+
+        assertThrows(BadRequestException.class, () -> searchService.search(" ", null, 10));
+        assertThrows(BadRequestException.class, () -> searchService.search(tooManyTerms, null, 10));
+        assertThrows(BadRequestException.class, () -> searchService.search("apollo", "team", 10));
+        assertThrows(BadRequestException.class, () -> searchService.search("apollo", null, 0));
+        assertTrue(searchService.search("?!", null, 10).isEmpty());
+    }
+}
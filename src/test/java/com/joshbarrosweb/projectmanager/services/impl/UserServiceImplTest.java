@@ -1,21 +1,43 @@
 package com.joshbarrosweb.projectmanager.services.impl;
 
+import com.joshbarrosweb.projectmanager.config.CacheConfig;
+import com.joshbarrosweb.projectmanager.dtos.BatchResultDTO;
+import com.joshbarrosweb.projectmanager.dtos.CollaboratorDTO;
+import com.joshbarrosweb.projectmanager.dtos.CursorPageDTO;
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.SliceDTO;
 import com.joshbarrosweb.projectmanager.dtos.UserDTO;
 import com.joshbarrosweb.projectmanager.entities.Project;
 import com.joshbarrosweb.projectmanager.entities.User;
 import com.joshbarrosweb.projectmanager.repositories.ProjectRepository;
 import com.joshbarrosweb.projectmanager.repositories.UserRepository;
+import com.joshbarrosweb.projectmanager.services.AutocompleteService;
+import com.joshbarrosweb.projectmanager.services.BadRequestException;
 import com.joshbarrosweb.projectmanager.services.ConverterService;
+import com.joshbarrosweb.projectmanager.services.CounterService;
+import com.joshbarrosweb.projectmanager.services.Cursor;
+import com.joshbarrosweb.projectmanager.services.MembershipIndexService;
+import com.joshbarrosweb.projectmanager.services.MembershipService;
+import com.joshbarrosweb.projectmanager.services.SearchService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -29,20 +51,33 @@ class UserServiceImplTest {
 
     private UserServiceImpl userService;
     private UserRepository userRepository;
-    private ProjectRepository projectRepository;
+    private MembershipService membershipService;
     private ConverterService converterService;
+    private CounterService counterService;
+    private SearchService searchService;
+    private AutocompleteService autocompleteService;
+    private CacheManager cacheManager;
+    private EntityManager entityManager;
 
     @BeforeEach
     void setUp() {
         userRepository = mock(UserRepository.class);
-        projectRepository = mock(ProjectRepository.class);
+        membershipService = mock(MembershipService.class);
         converterService = mock(ConverterService.class);
-        userService = new UserServiceImpl(userRepository, projectRepository, converterService);
+        counterService = mock(CounterService.class);
+        searchService = mock(SearchService.class);
+        autocompleteService = mock(AutocompleteService.class);
+        cacheManager = new ConcurrentMapCacheManager(CacheConfig.PROJECTS, CacheConfig.USERS, CacheConfig.COLLABORATORS);
+        entityManager = mock(EntityManager.class);
+        userService = new UserServiceImpl(userRepository, membershipService, counterService, searchService,
+                autocompleteService, converterService, cacheManager, Validation.buildDefaultValidatorFactory().getValidator(),
+                entityManager);
     }
 
     /**
      * Tests the createUser() method of the UserServiceImpl class.
-     * It verifies that a UserDTO is created and saved successfully.
+     * It verifies that a UserDTO is created and saved successfully, that the user counter is incremented
+     * and that the user is indexed for search and autocomplete.
      */
     @Test
     void createUser() {
@@ -56,20 +91,132 @@ class UserServiceImplTest {
 
         assertEquals(userDTO, result);
         verify(userRepository, times(1)).save(any(User.class));
+        verify(counterService, times(1)).addUsers(1);
+        verify(searchService, times(1)).indexUser(user.getId(), user.getName(), user.getEmail());
+        verify(autocompleteService, times(1)).putUser(user.getId(), user.getName(), user.getEmail());
+    }
+
+    /**
+     * Tests the createUsers() method of the UserServiceImpl class.
+     * It verifies that valid users are saved in one batch and that invalid, taken
+     * and duplicated emails are reported with their position in the request.
+     * Only the created user is indexed for search and autocomplete.
+     */
+    @Test
+    void createUsers() {
+        UserDTO valid = userDTO("Cloud", "cloud@example.com");
+        UserDTO invalid = userDTO("", "not-an-email");
+        UserDTO taken = userDTO("Tifa", "tifa@example.com");
+        UserDTO duplicate = userDTO("Cloud", "cloud@example.com");
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Collections.singletonList("tifa@example.com"));
+        when(converterService.convertToEntity(any(UserDTO.class))).thenAnswer(invocation -> new User());
+        when(userRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(42L));
+            return users;
+        });
+
+        BatchResultDTO result = userService.createUsers(Arrays.asList(valid, invalid, taken, duplicate));
+
+        assertEquals(Arrays.asList(42L, null, null, null), result.getCreatedIds());
+        assertEquals(3, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals("email already in use", result.getErrors().get(1).getMessage());
+        assertEquals("email is duplicated in the batch", result.getErrors().get(2).getMessage());
+        verify(userRepository, times(1)).saveAll(anyIterable());
+        verify(counterService, times(1)).addUsers(1);
+        verify(searchService, times(1)).indexUser(any(), any(), any());
+        verify(autocompleteService, times(1)).putUser(any(), any(), any());
+    }
+
+    /**
+     * Tests that the createUsers() method rejects an empty batch.
+     */
+    @Test
+    void createUsersRejectsEmptyBatch() {
+        assertThrows(BadRequestException.class, () -> userService.createUsers(Collections.emptyList()));
+    }
+
+    /**
+     * Tests the exportUsers() method of the UserServiceImpl class.
+     * It verifies that every user is emitted in order, that project IDs are loaded once per chunk
+     * of 1000 users, and that the persistence context is cleared after each chunk.
+     */
+    @Test
+    void exportUsers() {
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 2500; id++) {
+            users.add(new User(id, "User " + id, "user" + id + "@mail.com", "secret", null));
+        }
+        when(userRepository.streamAllByOrderByIdAsc()).thenReturn(users.stream());
+        when(converterService.convertToDto(any(User.class), any())).thenAnswer(invocation -> {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setId(((User) invocation.getArgument(0)).getId());
+            return userDTO;
+        });
+        List<Long> exported = new ArrayList<>();
+
+        userService.exportUsers(userDTO -> exported.add(userDTO.getId()));
+
+        assertEquals(2500, exported.size());
+        assertEquals(2500L, exported.get(2499));
+        verify(userRepository, times(3)).findProjectIdsByUserIds(anyCollection());
+        verify(entityManager, times(3)).clear();
     }
 
     /**
      * Tests the listUsers() method of the UserServiceImpl class.
-     * It verifies that the list of users is retrieved successfully.
+     * It verifies that the list of users is retrieved with its total from the user counter, without a count.
      */
     @Test
     void listUsers() {
-        Page<User> users = new PageImpl<>(Collections.singletonList(new User()), PageRequest.of(0, 10), 1);
-        when(userRepository.findAll(any(Pageable.class))).thenReturn(users);
+        when(userRepository.findAllBy(any(Pageable.class))).thenReturn(
+                new SliceImpl<>(Collections.singletonList(new User(1L, "Ann", "ann@mail.com", "secret", null)), PageRequest.of(0, 10), false));
+        when(counterService.countUsers()).thenReturn(1L);
+
+        Page<UserDTO> page = userService.listUsers(PageRequest.of(0, 10));
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(1L, page.getTotalElements());
+        verify(userRepository, never()).findAll(any(Pageable.class));
+        verify(userRepository, never()).count();
+    }
+
+    /**
+     * Tests the listUserSlice() method of the UserServiceImpl class.
+     * It verifies that whether there is a next slice is reported and no count is issued.
+     */
+    @Test
+    void listUserSlice() {
+        when(userRepository.findAllBy(any(Pageable.class))).thenReturn(
+                new SliceImpl<>(Collections.singletonList(new User(1L, "Ann", "ann@mail.com", "secret", null)), PageRequest.of(0, 1), true));
 
-        userService.listUsers(PageRequest.of(0, 10));
+        SliceDTO<UserDTO> slice = userService.listUserSlice(PageRequest.of(0, 1));
+
+        assertEquals(1, slice.getContent().size());
+        assertTrue(slice.isHasNext());
+        verify(userRepository, never()).findAll(any(Pageable.class));
+        verify(userRepository, never()).count();
+    }
 
-        verify(userRepository, times(1)).findAll(any(Pageable.class));
+    /**
+     * Tests the cursor-based listUsers() method of the UserServiceImpl class.
+     * It verifies that the next page seeks past the last user and that no count is issued.
+     */
+    @Test
+    void listUsersByCursor() {
+        User first = new User(1L, "Ann", "ann@mail.com", "secret", null);
+        User second = new User(2L, "Bob", "bob@mail.com", "secret", null);
+        when(userRepository.findAllByOrderByIdAsc(any(Pageable.class))).thenReturn(Arrays.asList(first, second));
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), any(Pageable.class))).thenReturn(Collections.singletonList(second));
+
+        CursorPageDTO<UserDTO> firstPage = userService.listUsers("", 1, Cursor.SORT_ID);
+        CursorPageDTO<UserDTO> secondPage = userService.listUsers(firstPage.getNextCursor(), 1, Cursor.SORT_ID);
+
+        assertEquals(1, firstPage.getContent().size());
+        assertEquals(1, secondPage.getContent().size());
+        assertNull(secondPage.getNextCursor());
+        verify(userRepository, never()).count();
     }
 
     /**
@@ -88,11 +235,13 @@ class UserServiceImplTest {
 
     /**
      * Tests the updateUser() method of the UserServiceImpl class.
-     * It verifies that a user is updated successfully with the given ID and UserDTO.
+     * It verifies that a user is updated successfully with the given ID and UserDTO, indexed for search and autocomplete again,
+     * and evicted from the cache.
      */
     @Test
     void updateUser() {
-        UserDTO userDTO = new UserDTO();
+        cacheManager.getCache(CacheConfig.USERS).put(1L, new UserDTO());
+        UserDTO userDTO = userDTO("Aerith", "aerith@example.com");
         User user = new User();
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
         when(userRepository.save(any(User.class))).thenReturn(user);
@@ -101,11 +250,14 @@ class UserServiceImplTest {
 
         verify(userRepository, times(1)).findById(anyLong());
         verify(userRepository, times(1)).save(any(User.class));
+        verify(searchService, times(1)).indexUser(1L, "Aerith", "aerith@example.com");
+        verify(autocompleteService, times(1)).putUser(1L, "Aerith", "aerith@example.com");
+        assertNull(cacheManager.getCache(CacheConfig.USERS).get(1L));
     }
 
     /**
      * Tests the deleteUser() method of the UserServiceImpl class.
-     * It verifies that a user with the specified ID is deleted successfully.
+     * It verifies that a user with the specified ID is deleted successfully and leaves the search and autocomplete indexes.
      */
     @Test
     void deleteUser() {
@@ -114,7 +266,35 @@ class UserServiceImplTest {
         userService.deleteUser(1L);
 
         verify(userRepository, times(1)).existsById(anyLong());
+        verify(membershipService, times(1)).removeUserFromAllProjects(1L);
         verify(userRepository, times(1)).deleteById(anyLong());
+        verify(counterService, times(1)).addUsers(-1);
+        verify(searchService, times(1)).deleteUser(1L);
+        verify(autocompleteService, times(1)).removeUser(1L);
+    }
+
+    /**
+     * Tests that deleteUser() evicts the user and the projects it belonged to from the cache,
+     * and leaves unrelated entries alone.
+     */
+    @Test
+    void deleteUserEvictsCachedEntries() {
+        cacheManager.getCache(CacheConfig.USERS).put(1L, new UserDTO());
+        cacheManager.getCache(CacheConfig.PROJECTS).put(7L, new ProjectDTO());
+        cacheManager.getCache(CacheConfig.PROJECTS).put(8L, new ProjectDTO());
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.findProjectIdsByUserId(1L)).thenReturn(Collections.singletonList(7L));
+        userService = new UserServiceImpl(userRepository,
+                new MembershipServiceImpl(mock(ProjectRepository.class), userRepository, cacheManager,
+                        mock(MembershipIndexService.class)), counterService,
+                searchService, autocompleteService, converterService, cacheManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), entityManager);
+
+        userService.deleteUser(1L);
+
+        assertNull(cacheManager.getCache(CacheConfig.USERS).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.PROJECTS).get(7L));
+        assertNotNull(cacheManager.getCache(CacheConfig.PROJECTS).get(8L));
     }
 
     /**
@@ -123,14 +303,57 @@ class UserServiceImplTest {
      */
     @Test
     void searchUsers() {
-        Page<User> users = new PageImpl<>(Collections.singletonList(new User()), PageRequest.of(0, 10), 1);
-        when(userRepository.findByNameContaining(anyString(), any(Pageable.class))).thenReturn(users);
-        when(userRepository.findByEmail(anyString(), any(Pageable.class))).thenReturn(users);
+        Page<User> users = new PageImpl<>(Collections.singletonList(new User()), PageRequest.of(1, 10), 11);
+        when(userRepository.searchByNameOrEmail(anyString(), anyString(), any(Pageable.class))).thenReturn(users);
 
-        userService.searchUsers("test", "test@test.com", PageRequest.of(0, 10));
+        Page<UserDTO> result = userService.searchUsers("test", "test@test.com", PageRequest.of(1, 10));
 
-        verify(userRepository, times(1)).findByNameContaining(anyString(), any(Pageable.class));
-        verify(userRepository, times(1)).findByEmail(anyString(), any(Pageable.class));
+        assertEquals(11, result.getTotalElements());
+        assertEquals(1, result.getContent().size());
+        verify(userRepository, times(1)).searchByNameOrEmail(eq("test"), eq("test@test.com"), eq(PageRequest.of(1, 10)));
+        verify(userRepository, never()).findByNameContainingIgnoreCase(anyString(), any(Pageable.class));
+        verify(userRepository, never()).findByEmail(anyString(), any(Pageable.class));
+    }
+
+    /**
+     * Tests the searchUserSlice() method of the UserServiceImpl class.
+     * It verifies that the count-free search query is used.
+     */
+    @Test
+    void searchUserSlice() {
+        when(userRepository.searchSliceByNameOrEmail(eq("test"), eq("test@test.com"), any(Pageable.class))).thenReturn(
+                new SliceImpl<>(Collections.singletonList(new User()), PageRequest.of(1, 10), false));
+
+        SliceDTO<UserDTO> slice = userService.searchUserSlice("test", "test@test.com", PageRequest.of(1, 10));
+
+        assertEquals(1, slice.getPage());
+        assertFalse(slice.isHasNext());
+        verify(userRepository, never()).searchByNameOrEmail(anyString(), anyString(), any(Pageable.class));
+    }
+
+    /**
+     * Tests that assignUserToProject() checks the user exists and writes the membership
+     * through the membership service, without loading either entity.
+     */
+    @Test
+    void assignUserToProjectUsesMembershipService() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        userService.assignUserToProject(1L, 2L);
+
+        verify(membershipService, times(1)).addUsers(2L, Collections.singletonList(1L));
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    /**
+     * Tests that removeUserFromProject() fails for an unknown user without touching memberships.
+     */
+    @Test
+    void removeUnknownUserFromProject() {
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> userService.removeUserFromProject(1L, 2L));
+        verify(membershipService, never()).removeUsers(anyLong(), anyCollection());
     }
 
     /* 
@@ -184,4 +407,63 @@ class UserServiceImplTest {
         verify(projectRepository, times(1)).findById(anyLong());
         verify(userRepository, times(1)).save(any(User.class));
     } */
-}
\ No newline at end of file
+
+    private static UserDTO userDTO(String name, String email) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName(name);
+        userDTO.setEmail(email);
+        userDTO.setPassword("secret");
+        return userDTO;
+    }
+
+    /**
+     * Tests that the top collaborators are mapped from the aggregate rows, most shared projects first.
+     */
+    @Test
+    void getCollaborators() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.findCollaboratorRows(1L, Cursor.MAX_PAGE_SIZE)).thenReturn(Arrays.asList(
+                new Object[]{3L, "Ada", "ada@mail.com", 2L},
+                new Object[]{2L, "Bob", "bob@mail.com", 1L}));
+
+        List<CollaboratorDTO> collaborators = userService.getCollaborators(1L);
+
+        assertEquals(2, collaborators.size());
+        assertEquals(3L, collaborators.get(0).getId());
+        assertEquals(2L, collaborators.get(0).getSharedProjects());
+        assertEquals("bob@mail.com", collaborators.get(1).getEmail());
+    }
+
+    /**
+     * Tests that updating a user evicts the cached collaborator lists of the users it shares a project with,
+     * and keeps the others.
+     */
+    @Test
+    void updateUserEvictsTheCollaboratorsOfItsCollaborators() {
+        Cache cache = cacheManager.getCache(CacheConfig.COLLABORATORS);
+        for (long id = 1; id <= 4; id++) {
+            cache.put(id, Collections.emptyList());
+        }
+        when(userRepository.findById(2L)).thenReturn(Optional.of(new User(2L, "Bob", "bob@mail.com", "secret", null)));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.findCollaboratorIds(2L)).thenReturn(Arrays.asList(1L, 3L));
+
+        userService.updateUser(2L, new UserDTO());
+
+        assertNull(cache.get(1L));
+        assertNull(cache.get(3L));
+        assertNotNull(cache.get(2L));
+        assertNotNull(cache.get(4L));
+    }
+
+    /**
+     * Tests that the collaborators of an unknown user are rejected without running the aggregate.
+     */
+    @Test
+    void getCollaboratorsRejectsUnknownUsers() {
+        when(userRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> userService.getCollaborators(9L));
+        verify(userRepository, never()).findCollaboratorRows(anyLong(), anyInt());
+    }
+}
@@ -0,0 +1,71 @@
+package com.joshbarrosweb.projectmanager.support;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Counts the SQL statements Hibernate prepares, using the session factory statistics
+ * enabled by {@code hibernate.generate_statistics} in the test profile.
+ *
+ * Every statement is counted, whichever thread runs it: queries, entity loads, inserts,
+ * updates, deletes and sequence calls. A JDBC batch counts once per prepared statement.
+ */
+public final class SqlStatementCounter {
+
+    /**
+     * Code whose statements are counted, such as a MockMvc request.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private final Statistics statistics;
+
+    public SqlStatementCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            throw new IllegalStateException("Hibernate statistics are disabled, set hibernate.generate_statistics=true");
+        }
+    }
+
+    /**
+     * Resets the count to zero.
+     */
+    public void reset() {
+        statistics.clear();
+    }
+
+    /**
+     * Returns the number of statements prepared since the last reset.
+     *
+     * @return The statement count.
+     */
+    public long count() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Runs an action and fails if it prepares more statements than its budget.
+     *
+     * @param budget The maximum number of statements the action may prepare.
+     * @param action The action to count.
+     * @return The number of statements the action prepared.
+     * @throws Exception if the action fails.
+     */
+    public long assertAtMost(long budget, Action action) throws Exception {
+        reset();
+        action.run();
+        long count = count();
+        if (count > budget) {
+            fail("Expected at most " + budget + " SQL statements but " + count + " were prepared; queries: "
+                    + Arrays.toString(statistics.getQueries()));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,63 @@
+package com.joshbarrosweb.projectmanager.support;
+
+import com.joshbarrosweb.projectmanager.dtos.ProjectDTO;
+import com.joshbarrosweb.projectmanager.dtos.UserDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+/**
+ * Builds the DTOs that tests create through the services, and removes the rows they leave behind.
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    /**
+     * Deletes all memberships, users and projects, in that order so no foreign key is violated.
+     *
+     * @param jdbcTemplate The template of the test database.
+     */
+    public static void deleteAll(JdbcTemplate jdbcTemplate) {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "project_user", "users", "projects");
+    }
+
+    /**
+     * Builds a new project without a description.
+     *
+     * @param name The name of the project.
+     * @return The project DTO.
+     */
+    public static ProjectDTO project(String name) {
+        return project(name, null);
+    }
+
+    /**
+     * Builds a new project.
+     *
+     * @param name        The name of the project.
+     * @param description The description of the project.
+     * @return The project DTO.
+     */
+    public static ProjectDTO project(String name, String description) {
+        ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setName(name);
+        projectDTO.setDescription(description);
+        return projectDTO;
+    }
+
+    /**
+     * Builds a new user with a fixed password.
+     *
+     * @param name  The name of the user.
+     * @param email The email of the user.
+     * @return The user DTO.
+     */
+    public static UserDTO user(String name, String email) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName(name);
+        userDTO.setEmail(email);
+        userDTO.setPassword("secret");
+        return userDTO;
+    }
+}